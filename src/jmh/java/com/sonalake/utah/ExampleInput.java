@@ -0,0 +1,144 @@
+package com.sonalake.utah;
+
+import com.sonalake.utah.config.Config;
+import com.sonalake.utah.config.ConfigLoader;
+import com.sonalake.utah.config.Record;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One of the example templates, with an input of the given size. The input is either the example text repeated, or is
+ * generated by {@link ExampleGenerator}, with some values missing, and, for the pathological inputs, long lines and
+ * records that run into each other.
+ * <p>
+ * If the template has a header then only the text after the header is repeated, so that there's still just the one
+ * header. The config is shared by every thread in the benchmark, as it would be by the threads in an application.
+ */
+@State(Scope.Benchmark)
+public class ExampleInput {
+
+  @Param({
+    "cisco_bgp_summary", "cisco_version", "f10_ip_bgp_summary", "f10_version", "juniper_bgp_summary",
+    "juniper_version", "unix_ifcfg"
+  })
+  public String example;
+
+  /**
+   * The number of times the example text is repeated, or the size of the generated input
+   */
+  @Param({"1", "100", "10000"})
+  public int copies;
+
+  /**
+   * Where the input comes from, one of: example, generated, pathological. Only the examples are run by default, as the
+   * generated inputs are slow on the version templates at the larger sizes, so the others are asked for with
+   * {@code -p source=generated}, along with smaller sizes
+   */
+  @Param({"example"})
+  public String source;
+
+  /**
+   * The compiled template
+   */
+  Config config;
+
+  /**
+   * The input text
+   */
+  String text;
+
+  /**
+   * The raw records in the input, i.e. the text the values are pulled out of
+   */
+  List<CharSequence> rawRecords;
+
+  /**
+   * The values from the header, or null if there's no header
+   */
+  Record header;
+
+  @Setup
+  public void setup() throws IOException {
+    config = new ConfigLoader().loadConfig(resource(example + "_template.xml"));
+    text = "example".equals(source) ? repeatExample() : generate();
+
+    Parser parser = newParser();
+    header = parser.getCommonRecord();
+    rawRecords = new ArrayList<>();
+    for (CharSequence rawRecord = parser.nextRawRecord(); null != rawRecord; rawRecord = parser.nextRawRecord()) {
+      rawRecords.add(rawRecord.toString());
+    }
+  }
+
+  /**
+   * @return a parser over the whole input
+   */
+  Parser newParser() {
+    return Parser.parse(config, new StringReader(text));
+  }
+
+  private String generate() {
+    ExampleGenerator generator = new ExampleGenerator(ExampleGenerator.Example.of(example)).withMissingValues(0.1);
+    switch (source) {
+      case "generated":
+        break;
+      case "pathological":
+        generator.withLongLines(0.01, 1 << 14).withUndelimitedRecords(0.05);
+        break;
+      default:
+        throw new IllegalStateException(String.format("There's no input source called %s", source));
+    }
+    return generator.generate(copies);
+  }
+
+  private String repeatExample() throws IOException {
+    String exampleText;
+    try (InputStream in = resource(example + "_example.txt").openStream()) {
+      exampleText = IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+    if (!exampleText.endsWith("\n")) {
+      exampleText += "\n";
+    }
+
+    int bodyStart = config.hasHeaderDelim() ? endOfHeader(exampleText) : 0;
+    StringBuilder input = new StringBuilder(exampleText);
+    for (int i = 1; i < copies; i++) {
+      input.append(exampleText, bodyStart, exampleText.length());
+    }
+    return input.toString();
+  }
+
+  /**
+   * @return the offset just after the line that matches the header delimiter
+   */
+  private int endOfHeader(String exampleText) {
+    int start = 0;
+    while (start < exampleText.length()) {
+      int end = exampleText.indexOf('\n', start) + 1;
+      if (config.matchesHeaderDelim(exampleText.substring(start, end - 1))) {
+        return end;
+      }
+      start = end;
+    }
+    throw new IllegalStateException(String.format("The %s example has no header", example));
+  }
+
+  private static URL resource(String name) {
+    URL url = ExampleInput.class.getClassLoader().getResource("examples/" + name);
+    if (null == url) {
+      throw new IllegalStateException(String.format("There's no example called %s", name));
+    }
+    return url;
+  }
+}
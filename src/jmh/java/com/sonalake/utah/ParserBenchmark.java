@@ -0,0 +1,89 @@
+package com.sonalake.utah;
+
+import com.sonalake.utah.config.RecordVisitor;
+import com.sonalake.utah.config.ValueType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse the whole of an example input, each operation is one pass over the input.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParserBenchmark {
+
+  /**
+   * Only split the input into records, without pulling out any values
+   */
+  @Benchmark
+  public void scanDelimiters(ExampleInput input, Blackhole blackhole) {
+    Parser parser = input.newParser();
+    for (CharSequence rawRecord = parser.nextRawRecord(); null != rawRecord; rawRecord = parser.nextRawRecord()) {
+      blackhole.consume(rawRecord.length());
+    }
+  }
+
+  /**
+   * Build a map for every record
+   */
+  @Benchmark
+  public void next(ExampleInput input, Blackhole blackhole) {
+    parseAll(input, blackhole);
+  }
+
+  /**
+   * Pass the values of every record to a visitor, without building the maps
+   */
+  @Benchmark
+  public void forEach(ExampleInput input, Blackhole blackhole) {
+    input.newParser().forEach(new RecordVisitor() {
+      @Override
+      public void startRecord() {
+      }
+
+      @Override
+      public void field(int slot, String id, CharSequence value) {
+        blackhole.consume(value);
+      }
+
+      @Override
+      public void field(int slot, String id, ValueType type, long value) {
+        blackhole.consume(value);
+      }
+
+      @Override
+      public void endRecord() {
+        blackhole.consume(this);
+      }
+    });
+  }
+
+  /**
+   * Build a map for every record, with several threads sharing the one config
+   */
+  @Benchmark
+  @Threads(4)
+  public void nextSharedConfig(ExampleInput input, Blackhole blackhole) {
+    parseAll(input, blackhole);
+  }
+
+  private static void parseAll(ExampleInput input, Blackhole blackhole) {
+    Parser parser = input.newParser();
+    for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+      blackhole.consume(record);
+    }
+  }
+}
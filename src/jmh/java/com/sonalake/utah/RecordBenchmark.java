@@ -0,0 +1,59 @@
+package com.sonalake.utah;
+
+import com.sonalake.utah.config.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pull the values out of the raw records of an example input, which are split up before the benchmark, so this
+ * doesn't include reading the input. Each operation is every record in the input.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RecordBenchmark {
+
+  /**
+   * Only pull out the values
+   */
+  @Benchmark
+  public void buildRecord(ExampleInput input, Blackhole blackhole) {
+    for (CharSequence rawRecord : input.rawRecords) {
+      blackhole.consume(input.config.buildRecord(rawRecord));
+    }
+  }
+
+  /**
+   * Pull out the values, add the header to them, and read every value of the merged record
+   */
+  @Benchmark
+  public void mergeHeader(ExampleInput input, Blackhole blackhole) {
+    for (CharSequence rawRecord : input.rawRecords) {
+      Record record = input.config.buildRecord(rawRecord).withHeader(input.header);
+      for (Map.Entry<String, String> entry : record.entrySet()) {
+        blackhole.consume(entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Only pull out the values, with several threads sharing the one config
+   */
+  @Benchmark
+  @Threads(4)
+  public void buildRecordSharedConfig(ExampleInput input, Blackhole blackhole) {
+    buildRecord(input, blackhole);
+  }
+}
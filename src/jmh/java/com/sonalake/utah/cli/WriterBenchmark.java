@@ -0,0 +1,103 @@
+package com.sonalake.utah.cli;
+
+import com.sonalake.utah.Parser;
+import com.sonalake.utah.config.Config;
+import com.sonalake.utah.config.ConfigLoader;
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write the records of an example input in each of the output formats, the records are parsed before the benchmark,
+ * and the output is thrown away, so this is only the cost of formatting them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class WriterBenchmark {
+
+  @Param({"cisco_bgp_summary", "juniper_bgp_summary", "unix_ifcfg"})
+  public String example;
+
+  /**
+   * The number of times the records are written
+   */
+  @Param({"1", "10000"})
+  public int copies;
+
+  /**
+   * The output format, this is the name of the format, as the format isn't public
+   */
+  @Param({"CSV", "JSON", "NDJSON"})
+  public String format;
+
+  private CLIConfig.Format outputFormat;
+  private List<String> columns;
+  private List<Map<String, String>> records;
+
+  @Setup
+  public void setup() throws IOException {
+    Config config = new ConfigLoader().loadConfig(
+      getClass().getClassLoader().getResource("examples/" + example + "_template.xml")
+    );
+    outputFormat = CLIConfig.Format.valueOf(format);
+    columns = CommandLineInterface.getColumns(config);
+    List<Map<String, String>> exampleRecords = new ArrayList<>();
+    try (Reader in = new InputStreamReader(
+      getClass().getClassLoader().getResourceAsStream("examples/" + example + "_example.txt"), StandardCharsets.UTF_8
+    )) {
+      Parser parser = Parser.parse(config, in);
+      for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+        exampleRecords.add(record);
+      }
+    }
+    records = new ArrayList<>(exampleRecords.size() * copies);
+    for (int i = 0; i < copies; i++) {
+      records.addAll(exampleRecords);
+    }
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    RecordWriter writer = RecordWriter.of(outputFormat, columns, NullWriter.NULL_WRITER, null);
+    writer.begin();
+    for (Map<String, String> record : records) {
+      writer.write(null, record);
+    }
+    writer.end();
+  }
+
+  /**
+   * Write the records with a source column, as the batch mode does when it merges files into one output
+   */
+  @Benchmark
+  public void writeWithSource() throws IOException {
+    RecordWriter writer = RecordWriter.of(outputFormat, columns, NullWriter.NULL_WRITER, RecordWriter.SOURCE_COLUMN);
+    writer.begin();
+    for (Map<String, String> record : records) {
+      writer.write(example, record);
+    }
+    writer.end();
+  }
+}
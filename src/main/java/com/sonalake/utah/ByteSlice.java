@@ -0,0 +1,72 @@
+package com.sonalake.utah;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view over a region of a byte buffer, where each byte is a single char (i.e. ASCII or ISO-8859-1 text).
+ * This lets us read lines straight out of a mapped file without decoding them. As with {@link CharSlice} the view is
+ * re-pointed as the parser moves through the file, so it's only valid until the next line is read.
+ */
+final class ByteSlice implements CharSequence {
+
+  private ByteBuffer bytes;
+  private int start;
+  private int length;
+
+  /**
+   * Point this view at a new region
+   *
+   * @param bytes  the backing buffer
+   * @param start  the index of the first byte
+   * @param length the number of bytes
+   * @return this view
+   */
+  ByteSlice set(ByteBuffer bytes, int start, int length) {
+    this.bytes = bytes;
+    this.start = start;
+    this.length = length;
+    return this;
+  }
+
+  /**
+   * Copy the chars in the view into an array
+   *
+   * @param target the target array
+   * @param offset where to start writing in the target
+   */
+  void copyTo(char[] target, int offset) {
+    for (int i = 0; i < length; i++) {
+      target[offset + i] = (char) (bytes.get(start + i) & 0xff);
+    }
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException(String.format("index: %s, length: %s", index, length));
+    }
+    return (char) (bytes.get(start + index) & 0xff);
+  }
+
+  @Override
+  public CharSequence subSequence(int from, int to) {
+    if (from < 0 || to > length || from > to) {
+      throw new IndexOutOfBoundsException(String.format("from: %s, to: %s, length: %s", from, to, length));
+    }
+    char[] chars = new char[to - from];
+    for (int i = from; i < to; i++) {
+      chars[i - from] = (char) (bytes.get(start + i) & 0xff);
+    }
+    return new String(chars);
+  }
+
+  @Override
+  public String toString() {
+    return subSequence(0, length).toString();
+  }
+}
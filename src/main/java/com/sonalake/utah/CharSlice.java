@@ -0,0 +1,82 @@
+package com.sonalake.utah;
+
+/**
+ * A read-only view over a region of a char array. The view is re-pointed as the parser moves through its buffers, so
+ * it is only valid until the next call that fills the underlying array.
+ */
+final class CharSlice implements CharSequence {
+
+  /**
+   * The backing array, this is shared with the owner of the slice
+   */
+  private char[] chars;
+
+  /**
+   * The offset of the first char in the view
+   */
+  private int start;
+
+  /**
+   * The number of chars in the view
+   */
+  private int length;
+
+  CharSlice() {
+    this.chars = new char[0];
+  }
+
+  /**
+   * Point this view at a new region
+   *
+   * @param chars  the backing array
+   * @param start  the offset of the first char
+   * @param length the number of chars
+   * @return this view
+   */
+  CharSlice set(char[] chars, int start, int length) {
+    this.chars = chars;
+    this.start = start;
+    this.length = length;
+    return this;
+  }
+
+  /**
+   * @return the backing array
+   */
+  char[] array() {
+    return chars;
+  }
+
+  /**
+   * @return the offset of the first char in the backing array
+   */
+  int offset() {
+    return start;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException(String.format("index: %s, length: %s", index, length));
+    }
+    return chars[start + index];
+  }
+
+  @Override
+  public CharSequence subSequence(int from, int to) {
+    if (from < 0 || to > length || from > to) {
+      throw new IndexOutOfBoundsException(String.format("from: %s, to: %s, length: %s", from, to, length));
+    }
+    return new String(chars, start + from, to - from);
+  }
+
+  @Override
+  public String toString() {
+    return new String(chars, start, length);
+  }
+}
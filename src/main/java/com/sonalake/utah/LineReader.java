@@ -0,0 +1,114 @@
+package com.sonalake.utah;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads lines from a reader into a reusable char buffer. Unlike {@link java.io.BufferedReader#readLine()} this doesn't
+ * create a string per line, each line is returned as a view over the buffer, that is valid until the next call to
+ * {@link #readLine()}.
+ * <p>
+ * Lines are terminated in the same way as for {@link java.io.BufferedReader}, i.e. by any one of a line feed, a carriage
+ * return, or a carriage return followed immediately by a line feed.
+ */
+final class LineReader implements LineSource {
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final Reader in;
+  private final CharSlice line;
+
+  private char[] buffer;
+
+  /**
+   * The first char in the buffer that has not been returned in a line
+   */
+  private int position;
+
+  /**
+   * The end of the valid chars in the buffer
+   */
+  private int limit;
+
+  private boolean isEndOfInput;
+
+  /**
+   * If the last line ended in a carriage return then we need to skip a line feed if it's the next char
+   */
+  private boolean isSkippingLineFeed;
+
+  LineReader(Reader in) {
+    this(in, DEFAULT_BUFFER_SIZE);
+  }
+
+  LineReader(Reader in, int bufferSize) {
+    this.in = in;
+    this.buffer = new char[bufferSize];
+    this.line = new CharSlice();
+  }
+
+  @Override
+  public CharSequence readLine() throws IOException {
+    // the number of chars of the current line we have already checked for a terminator
+    int scanned = 0;
+    while (true) {
+      if (isSkippingLineFeed && position < limit) {
+        isSkippingLineFeed = false;
+        if (buffer[position] == '\n') {
+          position++;
+        }
+      }
+      // look for the end of the line in what we have buffered
+      for (int i = position + scanned; i < limit; i++) {
+        char c = buffer[i];
+        if (c == '\n' || c == '\r') {
+          line.set(buffer, position, i - position);
+          position = i + 1;
+          isSkippingLineFeed = c == '\r';
+          return line;
+        }
+      }
+      scanned = limit - position;
+      if (isEndOfInput || !fill()) {
+        // the last line mightn't have had a terminator
+        if (position < limit) {
+          line.set(buffer, position, limit - position);
+          position = limit;
+          return line;
+        }
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Read more chars into the buffer, keeping the part of the current line that has been read so far.
+   *
+   * @return false if the reader has no more chars
+   * @throws IOException if the reader fails
+   */
+  private boolean fill() throws IOException {
+    int pending = limit - position;
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, pending);
+    } else if (pending == buffer.length) {
+      // the line doesn't fit in the buffer
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    position = 0;
+    limit = pending;
+
+    int read;
+    do {
+      read = in.read(buffer, limit, buffer.length - limit);
+    } while (read == 0);
+    if (read < 0) {
+      isEndOfInput = true;
+      return false;
+    }
+    limit += read;
+    return true;
+  }
+
+}
@@ -0,0 +1,19 @@
+package com.sonalake.utah;
+
+import java.io.IOException;
+
+/**
+ * A source of lines for the parser.
+ */
+interface LineSource {
+
+  /**
+   * Read the next line. The line is a view over the source's buffer, so it's only valid until the next call to this
+   * method.
+   *
+   * @return the next line, without the line terminator, or null if there are no more lines
+   * @throws IOException if the source fails
+   */
+  CharSequence readLine() throws IOException;
+
+}
@@ -0,0 +1,223 @@
+package com.sonalake.utah;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads lines from a memory-mapped file. The line terminators are found directly in the mapped bytes, and lines that
+ * are pure ASCII are handed out as views over the mapping, so they're never copied onto the heap unless they're part
+ * of a record. Other lines are decoded into a reusable buffer.
+ * <p>
+ * The file is mapped a window at a time, so files of any size can be read. When a line runs past the end of a window
+ * the next window is mapped from the start of that line.
+ * <p>
+ * Only charsets where line feeds and carriage returns are always single bytes (e.g. UTF-8, US-ASCII, ISO-8859-1) are
+ * supported.
+ */
+final class MappedLineReader implements LineSource {
+
+  static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final Path path;
+  private final long end;
+  private final int windowSize;
+
+  /**
+   * Used to decode lines that aren't ASCII, this is null if every byte is a char
+   */
+  private final CharsetDecoder decoder;
+
+  private final ByteSlice byteLine;
+  private final CharSlice charLine;
+  private char[] decoded;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+
+  /**
+   * The offset, in the file, of the next unread byte
+   */
+  private long position;
+
+  /**
+   * If the last line ended in a carriage return then we need to skip a line feed if it's the next byte
+   */
+  private boolean isSkippingLineFeed;
+
+  /**
+   * Read all the lines in a file
+   *
+   * @param path    the file
+   * @param charset the encoding of the file
+   * @throws IOException if the file can't be read
+   */
+  MappedLineReader(Path path, Charset charset) throws IOException {
+    this(path, charset, 0, size(path), DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Read the lines in a region of a file
+   *
+   * @param path       the file
+   * @param charset    the encoding of the file
+   * @param start      the offset of the first byte to read, this should be the start of a line
+   * @param end        the offset after the last byte to read
+   * @param windowSize the size of each mapped window
+   */
+  MappedLineReader(Path path, Charset charset, long start, long end, int windowSize) {
+    if (!isSupported(charset)) {
+      throw new IllegalArgumentException(String.format("Can't map files with the %s charset", charset));
+    }
+    this.path = path;
+    this.end = end;
+    this.windowSize = windowSize;
+    this.position = start;
+    this.windowStart = start;
+    this.decoder = StandardCharsets.ISO_8859_1.equals(charset) ? null : charset.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.byteLine = new ByteSlice();
+    this.charLine = new CharSlice();
+    this.decoded = new char[0];
+  }
+
+  /**
+   * Check if a charset can be read from a mapped file
+   *
+   * @param charset the charset
+   * @return true if line terminators are always encoded as single bytes
+   */
+  static boolean isSupported(Charset charset) {
+    if (StandardCharsets.UTF_8.equals(charset)) {
+      return true;
+    }
+    return charset.canEncode()
+      && charset.newEncoder().maxBytesPerChar() == 1
+      && Arrays.equals(new byte[]{'\n', '\r'}, "\n\r".getBytes(charset));
+  }
+
+  private static long size(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return channel.size();
+    }
+  }
+
+  /**
+   * Get the offset of the next line in the file
+   *
+   * @return the offset of the first byte of the next line
+   * @throws IOException if the file can't be read
+   */
+  long position() throws IOException {
+    if (isSkippingLineFeed) {
+      isSkippingLineFeed = false;
+      if (position < end && byteAt(position) == '\n') {
+        position++;
+      }
+    }
+    return position;
+  }
+
+  @Override
+  public CharSequence readLine() throws IOException {
+    if (position() >= end) {
+      return null;
+    }
+    if (!isInWindow(position)) {
+      mapWindow(position, windowSize);
+    }
+
+    long scanned = position;
+    boolean isAscii = true;
+    while (true) {
+      int start = (int) (position - windowStart);
+      int limit = window.limit();
+      int highBits = 0;
+      for (int i = (int) (scanned - windowStart); i < limit; i++) {
+        byte b = window.get(i);
+        if (b == '\n' || b == '\r') {
+          CharSequence line = viewOf(start, i - start, isAscii && 0 == (highBits & 0x80));
+          position = windowStart + i + 1;
+          isSkippingLineFeed = b == '\r';
+          return line;
+        }
+        highBits |= b;
+      }
+      isAscii &= 0 == (highBits & 0x80);
+      scanned = windowStart + limit;
+      if (scanned >= end) {
+        // the last line mightn't have had a terminator
+        CharSequence line = viewOf(start, limit - start, isAscii);
+        position = end;
+        return line;
+      }
+      // the line runs past the end of the window, so map the next window from the start of this line
+      long lineLength = scanned - position;
+      if (lineLength >= Integer.MAX_VALUE / 2) {
+        throw new IOException(String.format("Line at offset %s in %s is too long", position, path));
+      }
+      mapWindow(position, (int) Math.max(windowSize, lineLength * 2));
+    }
+  }
+
+  /**
+   * Build the view of a line in the current window
+   *
+   * @param start   the start of the line in the window
+   * @param length  the length of the line in bytes
+   * @param isAscii true if every byte in the line is ASCII
+   * @return the line
+   */
+  private CharSequence viewOf(int start, int length, boolean isAscii) {
+    if (null == decoder || isAscii) {
+      return byteLine.set(window, start, length);
+    }
+    if (decoded.length < length) {
+      decoded = new char[Math.max(length, decoded.length * 2)];
+    }
+    ByteBuffer in = window.duplicate();
+    in.limit(start + length).position(start);
+    CharBuffer out = CharBuffer.wrap(decoded);
+    decoder.reset();
+    decoder.decode(in, out, true);
+    decoder.flush(out);
+    return charLine.set(decoded, 0, out.position());
+  }
+
+  private byte byteAt(long offset) throws IOException {
+    if (!isInWindow(offset)) {
+      mapWindow(offset, windowSize);
+    }
+    return window.get((int) (offset - windowStart));
+  }
+
+  private boolean isInWindow(long offset) {
+    return null != window && offset >= windowStart && offset < windowStart + window.limit();
+  }
+
+  /**
+   * Map a window of the file
+   *
+   * @param start the offset of the window
+   * @param size  the size of the window, this is trimmed to the end of the region being read
+   * @throws IOException if the file can't be mapped
+   */
+  private void mapWindow(long start, int size) throws IOException {
+    long length = Math.min(size, end - start);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+      windowStart = start;
+    }
+  }
+
+}
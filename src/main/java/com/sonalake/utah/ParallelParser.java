@@ -0,0 +1,248 @@
+package com.sonalake.utah;
+
+import com.sonalake.utah.config.Config;
+import com.sonalake.utah.config.Delimiter;
+import com.sonalake.utah.config.Record;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parse a single large file on several cores. The file is cut into chunks, where each cut is moved on to the end of
+ * the next line that ends a record, and the chunks are then parsed in parallel on a fork-join pool.
+ * <p>
+ * The records are returned in the order they appear in the file, and are the same as those returned by {@link
+ * Parser#next()}:
+ * <ul>
+ * <li>the header is parsed once, before the file is cut up, and its values are shared by every chunk</li>
+ * <li>a chunk only ever ends on a delimiter that ends a record, so a delimiter that's to be retained is carried over
+ * into the start of the next chunk</li>
+ * <li>the first <code>at-start</code> delimiter in a file doesn't end a record, so the file is never cut there</li>
+ * </ul>
+ */
+public class ParallelParser {
+
+  static final long DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private final Config config;
+  private ForkJoinPool pool;
+  private Charset charset;
+  private long chunkSize;
+
+  /**
+   * Build a parallel parser
+   *
+   * @param config the config
+   */
+  public ParallelParser(Config config) {
+    this.config = config;
+    this.pool = ForkJoinPool.commonPool();
+    this.charset = StandardCharsets.UTF_8;
+    this.chunkSize = DEFAULT_CHUNK_SIZE;
+  }
+
+  /**
+   * @param pool the pool the chunks are parsed on, this is the common pool by default
+   * @return this parser
+   */
+  public ParallelParser withPool(ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  /**
+   * @param charset the encoding of the files, this must be UTF-8 (the default) or a single-byte ASCII-compatible
+   *                charset
+   * @return this parser
+   */
+  public ParallelParser withCharset(Charset charset) {
+    this.charset = charset;
+    return this;
+  }
+
+  /**
+   * @param chunkSize the approximate size, in bytes, of each chunk
+   * @return this parser
+   */
+  public ParallelParser withChunkSize(long chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException(String.format("Chunk size must be positive, not %s", chunkSize));
+    }
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * Parse all the records in the file
+   *
+   * @param file the file
+   * @return the records, in the order they appear in the file
+   * @throws IOException if the file can't be read
+   */
+  public List<Map<String, String>> parse(Path file) throws IOException {
+    long size = Files.size(file);
+
+    // read the header once, and share it across all the chunks
+    MappedLineReader headerReader = new MappedLineReader(file, charset, 0, size, MappedLineReader.DEFAULT_WINDOW_SIZE);
+    Parser headerParser = new Parser(config, headerReader);
+    long bodyStart = headerReader.position();
+
+    List<Chunk> chunks = findChunks(file, bodyStart, size, headerParser.getRecordNumber());
+    return pool.invoke(new ChunkTask(config, file, charset, headerParser.getCommonRecord(), chunks));
+  }
+
+  /**
+   * Cut the body of the file into chunks
+   *
+   * @param file         the file
+   * @param bodyStart    the offset of the first line after the header
+   * @param end          the size of the file
+   * @param recordNumber the number of records read before the body, i.e. 1 if there was a header
+   * @return the chunks, in file order
+   * @throws IOException if the file can't be read
+   */
+  private List<Chunk> findChunks(Path file, long bodyStart, long end, int recordNumber) throws IOException {
+    List<Chunk> chunks = new ArrayList<>();
+
+    // the first at-start delimiter in the file doesn't end a record, so we can't cut there
+    long floor = bodyStart;
+    if (0 == recordNumber) {
+      Cut first = findCut(file, bodyStart, end);
+      if (null != first && first.delimiter.isDelimAtStartOfRecord()) {
+        floor = first.offset;
+      }
+    }
+
+    Chunk chunk = new Chunk(bodyStart, null, recordNumber);
+    while (true) {
+      Cut cut = findCut(file, Math.max(floor, chunk.start + chunkSize), end);
+      if (null == cut) {
+        chunk.end = end;
+        chunks.add(chunk);
+        return chunks;
+      }
+      chunk.end = cut.offset;
+      chunks.add(chunk);
+      // the delimiter ended a record, so there's been at least one record before the next chunk
+      chunk = new Chunk(cut.offset, cut.delimiter.isRetainDelim() ? cut.line : null, Math.max(1, recordNumber));
+    }
+  }
+
+  /**
+   * Find the first line, starting on or after the given offset, that ends a record.
+   *
+   * @param file the file
+   * @param from the offset to start searching from
+   * @param end  the size of the file
+   * @return the cut after the line, or null if there are none
+   * @throws IOException if the file can't be read
+   */
+  private Cut findCut(Path file, long from, long end) throws IOException {
+    if (from >= end) {
+      return null;
+    }
+    MappedLineReader reader = new MappedLineReader(file, charset, from, end, MappedLineReader.DEFAULT_WINDOW_SIZE);
+    if (from > 0) {
+      // we're probably in the middle of a line, so skip on to the start of the next one
+      reader.readLine();
+    }
+    for (CharSequence line = reader.readLine(); null != line; line = reader.readLine()) {
+      Delimiter delimiter = config.getApplicableDelim(line);
+      if (null != delimiter) {
+        String text = line.toString();
+        return new Cut(reader.position(), delimiter, text);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A line that ends a record
+   */
+  private static class Cut {
+    private final long offset;
+    private final Delimiter delimiter;
+    private final String line;
+
+    /**
+     * @param offset    the offset of the line after the delimiter
+     * @param delimiter the delimiter that matched the line
+     * @param line      the text of the line
+     */
+    Cut(long offset, Delimiter delimiter, String line) {
+      this.offset = offset;
+      this.delimiter = delimiter;
+      this.line = line;
+    }
+  }
+
+  /**
+   * A region of the file that starts at the beginning of a record
+   */
+  private static class Chunk {
+    private final long start;
+    private final String previousDelim;
+    private final int recordNumber;
+    private long end;
+
+    Chunk(long start, String previousDelim, int recordNumber) {
+      this.start = start;
+      this.previousDelim = previousDelim;
+      this.recordNumber = recordNumber;
+    }
+  }
+
+  /**
+   * Parse a list of chunks, splitting the list in two until there's a task per chunk
+   */
+  private static class ChunkTask extends RecursiveTask<List<Map<String, String>>> {
+    private static final long serialVersionUID = 1L;
+
+    private final Config config;
+    private final Path file;
+    private final Charset charset;
+    private final Record commonRecord;
+    private final List<Chunk> chunks;
+
+    ChunkTask(Config config, Path file, Charset charset, Record commonRecord, List<Chunk> chunks) {
+      this.config = config;
+      this.file = file;
+      this.charset = charset;
+      this.commonRecord = commonRecord;
+      this.chunks = chunks;
+    }
+
+    @Override
+    protected List<Map<String, String>> compute() {
+      if (chunks.size() > 1) {
+        int middle = chunks.size() / 2;
+        ChunkTask head = new ChunkTask(config, file, charset, commonRecord, chunks.subList(0, middle));
+        ChunkTask tail = new ChunkTask(config, file, charset, commonRecord, chunks.subList(middle, chunks.size()));
+        tail.fork();
+        List<Map<String, String>> records = head.compute();
+        records.addAll(tail.join());
+        return records;
+      }
+
+      List<Map<String, String>> records = new ArrayList<>();
+      for (Chunk chunk : chunks) {
+        MappedLineReader reader = new MappedLineReader(
+          file, charset, chunk.start, chunk.end, MappedLineReader.DEFAULT_WINDOW_SIZE
+        );
+        Parser parser = new Parser(config, reader, commonRecord, chunk.previousDelim, chunk.recordNumber);
+        for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+          records.add(record);
+        }
+      }
+      return records;
+    }
+  }
+}
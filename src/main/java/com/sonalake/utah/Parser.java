@@ -2,19 +2,36 @@ package com.sonalake.utah;
 
 import com.sonalake.utah.config.Config;
 import com.sonalake.utah.config.Delimiter;
+import com.sonalake.utah.config.MatchBudget;
+import com.sonalake.utah.config.Record;
+import com.sonalake.utah.config.RecordEmitter;
+import com.sonalake.utah.config.RecordVisitor;
+import com.sonalake.utah.config.RecordState;
 import org.apache.commons.lang3.StringUtils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Parse a semi-structured text file, that can defined by the config.
  */
 public class Parser {
 
+  /**
+   * The name of the log that records which go over their budget are logged to
+   */
+  public static final String SLOW_RECORD_LOG = "com.sonalake.utah.slow-records";
+
+  private static final Logger SLOW_RECORDS = Logger.getLogger(SLOW_RECORD_LOG);
+
   /**
    * The config.
    */
@@ -23,12 +40,45 @@ public class Parser {
   /**
    * The source of the data
    */
-  private final BufferedReader reader;
-  private final TreeMap<String, String> commonRecord;
-  private String previousDelim;
+  private final LineSource reader;
+  private final Record commonRecord;
+
+  /**
+   * The records are assembled in here, the buffer is reused for each record
+   */
+  private final RecordBuffer buffer;
+
+  /**
+   * A copy of the last delimiter, if it's to be retained in the next record
+   */
+  private final RecordBuffer previousDelim;
+
+  /**
+   * True once a line has been added to the current record
+   */
+  private boolean hasRecordLines;
 
   private int recordNumber;
 
+  /**
+   * The number of lines read so far, and the line the current record starts on
+   */
+  private long lineNumber;
+  private long recordLine;
+
+  /**
+   * The limits on the work done for each record, see {@link MatchBudget}
+   */
+  private long stepBudget = Long.MAX_VALUE;
+  private long timeoutNanos = Long.MAX_VALUE;
+
+  private volatile boolean isCancelled;
+
+  /**
+   * The state of the line scoped values, this is reused for each record, or null if it hasn't been needed yet
+   */
+  private RecordState recordState;
+
   /**
    * Build the parser.
    *
@@ -37,26 +87,146 @@ public class Parser {
    * @return a parser
    */
   public static Parser parse(Config config, Reader in) {
-    return new Parser(config, in);
+    return new Parser(config, new LineReader(in));
+  }
+
+  /**
+   * Build a parser for a UTF-8 file. The file is memory-mapped, rather than read through a reader, so this is the
+   * cheapest way to parse large files.
+   *
+   * @param config The delimiter is used to determine the end of a record.
+   * @param file   the file to parse
+   * @return a parser
+   * @throws IOException if the file can't be read
+   */
+  public static Parser parse(Config config, Path file) throws IOException {
+    return parse(config, file, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Build a parser for a file. The file is memory-mapped, rather than read through a reader, so this is the cheapest
+   * way to parse large files.
+   *
+   * @param config  The delimiter is used to determine the end of a record.
+   * @param file    the file to parse
+   * @param charset the encoding of the file, this must be UTF-8 or a single-byte ASCII-compatible charset
+   * @return a parser
+   * @throws IOException if the file can't be read
+   */
+  public static Parser parse(Config config, Path file, Charset charset) throws IOException {
+    return new Parser(config, new MappedLineReader(file, charset));
   }
 
   /**
    * Build the parser
    *
    * @param config the config
-   * @param in     the input stream, the client is responsible for closing this
+   * @param reader the source of the lines
    */
-  private Parser(Config config, Reader in) {
+  Parser(Config config, LineSource reader) {
     this.config = config;
-    this.reader = new BufferedReader(in);
-    this.previousDelim = "";
+    this.reader = reader;
+    this.buffer = new RecordBuffer();
+    this.previousDelim = new RecordBuffer();
     recordNumber = 0;
 
-    commonRecord = new TreeMap<String, String>();
     if (config.hasHeaderDelim()) {
-      String header = getNextRecord(true);
-      commonRecord.putAll(config.buildHeader(header));
+      CharSequence header = getNextRecord(true, null);
+      commonRecord = config.buildHeader(header);
+    } else {
+      commonRecord = null;
+    }
+  }
+
+  /**
+   * Build a parser that picks up part way through a file, i.e. after the header and, optionally, some records have
+   * already been read by another parser.
+   *
+   * @param config        the config
+   * @param reader        the source of the lines, this starts at the beginning of a record
+   * @param commonRecord  the values from the header
+   * @param previousDelim the delimiter that ended the previous record, if it is to be retained, or null
+   * @param recordNumber  the number of records (including the header) read before this one
+   */
+  Parser(Config config, LineSource reader, Record commonRecord, CharSequence previousDelim,
+         int recordNumber) {
+    this.config = config;
+    this.reader = reader;
+    this.buffer = new RecordBuffer();
+    this.previousDelim = new RecordBuffer();
+    this.recordNumber = recordNumber;
+    this.commonRecord = commonRecord;
+    if (null != previousDelim) {
+      this.previousDelim.set(previousDelim);
+    }
+  }
+
+  /**
+   * Limit the work that can be done pulling the values out of each record. If a record goes over the limit, then the
+   * values that haven't been found yet take their defaults, and the record is logged to the {@link #SLOW_RECORD_LOG}.
+   *
+   * @param steps the number of chars the regexes can read in each record
+   * @return this parser
+   */
+  public Parser withStepBudget(long steps) {
+    if (steps < 1) {
+      throw new IllegalArgumentException(String.format("Step budget must be positive, not %s", steps));
     }
+    this.stepBudget = steps;
+    return this;
+  }
+
+  /**
+   * Limit the time that can be spent pulling the values out of each record. If a record goes over the limit, then
+   * the values that haven't been found yet take their defaults, and the record is logged to the
+   * {@link #SLOW_RECORD_LOG}.
+   *
+   * @param timeout the time allowed for each record
+   * @param unit    the unit of the timeout
+   * @return this parser
+   */
+  public Parser withTimeout(long timeout, TimeUnit unit) {
+    if (timeout < 1) {
+      throw new IllegalArgumentException(String.format("Timeout must be positive, not %s", timeout));
+    }
+    this.timeoutNanos = unit.toNanos(timeout);
+    return this;
+  }
+
+  /**
+   * Stop parsing, this can be called from any thread. No more records are returned, and if there's a step budget or a
+   * timeout, the record that's being parsed now is abandoned.
+   */
+  public void cancel() {
+    isCancelled = true;
+  }
+
+  /**
+   * @return true if the parser has been cancelled
+   */
+  public boolean isCancelled() {
+    return isCancelled;
+  }
+
+  /**
+   * @return the config
+   */
+  public Config getConfig() {
+    return config;
+  }
+
+  /**
+   * @return the values from the header, or null if there's no header
+   */
+  Record getCommonRecord() {
+    return commonRecord;
+  }
+
+  /**
+   * @return the number of records (including the header) read so far
+   */
+  int getRecordNumber() {
+    return recordNumber;
   }
 
   /**
@@ -65,46 +235,178 @@ public class Parser {
    * @return The next record, or null if there are none
    */
   public Map<String, String> next() {
-    String rawRecord = getNextRecord(false);
+    if (isCancelled) {
+      return null;
+    }
+    // the line scoped values are searched for as the lines are read
+    MatchBudget budget = newBudget();
+    RecordState state = config.hasLineScopedValues() ? startRecord(budget) : null;
+    CharSequence rawRecord = getNextRecord(false, state);
     if (null == rawRecord) {
       return null;
+    }
+    Record record = null == state
+      ? buildRecord(rawRecord, budget, recordLine)
+      : finishRecord(config.buildRecord(state, rawRecord), budget, recordLine);
+    return isCancelled ? null : record;
+  }
+
+  private RecordState startRecord(MatchBudget budget) {
+    if (null == recordState) {
+      recordState = config.startRecord(budget);
     } else {
-      Map<String, String> record = config.buildRecord(rawRecord);
-      record.putAll(commonRecord);
-      return record;
+      recordState.reset(budget);
+    }
+    return recordState;
+  }
+
+  /**
+   * Pass each of the remaining records to a visitor, rather than building a map for each one. The values are passed
+   * as views over the parser's buffers, so they're only copied if the visitor keeps them.
+   * <p>
+   * This and {@link #next()} both read from the same source, so they shouldn't be mixed.
+   *
+   * @param visitor the visitor
+   */
+  public void forEach(RecordVisitor visitor) {
+    RecordEmitter emitter = config.newEmitter();
+    for (CharSequence rawRecord = nextRawRecord(); null != rawRecord; rawRecord = nextRawRecord()) {
+      MatchBudget budget = newBudget();
+      emitter.emit(rawRecord, budget, commonRecord, visitor);
+      logIfOverBudget(budget, recordLine);
+    }
+  }
+
+  /**
+   * Get the records as a stream. The stream can be run in parallel, in which case the file is still read on one
+   * thread, but the values are pulled out of batches of records on the other threads.
+   * <p>
+   * The stream and {@link #next()} both read from the same source, so they shouldn't be mixed.
+   *
+   * @return the stream of records, in the order they appear in the file
+   */
+  public Stream<Map<String, String>> stream() {
+    return StreamSupport.stream(new RecordSpliterator(this), false);
+  }
+
+  /**
+   * Get the next raw record, i.e. the text that values are pulled out of
+   *
+   * @return the record, this is only valid until the next record is read, or null if there are none
+   */
+  CharSequence nextRawRecord() {
+    return isCancelled ? null : getNextRecord(false, null);
+  }
+
+  /**
+   * @return the line, counting from 1, that the last raw record started on
+   */
+  long getRecordLine() {
+    return recordLine;
+  }
+
+  /**
+   * Build a record from the raw record text, including the values from the header. This doesn't change the state of
+   * the parser, so it's safe to call from any thread.
+   *
+   * @param rawRecord the record text
+   * @param line      the line the record started on, this is only used to log the record if it's slow
+   * @return the record
+   */
+  Record buildRecord(CharSequence rawRecord, long line) {
+    return buildRecord(rawRecord, newBudget(), line);
+  }
+
+  /**
+   * @return a budget for the next record, or null if there are no limits
+   */
+  private MatchBudget newBudget() {
+    if (stepBudget == Long.MAX_VALUE && timeoutNanos == Long.MAX_VALUE) {
+      return null;
+    }
+    return new MatchBudget(stepBudget, timeoutNanos, this::isCancelled);
+  }
+
+  /**
+   * Build a record from the raw record text
+   *
+   * @param rawRecord the record text
+   * @param budget    the budget for the record, or null if there are no limits
+   * @param line      the line the record started on
+   * @return the record
+   */
+  private Record buildRecord(CharSequence rawRecord, MatchBudget budget, long line) {
+    Record values = null == budget
+      ? config.buildRecord(rawRecord)
+      : config.buildRecord(rawRecord, budget);
+    return finishRecord(values, budget, line);
+  }
+
+  /**
+   * Log the record if it went over its budget, and add the header layer
+   *
+   * @param values the values from the record
+   * @param budget the budget for the record, or null if there are no limits
+   * @param line   the line the record started on
+   * @return the record
+   */
+  private Record finishRecord(Record values, MatchBudget budget, long line) {
+    logIfOverBudget(budget, line);
+    // the header values are shared by every record, rather than copied into each one
+    return values.withHeader(commonRecord);
+  }
+
+  /**
+   * Log the record if it went over its budget
+   *
+   * @param budget the budget for the record, or null if there are no limits
+   * @param line   the line the record started on
+   */
+  private void logIfOverBudget(MatchBudget budget, long line) {
+    if (null != budget && budget.isExceeded() && !isCancelled) {
+      SLOW_RECORDS.warning(String.format(
+        "The record at line %s went over its budget after %s steps and %s ms, so some values took their defaults",
+        line, budget.getSteps(), TimeUnit.NANOSECONDS.toMillis(budget.getElapsedNanos())
+      ));
     }
   }
 
   /**
-   * Get the next raw record
+   * Get the next raw record. The record is a view over the parser's buffer, so it's only valid until the next record
+   * is read.
    *
    * @param isSelectingHeader True, if we're parsing the header, or false if we're parsing records
+   * @param state             if not null, then each line of the record is added to this as it's read
    * @return The next record, or null if there are none.
    */
-  private String getNextRecord(boolean isSelectingHeader) {
+  private CharSequence getNextRecord(boolean isSelectingHeader, RecordState state) {
     //  loop through the file until we get to the record break
     try {
       boolean isReaderFinished = false;
       boolean isRecordLoaded = false;
-      StringBuilder buffer = new StringBuilder();
+      buffer.clear();
+      hasRecordLines = false;
+      // a retained delimiter is the first line of the record
+      recordLine = StringUtils.isNotBlank(previousDelim) ? lineNumber : lineNumber + 1;
 
 
       // we may need to skip the first delim in some cases
       boolean wasDelimMatched = false;
       while (!isRecordLoaded) {
-        String currentLine = reader.readLine();
+        CharSequence currentLine = reader.readLine();
         if (null == currentLine) {
           isReaderFinished = true;
           isRecordLoaded = true;
         } else {
+          lineNumber++;
           if (StringUtils.isNotBlank(previousDelim)) {
-            buffer.append(previousDelim + "\n");
-            previousDelim = "";
+            appendLine(previousDelim, state);
+            previousDelim.clear();
           }
+          Delimiter applicableDelim = isSelectingHeader ? null : config.getApplicableDelim(currentLine);
           if (isSelectingHeader && config.matchesHeaderDelim(currentLine)) {
             isRecordLoaded = true;
-          } else if (!isSelectingHeader && config.matchesRecordDelim(currentLine)) {
-            Delimiter applicableDelim = config.getApplicableDelim(currentLine);
+          } else if (null != applicableDelim) {
             // if the delimiter says we're at the start of the record,
             // and this is the first record, we need to treat it differently
             boolean isFirstDelimOfInterest = 0 == recordNumber && !wasDelimMatched;
@@ -113,25 +415,42 @@ public class Parser {
               wasDelimMatched = true;
             } else {
               if (applicableDelim.isRetainDelim()) {
-                previousDelim = currentLine;
+                previousDelim.set(currentLine);
               }
               isRecordLoaded = true;
             }
           }
         }
         if (StringUtils.isNotBlank(currentLine)) {
-          buffer.append(currentLine + "\n");
+          appendLine(currentLine, state);
         }
       }
-      if (isReaderFinished && buffer.length() == 0) {
+      if (isReaderFinished && !hasRecordLines) {
         return null;
       } else {
         recordNumber++;
-        return buffer.toString();
+        return buffer;
       }
     } catch (IOException e) {
       throw new RuntimeException("Problem reading source", e);
     }
   }
 
+  /**
+   * Add a line to the current record
+   *
+   * @param line  the line
+   * @param state if not null, the line is searched for the line scoped values, and only added to the buffer if the
+   *              record text is needed
+   */
+  private void appendLine(CharSequence line, RecordState state) {
+    hasRecordLines = true;
+    if (null != state) {
+      state.addLine(line);
+    }
+    if (null == state || state.isTextNeeded()) {
+      buffer.appendLine(line);
+    }
+  }
+
 }
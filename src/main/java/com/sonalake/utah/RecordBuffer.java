@@ -0,0 +1,98 @@
+package com.sonalake.utah;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, growable buffer that the parser assembles each record into. The buffer is itself the {@link
+ * CharSequence} handed to the config, so the record text is never copied into a {@link String}; only the values pulled
+ * out of it are.
+ */
+final class RecordBuffer implements CharSequence {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private char[] chars;
+  private int length;
+
+  RecordBuffer() {
+    this.chars = new char[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Empty the buffer, keeping the storage for the next record
+   */
+  void clear() {
+    length = 0;
+  }
+
+  /**
+   * Append a line to the buffer, followed by a newline
+   *
+   * @param line the line
+   */
+  void appendLine(CharSequence line) {
+    append(line);
+    ensureCapacity(length + 1);
+    chars[length++] = '\n';
+  }
+
+  /**
+   * Replace the content of the buffer with a copy of the text
+   *
+   * @param text the text
+   */
+  void set(CharSequence text) {
+    clear();
+    append(text);
+  }
+
+  private void append(CharSequence text) {
+    int textLength = text.length();
+    ensureCapacity(length + textLength);
+    if (text instanceof CharSlice) {
+      CharSlice slice = (CharSlice) text;
+      System.arraycopy(slice.array(), slice.offset(), chars, length, textLength);
+    } else if (text instanceof ByteSlice) {
+      ((ByteSlice) text).copyTo(chars, length);
+    } else if (text instanceof RecordBuffer) {
+      System.arraycopy(((RecordBuffer) text).chars, 0, chars, length, textLength);
+    } else {
+      for (int i = 0; i < textLength; i++) {
+        chars[length + i] = text.charAt(i);
+      }
+    }
+    length += textLength;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+    }
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException(String.format("index: %s, length: %s", index, length));
+    }
+    return chars[index];
+  }
+
+  @Override
+  public CharSequence subSequence(int from, int to) {
+    if (from < 0 || to > length || from > to) {
+      throw new IndexOutOfBoundsException(String.format("from: %s, to: %s, length: %s", from, to, length));
+    }
+    return new String(chars, from, to - from);
+  }
+
+  @Override
+  public String toString() {
+    return new String(chars, 0, length);
+  }
+}
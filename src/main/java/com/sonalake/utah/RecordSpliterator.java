@@ -0,0 +1,126 @@
+package com.sonalake.utah;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the records from a parser.
+ * <p>
+ * Reading the file is inherently sequential, but pulling the values out of each record isn't, so when this is split
+ * it reads a batch of raw records and hands those off. The batch can then be split further, and the values pulled
+ * out on other threads. As with {@link java.util.Spliterators.AbstractSpliterator} the batches get bigger each time
+ * this is split.
+ */
+final class RecordSpliterator implements Spliterator<Map<String, String>> {
+
+  static final int BATCH_UNIT = 1 << 10;
+  static final int MAX_BATCH = 1 << 25;
+
+  private final Parser parser;
+  private int batchSize;
+
+  RecordSpliterator(Parser parser) {
+    this.parser = parser;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Map<String, String>> action) {
+    Map<String, String> record = parser.next();
+    if (null == record) {
+      return false;
+    }
+    action.accept(record);
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super Map<String, String>> action) {
+    for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+      action.accept(record);
+    }
+  }
+
+  @Override
+  public Spliterator<Map<String, String>> trySplit() {
+    int size = Math.min(batchSize + BATCH_UNIT, MAX_BATCH);
+    // the raw records are views over the parser's buffer, so we need to take a copy of each one
+    String[] batch = new String[size];
+    long[] lines = new long[size];
+    int count = 0;
+    CharSequence rawRecord;
+    while (count < size && null != (rawRecord = parser.nextRawRecord())) {
+      lines[count] = parser.getRecordLine();
+      batch[count++] = rawRecord.toString();
+    }
+    if (0 == count) {
+      return null;
+    }
+    batchSize = count;
+    return new BatchSpliterator(parser, batch, lines, 0, count);
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+
+  /**
+   * A batch of raw records, the values are pulled out of each one as it is consumed.
+   */
+  private static final class BatchSpliterator implements Spliterator<Map<String, String>> {
+    private final Parser parser;
+    private final String[] batch;
+    private final long[] lines;
+    private int index;
+    private final int fence;
+
+    BatchSpliterator(Parser parser, String[] batch, long[] lines, int index, int fence) {
+      this.parser = parser;
+      this.batch = batch;
+      this.lines = lines;
+      this.index = index;
+      this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map<String, String>> action) {
+      if (index >= fence || parser.isCancelled()) {
+        return false;
+      }
+      Map<String, String> record = parser.buildRecord(batch[index], lines[index]);
+      index++;
+      if (parser.isCancelled()) {
+        return false;
+      }
+      action.accept(record);
+      return true;
+    }
+
+    @Override
+    public Spliterator<Map<String, String>> trySplit() {
+      int middle = (index + fence) >>> 1;
+      if (middle <= index) {
+        return null;
+      }
+      Spliterator<Map<String, String>> prefix = new BatchSpliterator(parser, batch, lines, index, middle);
+      index = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | SIZED | SUBSIZED | IMMUTABLE;
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.sonalake.utah.cli;
+
+import com.sonalake.utah.Parser;
+import com.sonalake.utah.config.Config;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parse many files with one template, several files at a time.
+ * <p>
+ * The records either all go to one output, with a column for the file each one came from, or each file gets an output
+ * file of its own. In one output the records from different files are interleaved, as they're parsed.
+ */
+class BatchProcessor {
+
+    private final Config config;
+    private final CLIConfig.Format format;
+    private final int threads;
+
+    /**
+     * @param config  the compiled template, this is shared by all the files
+     * @param format  the output format
+     * @param threads the number of files that are parsed at once
+     */
+    BatchProcessor(Config config, CLIConfig.Format format, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("Threads must be positive, not %s", threads));
+        }
+        this.config = config;
+        this.format = format;
+        this.threads = threads;
+    }
+
+    /**
+     * Parse the files, and write all their records to one output
+     *
+     * @param files the files
+     * @param out   the output, this is flushed, but not closed
+     * @throws IOException if a file can't be read, or the output can't be written
+     */
+    void process(List<Path> files, Writer out) throws IOException {
+        RecordWriter writer = RecordWriter.of(
+            format, CommandLineInterface.getColumns(config), out, RecordWriter.SOURCE_COLUMN
+        );
+        writer.begin();
+        run(files, file -> {
+            String source = file.toString();
+            Parser parser = Parser.parse(config, file);
+            for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+                synchronized (writer) {
+                    writer.write(source, record);
+                }
+            }
+        });
+        writer.end();
+    }
+
+    /**
+     * Parse the files, and write the records from each one to a file of the same name, with the format's extension,
+     * in the output directory
+     *
+     * @param files           the files, these must all have different names
+     * @param outputDirectory the output directory
+     * @throws IOException if a file can't be read, or an output can't be written
+     */
+    void process(List<Path> files, Path outputDirectory) throws IOException {
+        Map<Path, Path> names = new HashMap<>();
+        for (Path file : files) {
+            Path previous = names.put(file.getFileName(), file);
+            if (null != previous) {
+                throw new IllegalArgumentException(String.format(
+                    "%s and %s would be written to the same output file", previous, file
+                ));
+            }
+        }
+        Files.createDirectories(outputDirectory);
+        List<String> columns = CommandLineInterface.getColumns(config);
+        run(files, file -> {
+            Parser parser = Parser.parse(config, file);
+            try (Writer out = Files.newBufferedWriter(outputDirectory.resolve(file.getFileName() + "." + extension()),
+                StandardCharsets.UTF_8)) {
+                RecordWriter writer = RecordWriter.of(format, columns, out, null);
+                writer.begin();
+                for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+                    writer.write(null, record);
+                }
+                writer.end();
+            }
+        });
+    }
+
+    private String extension() {
+        return format.name().toLowerCase();
+    }
+
+    /**
+     * Run a task for each file on the pool, and wait for them all to finish
+     */
+    private void run(List<Path> files, FileTask task) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, files.size())));
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (Path file : files) {
+                results.add(pool.submit(() -> {
+                    task.run(file);
+                    return null;
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Find the files for the inputs
+     *
+     * @param inputs files, directories (all the files under them are included) or globs, e.g. <code>logs/*.txt</code>
+     * @return the files, sorted
+     * @throws IOException if a directory can't be read
+     */
+    static List<Path> findFiles(List<String> inputs) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (String input : inputs) {
+            Path path = Paths.get(isGlob(input) ? globBase(input) : input);
+            PathMatcher matcher = isGlob(input) ? FileSystems.getDefault().getPathMatcher("glob:" + input) : null;
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files.addAll(walk
+                        .filter(Files::isRegularFile)
+                        .filter(file -> null == matcher || matcher.matches(file))
+                        .collect(Collectors.toList()));
+                }
+            } else if (null == matcher) {
+                // let the parser fail on a file that doesn't exist
+                files.add(path);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static boolean isGlob(String input) {
+        return input.indexOf('*') >= 0 || input.indexOf('?') >= 0 || input.indexOf('[') >= 0
+            || input.indexOf('{') >= 0;
+    }
+
+    /**
+     * @param glob a glob
+     * @return the directory before the first part of the glob with a wildcard in it
+     */
+    private static String globBase(String glob) {
+        int wildcard = glob.length();
+        for (char c : new char[]{'*', '?', '[', '{'}) {
+            int index = glob.indexOf(c);
+            if (index >= 0) {
+                wildcard = Math.min(wildcard, index);
+            }
+        }
+        int separator = glob.lastIndexOf('/', wildcard);
+        return separator < 0 ? "" : glob.substring(0, separator + 1);
+    }
+
+    /**
+     * A task that's run for each file
+     */
+    private interface FileTask {
+        void run(Path file) throws IOException;
+    }
+}
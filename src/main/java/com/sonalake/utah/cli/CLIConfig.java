@@ -3,6 +3,11 @@ package com.sonalake.utah.cli;
 import com.sonalake.utah.config.Config;
 import com.sonalake.utah.config.ConfigLoader;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
 
 public class CLIConfig {
     public CLIConfig(Format format, String pathToConfig) {
@@ -10,10 +15,24 @@ public class CLIConfig {
         this.pathToConfig = pathToConfig;
     }
 
+    /**
+     * The extension added to the config file's name for the precompiled config
+     */
+    static final String COMPILED_EXTENSION = ".bin";
+
+    /**
+     * Load the config, from its precompiled form if that's up to date
+     *
+     * @return the config
+     * @throws FileNotFoundException if the config file doesn't exist
+     */
     public Config loadConfig() throws FileNotFoundException {
         try {
-            Reader reader = new InputStreamReader(new FileInputStream(this.pathToConfig));
-            return new ConfigLoader().loadConfig(reader);
+            Path source = Paths.get(this.pathToConfig);
+            if (!Files.isRegularFile(source)) {
+                throw new FileNotFoundException(this.pathToConfig);
+            }
+            return new ConfigLoader().loadConfig(source, getCompiledPath());
         } catch(FileNotFoundException e) {
             throw new FileNotFoundException("File not found");
         } catch (IOException e) {
@@ -21,17 +40,69 @@ public class CLIConfig {
         }
     }
 
-    enum Format {CSV, JSON};
+    enum Format {CSV, JSON, NDJSON};
 
     private final Format format;
     private final String pathToConfig;
+    private List<String> inputs = Collections.emptyList();
+    private String outputDirectory;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean isPrecompile;
 
     Format getFormat() { return format; }
 
+    /**
+     * @param inputs the files, directories or globs to parse, rather than stdin
+     * @return this config
+     */
+    CLIConfig withInputs(List<String> inputs) {
+        this.inputs = inputs;
+        return this;
+    }
+
+    List<String> getInputs() { return inputs; }
+
+    /**
+     * @param outputDirectory the directory for an output file per input file, or null to write to stdout
+     * @return this config
+     */
+    CLIConfig withOutputDirectory(String outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        return this;
+    }
+
+    String getOutputDirectory() { return outputDirectory; }
+
+    /**
+     * @param threads the number of input files parsed at once
+     * @return this config
+     */
+    CLIConfig withThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    int getThreads() { return threads; }
+
     String getPathToConfig() {
         return pathToConfig;
     }
 
+    Path getCompiledPath() {
+        return Paths.get(pathToConfig + COMPILED_EXTENSION);
+    }
+
+    /**
+     * @param isPrecompile true if the config is to be precompiled, rather than used to parse anything
+     * @return this config
+     */
+    CLIConfig withPrecompile(boolean isPrecompile) {
+        this.isPrecompile = isPrecompile;
+        return this;
+    }
+
+    boolean isPrecompile() { return isPrecompile; }
+
     public String toString() {
         return String.format("Format: %s; config: %s", format, pathToConfig);
     }
@@ -3,13 +3,16 @@ package com.sonalake.utah.cli;
 import com.google.gson.GsonBuilder;
 import com.sonalake.utah.Parser;
 import com.sonalake.utah.config.Config;
+import com.sonalake.utah.config.ConfigLoader;
+import com.sonalake.utah.config.RecordSchema;
 
 import org.apache.commons.cli.*;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 
@@ -17,6 +20,9 @@ public class CommandLineInterface {
 
     private static final String FORMAT_PARAM = "o";
     private static final String CONFIG_PARAM = "f";
+    private static final String THREADS_PARAM = "t";
+    private static final String OUTPUT_DIRECTORY_PARAM = "d";
+    private static final String PRECOMPILE_PARAM = "c";
 
     public static void main(String[] args) {
         CommandLineInterface iface = new CommandLineInterface();
@@ -28,6 +34,14 @@ public class CommandLineInterface {
     void processArgs(String[] args, Reader source, PrintStream target) {
         try {
             CLIConfig cliConfig = parse(args);
+            if (cliConfig.isPrecompile()) {
+                new ConfigLoader().compileConfig(Paths.get(cliConfig.getPathToConfig()), cliConfig.getCompiledPath());
+                return;
+            }
+            if (!cliConfig.getInputs().isEmpty()) {
+                processFiles(cliConfig, target);
+                return;
+            }
             try (BufferedReader reader = new BufferedReader(source)) {
                 Parser parser = parseInput(cliConfig, reader);
                 String format = cliConfig.getFormat().toString();
@@ -35,8 +49,11 @@ public class CommandLineInterface {
                     case "JSON":
                         printToJSON(parser, target);
                         break;
+                    case "NDJSON":
+                        printToNDJSON(parser, target);
+                        break;
                     case "CSV":
-                        printToCSV(parser, target);
+                        printToCSV(getColumns(parser.getConfig()), parser, target);
                         break;
                 }
             }
@@ -45,64 +62,96 @@ public class CommandLineInterface {
             PrintWriter pw = new PrintWriter(target);
             formatter.printHelp(pw, formatter.getWidth(), "utah", "",
                     buildOptions(), formatter.getLeftPadding(), formatter.getDescPadding(),
-                    "", true);
+                    "Reads stdin, unless input files, directories or globs are given after the options", true);
             pw.flush();
         }
     }
 
     /**
-     * Print the content of the parsed records as json to the target
+     * Print the content of the parsed records as a json array to the target. Each record is written as soon as it's
+     * parsed, so the output is the same as {@link #mapListToJSON(List)}, but the records are never all held at once.
      *
      * @param parser
+     * @param target
+     * @throws IOException
      */
-    void printToJSON(Parser parser, PrintStream target) {
-        Map<String, String> curr = parser.next();
-
-        List<Map<String, String>> mapList = new ArrayList<Map<String, String>>();
-
-        while (curr != null) {
-            mapList.add(curr);
-            curr = parser.next();
-        }
-        target.print(mapListToJSON(mapList));
+    void printToJSON(Parser parser, PrintStream target) throws IOException {
+        print(RecordWriter.of(CLIConfig.Format.JSON, null, newWriter(target), null), parser);
     }
 
     /**
-     * Creates a list of headers, prints the headers, then prints the records for each header.
-     * If a record doesn't exist for a header, a blank space is put in its place
+     * Print the content of the parsed records as newline delimited json, i.e. one json object per line
      *
      * @param parser
      * @param target
      * @throws IOException
      */
-    void printToCSV(Parser parser, PrintStream target) throws IOException {
-        Map<String, String> curr = parser.next();
+    void printToNDJSON(Parser parser, PrintStream target) throws IOException {
+        print(RecordWriter.of(CLIConfig.Format.NDJSON, null, newWriter(target), null), parser);
+    }
 
-        List<Map<String, String>> mapList = new ArrayList<Map<String, String>>();
+    /**
+     * Prints the headers, then prints the records, as they're parsed, with a value for each header.
+     * If a record doesn't have a value for a header, a blank space is put in its place
+     *
+     * @param columns the headers
+     * @param parser
+     * @param target
+     * @throws IOException
+     */
+    void printToCSV(List<String> columns, Parser parser, PrintStream target) throws IOException {
+        print(RecordWriter.of(CLIConfig.Format.CSV, columns, newWriter(target), null), parser);
+    }
 
-        Set<String> CSV_HEADERS = new TreeSet<>();
-        // Get headers and create list
-        while (curr != null) {
-            mapList.add(curr);
-            for (String str : curr.keySet()) {
-                CSV_HEADERS.add(str);
-            }
-            curr = parser.next();
+    private void print(RecordWriter writer, Parser parser) throws IOException {
+        writer.begin();
+        for (Map<String, String> curr = parser.next(); curr != null; curr = parser.next()) {
+            writer.write(null, curr);
         }
+        writer.end();
+    }
 
-        CSVFormat csvFormat = CSVFormat.DEFAULT;
-        CSVPrinter printer = new CSVPrinter(target, csvFormat);
-        printer.printRecord(CSV_HEADERS);
+    /**
+     * Parse the input files with one template, several at a time. The records either all go to the target, with the
+     * file each one came from, or to a file per input in the output directory
+     *
+     * @param cliConfig the config
+     * @param target    the target
+     * @throws IOException if a file can't be read, or an output can't be written
+     */
+    void processFiles(CLIConfig cliConfig, PrintStream target) throws IOException {
+        BatchProcessor processor = new BatchProcessor(
+            cliConfig.loadConfig(), cliConfig.getFormat(), cliConfig.getThreads()
+        );
+        List<Path> files = BatchProcessor.findFiles(cliConfig.getInputs());
+        if (null == cliConfig.getOutputDirectory()) {
+            processor.process(files, newWriter(target));
+        } else {
+            processor.process(files, Paths.get(cliConfig.getOutputDirectory()));
+        }
+    }
 
-        // Cycle through array of maps printing value for each header
-        for (Map<String, String> map : mapList) {
-            List<String> values = new ArrayList<String>();
-            for (String header : CSV_HEADERS) {
-                String value = StringUtils.trimToEmpty(map.get(header));
-                values.add(value);
-            }
-            printer.printRecord(values.toArray());
+    /**
+     * The CSV headers are known before any records are parsed: they're every header and value id in the template
+     *
+     * @param config the template
+     * @return the ids, sorted
+     */
+    static List<String> getColumns(Config config) {
+        RecordSchema schema = config.getSchema();
+        List<String> columns = new ArrayList<>(schema.size());
+        for (int slot = 0; slot < schema.size(); slot++) {
+            columns.add(schema.getId(slot));
         }
+        return columns;
+    }
+
+    /**
+     * @param target the target
+     * @return a buffered writer over the target, this must be flushed, but not closed
+     */
+    private static Writer newWriter(PrintStream target) {
+        return new BufferedWriter(new OutputStreamWriter(target, Charset.defaultCharset()));
     }
 
     /**
@@ -131,6 +180,9 @@ public class CommandLineInterface {
         options.addOption(FORMAT_PARAM, true, "The output format, must be one of: " + (StringUtils.join(CLIConfig.Format.values(), ", ")).toLowerCase());
         options.addOption(CONFIG_PARAM, true, "The config file");
         options.getOption(CONFIG_PARAM).setRequired(true);
+        options.addOption(THREADS_PARAM, true, "The number of input files to parse at once, the default is the number of processors");
+        options.addOption(PRECOMPILE_PARAM, false, "Precompile the config file to the same path with " + CLIConfig.COMPILED_EXTENSION + " added, this is then loaded instead of the XML while it's up to date");
+        options.addOption(OUTPUT_DIRECTORY_PARAM, true, "Write the records from each input file to a file in this directory, rather than to stdout");
         return options;
     }
 
@@ -156,7 +208,7 @@ public class CommandLineInterface {
         if (StringUtils.isEmpty(opt)) {
             format = CLIConfig.Format.CSV;
         } else {
-            // is opt CSV or JSON - otherwise throw a ParseException
+            // is opt CSV, JSON or NDJSON - otherwise throw a ParseException
             switch (opt.toUpperCase()) {
                 case "CSV":
                     format = CLIConfig.Format.CSV;
@@ -164,12 +216,27 @@ public class CommandLineInterface {
                 case "JSON":
                     format = CLIConfig.Format.JSON;
                     break;
+                case "NDJSON":
+                    format = CLIConfig.Format.NDJSON;
+                    break;
                 default:
                     throw new ParseException(opt + " is not a valid format!");
             }
         }
         // Get output path
         String outputPath = cmd.getOptionValue(CONFIG_PARAM);
-        return new CLIConfig(format, outputPath);
+        CLIConfig config = new CLIConfig(format, outputPath)
+            .withInputs(cmd.getArgList())
+            .withOutputDirectory(cmd.getOptionValue(OUTPUT_DIRECTORY_PARAM))
+            .withPrecompile(cmd.hasOption(PRECOMPILE_PARAM));
+        String threads = cmd.getOptionValue(THREADS_PARAM);
+        if (!StringUtils.isEmpty(threads)) {
+            try {
+                config.withThreads(Integer.parseInt(threads));
+            } catch (NumberFormatException e) {
+                throw new ParseException(threads + " is not a valid number of threads!");
+            }
+        }
+        return config;
     }
 }
\ No newline at end of file
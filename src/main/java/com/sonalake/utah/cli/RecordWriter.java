@@ -0,0 +1,206 @@
+package com.sonalake.utah.cli;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes records in one of the output formats, a record at a time.
+ * <p>
+ * If there's a source column then it's written before the values of each record, and is the name of the file the
+ * record came from.
+ */
+abstract class RecordWriter {
+
+    /**
+     * The name of the column for the file each record came from, when several files are merged into one output
+     */
+    static final String SOURCE_COLUMN = "source";
+
+    protected final Writer out;
+    protected final String sourceColumn;
+
+    private RecordWriter(Writer out, String sourceColumn) {
+        this.out = out;
+        this.sourceColumn = sourceColumn;
+    }
+
+    /**
+     * Build a writer
+     *
+     * @param format       the output format
+     * @param columns      the ids in the template, these are the CSV headers
+     * @param out          the records are written to this, it's flushed, but not closed, by {@link #end()}
+     * @param sourceColumn the name of the source column, or null if there isn't one
+     * @return the writer
+     */
+    static RecordWriter of(CLIConfig.Format format, List<String> columns, Writer out, String sourceColumn) {
+        switch (format) {
+            case JSON:
+                return new JsonArrayWriter(out, sourceColumn);
+            case NDJSON:
+                return new JsonLinesWriter(out, sourceColumn);
+            default:
+                return new CsvWriter(out, sourceColumn, columns);
+        }
+    }
+
+    /**
+     * Write anything that comes before the records
+     *
+     * @throws IOException if the output can't be written
+     */
+    abstract void begin() throws IOException;
+
+    /**
+     * Write a record
+     *
+     * @param source the file the record came from, this is ignored if there's no source column
+     * @param record the record
+     * @throws IOException if the output can't be written
+     */
+    abstract void write(String source, Map<String, String> record) throws IOException;
+
+    /**
+     * Write anything that comes after the records, and flush the output
+     *
+     * @throws IOException if the output can't be written
+     */
+    abstract void end() throws IOException;
+
+    /**
+     * Write a record as a json object, as gson would, i.e. without the null values
+     */
+    void writeObject(JsonWriter json, String source, Map<String, String> record) throws IOException {
+        json.beginObject();
+        if (null != sourceColumn) {
+            json.name(sourceColumn).value(source);
+        }
+        for (Map.Entry<String, String> entry : record.entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue());
+        }
+        json.endObject();
+    }
+
+    /**
+     * The records as a pretty printed json array
+     */
+    private static final class JsonArrayWriter extends RecordWriter {
+        private final JsonWriter json;
+
+        JsonArrayWriter(Writer out, String sourceColumn) {
+            super(out, sourceColumn);
+            this.json = newJsonWriter(new GsonBuilder().setPrettyPrinting(), out);
+        }
+
+        @Override
+        void begin() throws IOException {
+            json.beginArray();
+        }
+
+        @Override
+        void write(String source, Map<String, String> record) throws IOException {
+            writeObject(json, source, record);
+        }
+
+        @Override
+        void end() throws IOException {
+            json.endArray();
+            out.flush();
+        }
+    }
+
+    /**
+     * The records as newline delimited json, i.e. one compact json object per line
+     */
+    private static final class JsonLinesWriter extends RecordWriter {
+        private final JsonWriter json;
+
+        JsonLinesWriter(Writer out, String sourceColumn) {
+            super(out, sourceColumn);
+            this.json = newJsonWriter(new GsonBuilder(), out);
+            // each line is a separate document
+            json.setLenient(true);
+        }
+
+        @Override
+        void begin() {
+        }
+
+        @Override
+        void write(String source, Map<String, String> record) throws IOException {
+            writeObject(json, source, record);
+            out.write('\n');
+        }
+
+        @Override
+        void end() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * The records as CSV, with a column for every id in the template
+     */
+    private static final class CsvWriter extends RecordWriter {
+        private final List<String> columns;
+        private final CSVPrinter printer;
+        private final String[] values;
+
+        CsvWriter(Writer out, String sourceColumn, List<String> columns) {
+            super(out, sourceColumn);
+            this.columns = columns;
+            try {
+                this.printer = new CSVPrinter(out, CSVFormat.DEFAULT);
+            } catch (IOException e) {
+                // there's no header to print, so this doesn't write anything
+                throw new IllegalStateException(e);
+            }
+            this.values = new String[columns.size() + (null == sourceColumn ? 0 : 1)];
+        }
+
+        @Override
+        void begin() throws IOException {
+            if (null != sourceColumn) {
+                printer.print(sourceColumn);
+            }
+            for (String column : columns) {
+                printer.print(column);
+            }
+            printer.println();
+        }
+
+        @Override
+        void write(String source, Map<String, String> record) throws IOException {
+            int offset = 0;
+            if (null != sourceColumn) {
+                values[offset++] = source;
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                values[offset + i] = StringUtils.trimToEmpty(record.get(columns.get(i)));
+            }
+            printer.printRecord((Object[]) values);
+        }
+
+        @Override
+        void end() throws IOException {
+            printer.flush();
+        }
+    }
+
+    private static JsonWriter newJsonWriter(GsonBuilder builder, Writer out) {
+        try {
+            return builder.create().newJsonWriter(out);
+        } catch (IOException e) {
+            // this only configures the writer, nothing is written
+            throw new IllegalStateException(e);
+        }
+    }
+}
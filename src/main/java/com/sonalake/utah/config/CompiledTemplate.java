@@ -0,0 +1,195 @@
+package com.sonalake.utah.config;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A binary form of a config, that can be loaded without parsing any XML.
+ * <p>
+ * The searches are already expanded in every regex, so all that's left to do when it's loaded is to compile the
+ * regexes. The file starts with a magic number, the version of the format, and the hash of the XML it was built from,
+ * so that a file in an older format, or one built from a different version of the XML, is never loaded.
+ */
+final class CompiledTemplate {
+
+  private static final int MAGIC = 0x55544148;
+  private static final int MAX_LENGTH = 1 << 24;
+
+  /**
+   * This must be changed whenever the format changes
+   */
+  static final int FORMAT_VERSION = 1;
+
+  private CompiledTemplate() {
+  }
+
+  /**
+   * Write a config
+   *
+   * @param config     the config, this must have been validated
+   * @param sourceHash the hash of the XML the config was loaded from
+   * @param out        the output
+   * @throws IOException if the output can't be written
+   */
+  static void write(Config config, byte[] sourceHash, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(FORMAT_VERSION);
+    writeBytes(data, sourceHash);
+
+    List<NameValue> searches = config.searches;
+    writeString(data, config.engine);
+    data.writeBoolean(config.isOrderedValues);
+    data.writeInt(config.delimiters.size());
+    for (Delimiter delimiter : config.delimiters) {
+      data.writeBoolean(delimiter.isOneRecord);
+      data.writeBoolean(delimiter.isPerLine);
+      data.writeBoolean(delimiter.isRetainDelim);
+      data.writeBoolean(delimiter.isDelimAtStartOfRecord);
+      writeString(data, expand(delimiter.delimiter, searches));
+    }
+    writeString(data, null == config.headerDelimiter ? null : expand(config.headerDelimiter.delimiter, searches));
+    if (null == config.sections) {
+      data.writeInt(-1);
+    } else {
+      data.writeInt(config.sections.size());
+      for (Section section : config.sections) {
+        writeString(data, section.id);
+        writeString(data, expand(section.start, searches));
+        writeString(data, expand(section.end, searches));
+      }
+    }
+    writeValues(data, config.headers, searches);
+    writeValues(data, config.values, searches);
+    data.flush();
+  }
+
+  /**
+   * Read a config
+   *
+   * @param in         the input
+   * @param sourceHash the hash of the XML, or null if the config is to be read whatever XML it was built from
+   * @return the config, this still needs to be validated, or null if the input is in a different format, or was built
+   * from different XML
+   * @throws IOException if the input can't be read, or is truncated
+   */
+  static Config read(InputStream in, byte[] sourceHash) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+      return null;
+    }
+    byte[] builtFrom = readBytes(data);
+    if (null != sourceHash && !Arrays.equals(sourceHash, builtFrom)) {
+      return null;
+    }
+
+    Config config = new Config();
+    config.engine = readString(data);
+    config.isOrderedValues = data.readBoolean();
+    int delimiterCount = data.readInt();
+    config.delimiters = new ArrayList<>(delimiterCount);
+    for (int i = 0; i < delimiterCount; i++) {
+      Delimiter delimiter = new Delimiter();
+      delimiter.isOneRecord = data.readBoolean();
+      delimiter.isPerLine = data.readBoolean();
+      delimiter.isRetainDelim = data.readBoolean();
+      delimiter.isDelimAtStartOfRecord = data.readBoolean();
+      delimiter.delimiter = readString(data);
+      config.delimiters.add(delimiter);
+    }
+    String headerDelimiter = readString(data);
+    if (null != headerDelimiter) {
+      config.headerDelimiter = new HeaderDelimiter();
+      config.headerDelimiter.delimiter = headerDelimiter;
+    }
+    int sectionCount = data.readInt();
+    if (sectionCount >= 0) {
+      config.sections = new ArrayList<>(sectionCount);
+      for (int i = 0; i < sectionCount; i++) {
+        config.sections.add(new Section(readString(data), readString(data), readString(data)));
+      }
+    }
+    config.headers = readValues(data);
+    config.values = readValues(data);
+    return config;
+  }
+
+  private static void writeValues(DataOutputStream data, List<ValueRegex> values, List<NameValue> searches)
+    throws IOException {
+    if (null == values) {
+      data.writeInt(-1);
+      return;
+    }
+    data.writeInt(values.size());
+    for (ValueRegex value : values) {
+      writeString(data, value.getId());
+      writeString(data, expand(value.getValue(), searches));
+      data.writeInt(value.group);
+      writeString(data, value.defaultValue);
+      writeString(data, value.engine);
+      writeString(data, value.scope);
+      writeString(data, value.section);
+      writeString(data, value.type);
+    }
+  }
+
+  private static List<ValueRegex> readValues(DataInputStream data) throws IOException {
+    int count = data.readInt();
+    if (count < 0) {
+      return null;
+    }
+    List<ValueRegex> values = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ValueRegex value = new ValueRegex(readString(data), readString(data));
+      value.group = data.readInt();
+      value.defaultValue = readString(data);
+      value.engine = readString(data);
+      value.scope = readString(data);
+      value.section = readString(data);
+      value.type = readString(data);
+      values.add(value);
+    }
+    return values;
+  }
+
+  private static String expand(String text, List<NameValue> searches) {
+    return null == text ? null : SearchHelper.translate(text, searches);
+  }
+
+  private static void writeString(DataOutputStream data, String text) throws IOException {
+    writeBytes(data, null == text ? null : text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String readString(DataInputStream data) throws IOException {
+    byte[] bytes = readBytes(data);
+    return null == bytes ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+    if (null == bytes) {
+      data.writeInt(-1);
+    } else {
+      data.writeInt(bytes.length);
+      data.write(bytes);
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream data) throws IOException {
+    int length = data.readInt();
+    if (length < 0) {
+      return null;
+    } else if (length > MAX_LENGTH) {
+      throw new IOException(String.format("Compiled template is corrupt, it has a field of %s bytes", length));
+    }
+    byte[] bytes = new byte[length];
+    data.readFully(bytes);
+    return bytes;
+  }
+}
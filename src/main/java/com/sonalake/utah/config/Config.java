@@ -4,14 +4,16 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
+import com.sonalake.utah.regex.RegexEngine;
+import com.sonalake.utah.regex.RegexEngines;
 import org.apache.commons.lang3.StringUtils;
 
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
 /**
@@ -19,6 +21,19 @@ import java.util.stream.Collectors;
  */
 @JacksonXmlRootElement(localName = "config")
 public class Config {
+  /**
+   * The regex engine for the config, if it's not set, then the default engine is used
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "engine")
+  protected String engine;
+
+  /**
+   * If true, then the values are declared in the order they appear in the record, so each value can be searched for
+   * from the end of the last one that was found
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "ordered-values")
+  protected boolean isOrderedValues;
+
   /**
    * Each record must be delimited by at least one regex
    */
@@ -33,6 +48,13 @@ public class Config {
   @JacksonXmlProperty(localName = "search")
   protected List<NameValue> searches;
 
+  /**
+   * The sections of a record, that values can be restricted to
+   */
+  @JacksonXmlElementWrapper(localName = "sections")
+  @JacksonXmlProperty(localName = "section")
+  protected List<Section> sections;
+
   @JacksonXmlProperty(localName = "header-delim")
   protected HeaderDelimiter headerDelimiter;
 
@@ -48,30 +70,72 @@ public class Config {
   @JacksonXmlProperty(localName = "values")
   protected List<ValueRegex> values;
 
+  /**
+   * The fields of the records, these are the ids of the header and record values
+   */
+  private RecordSchema schema;
+
+  /**
+   * The compiled header values
+   */
+  private ValueSet headerSet;
+
+  /**
+   * The compiled record values
+   */
+  private ValueSet valueSet;
+
+  /**
+   * The compiled record delimiters
+   */
+  private DelimiterSet delimiterSet;
+
   /**
    * Precompile the patterns, but only do it the once.
    */
   void compilePatterns() {
     // if there are no compiled patterns, then calculate them
-    compilePatterns(headers);
-    compilePatterns(values);
+    RegexEngine regexEngine = RegexEngines.get(engine);
+    compilePatterns(headers, regexEngine);
+    compilePatterns(values, regexEngine);
+    List<Section> recordSections = null == sections ? Collections.<Section>emptyList() : sections;
+    for (Section section : recordSections) {
+      section.compile(searches, regexEngine);
+    }
+    // every value for a field must have the same type
+    Map<String, ValueType> fieldTypes = new HashMap<>();
+    for (List<ValueRegex> fields : Arrays.asList(headers, values)) {
+      for (ValueRegex field : null == fields ? Collections.<ValueRegex>emptyList() : fields) {
+        ValueType fieldType = fieldTypes.putIfAbsent(field.getId(), field.getType());
+        if (null != fieldType && fieldType != field.getType()) {
+          throw new IllegalArgumentException(String.format(
+            "Values for '%s' have different types: %s and %s", field.getId(), fieldType, field.getType()
+          ));
+        }
+      }
+    }
+    schema = new RecordSchema(fieldTypes);
+    headerSet = null == headers ? null : new ValueSet(headers, recordSections, isOrderedValues, schema);
+    valueSet = null == values ? null : new ValueSet(values, recordSections, isOrderedValues, schema);
     if (null != headerDelimiter) {
-      headerDelimiter.compile(searches);
+      headerDelimiter.compile(searches, regexEngine);
     }
     for (Delimiter delimiter : delimiters) {
-      delimiter.compile(searches);
+      delimiter.compile(searches, regexEngine);
     }
+    delimiterSet = new DelimiterSet(delimiters, regexEngine);
   }
 
   /**
    * Compile the given patterns
    *
    * @param sourceRegexes the source regexes, applied in this order
+   * @param regexEngine   the engine for values that don't have one of their own
    */
-  private void compilePatterns(List<ValueRegex> sourceRegexes) {
+  private void compilePatterns(List<ValueRegex> sourceRegexes, RegexEngine regexEngine) {
     if (null != sourceRegexes) {
       for (ValueRegex value : sourceRegexes) {
-        value.compile(searches);
+        value.compile(searches, regexEngine);
       }
     }
   }
@@ -82,8 +146,18 @@ public class Config {
    * @param headerText the header text
    * @return a map of field name-&gt; value
    */
+  public Record buildHeader(CharSequence headerText) {
+    return buildMap(headerSet, headerText, null);
+  }
+
+  /**
+   * Build a record from the header text, this is kept for callers that were compiled against it
+   *
+   * @param headerText the header text
+   * @return a map of field name-&gt; value
+   */
   public Map<String, String> buildHeader(String headerText) {
-    return buildMap(headers, headerText);
+    return buildHeader((CharSequence) headerText);
   }
 
   /**
@@ -92,33 +166,86 @@ public class Config {
    * @param recordText the record text
    * @return a map of field name-&gt; value
    */
+  public Record buildRecord(CharSequence recordText) {
+    return buildMap(valueSet, recordText, null);
+  }
+
+  /**
+   * Build a record from the record text, this is kept for callers that were compiled against it
+   *
+   * @param recordText the record text
+   * @return a map of field name-&gt; value
+   */
   public Map<String, String> buildRecord(String recordText) {
-    return buildMap(values, recordText);
+    return buildRecord((CharSequence) recordText);
+  }
+
+  /**
+   * Build a record from the record text, with a limit on the work that can be done. If the limit is reached, then the
+   * values that haven't been found yet take their defaults, and the budget is marked as exceeded.
+   *
+   * @param recordText the record text
+   * @param budget     the limit on the work for the record
+   * @return a map of field name-&gt; value
+   */
+  public Record buildRecord(CharSequence recordText, MatchBudget budget) {
+    return buildMap(valueSet, recordText, budget);
+  }
+
+  /**
+   * @return true if some of the record values are line scoped, so they can be searched for as the lines are read
+   */
+  public boolean hasLineScopedValues() {
+    return null != valueSet && valueSet.hasLinePatterns();
+  }
+
+  /**
+   * Start a record, the line scoped values are searched for as each line is added to the state
+   *
+   * @param budget the limit on the work for the record, or null if there's no limit
+   * @return the state of the record
+   */
+  public RecordState startRecord(MatchBudget budget) {
+    if (null == valueSet) {
+      throw new IllegalStateException("There are no record values");
+    }
+    return new RecordState(valueSet, budget);
+  }
+
+  /**
+   * Build a record from the lines added to the state, and the record text
+   *
+   * @param state      the state of the record
+   * @param recordText the record text, this is only read if the state needs it
+   * @return a map of field name-&gt; value
+   */
+  public Record buildRecord(RecordState state, CharSequence recordText) {
+    return state.buildMap(recordText);
+  }
+
+  /**
+   * @return an emitter, that passes the record values to a visitor, rather than building a map of them
+   */
+  public RecordEmitter newEmitter() {
+    ValueSet emitted = null == valueSet
+      ? new ValueSet(Collections.<ValueRegex>emptyList(), Collections.<Section>emptyList(), false, schema)
+      : valueSet;
+    return new RecordEmitter(emitted);
   }
 
   /**
    * Build a map of name/values from the record text
    *
-   * @param text The candidate text for parsing
+   * @param values the compiled values
+   * @param text   The candidate text for parsing
+   * @param budget the limit on the work for the record, or null if there's no limit
    * @return the map of fields -&gt; names
    */
-  private Map<String, String> buildMap(List<ValueRegex> values, String text) {
+  private Record buildMap(ValueSet values, CharSequence text, MatchBudget budget) {
     if (null != values) {
-      // skoot through the each of the values in turn, and parse out the fields
-      // from the record. We only store the value if the group matches.
-      Map<String, String> result = new TreeMap<>();
-      for (ValueRegex valueRegex : values) {
-        Matcher matcher = valueRegex.buildMatcher(text);
-        if (matcher.matches()) {
-          String valueText = matcher.group(valueRegex.getGroup());
-          result.put(valueRegex.getId(), valueText);
-        } else if (valueRegex.hasDefaultValue()) {
-            result.put(valueRegex.getId(), valueRegex.getDefaultValue());
-        }
-      }
-      return result;
+      return values.buildMap(text, budget);
     } else {
-      return Collections.emptyMap();
+      return new Record(schema);
     }
   }
 
@@ -128,10 +255,20 @@ public class Config {
    * @param candidate the candidate text
    * @return true, if the header delimiter matches the text
    */
-  public boolean matchesHeaderDelim(String candidate) {
+  public boolean matchesHeaderDelim(CharSequence candidate) {
     return headerDelimiter.matches(candidate);
   }
 
+  /**
+   * Does the candidate text match the header? This is kept for callers that were compiled against it
+   *
+   * @param candidate the candidate text
+   * @return true, if the header delimiter matches the text
+   */
+  public boolean matchesHeaderDelim(String candidate) {
+    return matchesHeaderDelim((CharSequence) candidate);
+  }
+
   /**
    * Validates if the delimiters are valid. Checks all the delimiters to see if they are well-forrmed
    *
@@ -152,17 +289,23 @@ public class Config {
 
   /**
    * Get the applicable delimiter for the candidate. The first delimiter that matches the  text as used.
+   * All the delimiters are checked in a single pass.
+   *
+   * @param candidate the candidate text
+   * @return the applicable delimiter, or null if there are none.
+   */
+  public Delimiter getApplicableDelim(CharSequence candidate) {
+    return delimiterSet.getApplicableDelim(candidate);
+  }
+
+  /**
+   * Get the applicable delimiter for the candidate, this is kept for callers that were compiled against it
    *
    * @param candidate the candidate text
    * @return the applicable delimiter, or null if there are none.
    */
   public Delimiter getApplicableDelim(String candidate) {
-    for (Delimiter delimiter : delimiters) {
-      if (delimiter.matches(candidate)) {
-        return delimiter;
-      }
-    }
-    return null;
+    return getApplicableDelim((CharSequence) candidate);
   }
 
   /**
@@ -171,10 +314,27 @@ public class Config {
    * @param candidate the candidate text
    * @return true if any of the delimiters match the text, or false otherwise
    */
-  public boolean matchesRecordDelim(String candidate) {
+  public boolean matchesRecordDelim(CharSequence candidate) {
     return null != getApplicableDelim(candidate);
   }
 
+  /**
+   * Checks if the candidate text matches any of the delimiters, this is kept for callers that were compiled against it
+   *
+   * @param candidate the candidate text
+   * @return true if any of the delimiters match the text, or false otherwise
+   */
+  public boolean matchesRecordDelim(String candidate) {
+    return matchesRecordDelim((CharSequence) candidate);
+  }
+
+  /**
+   * @return the fields of the records
+   */
+  public RecordSchema getSchema() {
+    return schema;
+  }
+
   /**
    * Checks if there is a header delimiter defined
    *
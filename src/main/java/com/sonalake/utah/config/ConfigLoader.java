@@ -1,18 +1,34 @@
 package com.sonalake.utah.config;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Load a config from a source file
  */
 public class ConfigLoader {
 
+  /**
+   * The mapper is expensive to build, and is thread-safe once it's configured, so it's shared by all loaders. It's
+   * only built when the first XML config is loaded, so that loading a compiled config doesn't start up Jackson at all.
+   */
+  private static final class XmlReader {
+    private static final ObjectReader READER = buildReader().readerFor(Config.class);
+  }
+
   /**
    * Load a config from a URL
    *
@@ -26,6 +42,77 @@ public class ConfigLoader {
     }
   }
 
+  /**
+   * Load a config from the bytes of a source file, these are read in the same way as from a URL
+   *
+   * @param content the content of the source file
+   * @return the populated config
+   * @throws IOException should the config fail to be parseable
+   */
+  Config loadConfig(byte[] content) throws IOException {
+    try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content))) {
+      return loadConfig(reader);
+    }
+  }
+
+  /**
+   * Precompile a config, so that it can be loaded by {@link #loadConfig(Path, Path)} without parsing the XML
+   *
+   * @param source   the XML config
+   * @param compiled the compiled config is written to this file
+   * @throws IOException should the source fail to load or be parseable, or the compiled file fail to be written
+   */
+  public void compileConfig(Path source, Path compiled) throws IOException {
+    byte[] content = Files.readAllBytes(source);
+    Config config = loadConfig(content);
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(compiled))) {
+      CompiledTemplate.write(config, TemplateRegistry.sha256(content), out);
+    }
+  }
+
+  /**
+   * Load a config from its precompiled form, see {@link #compileConfig(Path, Path)}. If the compiled file is missing,
+   * is in an older format, or wasn't built from the current source, then the config is loaded from the XML source.
+   *
+   * @param source   the XML config
+   * @param compiled the compiled config
+   * @return the populated config
+   * @throws IOException should the source fail to load or be parseable
+   */
+  public Config loadConfig(Path source, Path compiled) throws IOException {
+    byte[] content = Files.readAllBytes(source);
+    if (Files.isRegularFile(compiled)) {
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(compiled))) {
+        Config config = CompiledTemplate.read(in, TemplateRegistry.sha256(content));
+        if (null != config) {
+          validate(config);
+          return config;
+        }
+      } catch (IOException e) {
+        // the compiled file is unreadable, so fall back to the source
+      }
+    }
+    return loadConfig(content);
+  }
+
+  /**
+   * Load a config from its precompiled form, without the XML source to fall back on
+   *
+   * @param in the compiled config
+   * @return the populated config
+   * @throws IOException should the input fail to load, or be in a different format
+   */
+  public Config loadCompiledConfig(InputStream in) throws IOException {
+    Config config = CompiledTemplate.read(in, null);
+    if (null == config) {
+      throw new IOException(String.format(
+        "Not a compiled config, or not in format version %s", CompiledTemplate.FORMAT_VERSION
+      ));
+    }
+    validate(config);
+    return config;
+  }
+
   /**
    * Load a config from a reader
    *
@@ -34,12 +121,12 @@ public class ConfigLoader {
    * @throws IOException should the file fail to load or be parseable
    */
   public Config loadConfig(Reader reader) throws IOException {
-    Config config = buildReader().readValue(reader, Config.class);;
+    Config config = XmlReader.READER.readValue(reader);
     validate(config);
     return config;
   }
 
-  private XmlMapper buildReader() {
+  private static XmlMapper buildReader() {
     XmlMapper mapper = new XmlMapper();
     mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     mapper.configure(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, false);
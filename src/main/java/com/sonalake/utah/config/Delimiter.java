@@ -2,10 +2,12 @@ package com.sonalake.utah.config;
 
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlText;
+import com.sonalake.utah.regex.CompiledRegex;
+import com.sonalake.utah.regex.RegexEngine;
+import com.sonalake.utah.regex.RegexEngines;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * Used to split up files into jobs
@@ -45,27 +47,44 @@ public class Delimiter {
   /**
    * This is compiled once so we can reuse it.
    */
-  private Pattern compiledDelimiter;
+  private CompiledRegex compiledDelimiter;
+  private ThreadLocalMatcher matcher;
 
   /**
    * Compile the pattern, based on the configured searches
    *
    * @param searches the searches
+   * @param engine   the regex engine
    */
-  void compile(List<NameValue> searches) {
+  void compile(List<NameValue> searches, RegexEngine engine) {
     if (null != delimiter && null == compiledDelimiter) {
       String valueText = SearchHelper.translate(delimiter, searches);
-      compiledDelimiter = Pattern.compile(valueText);
+      compiledDelimiter = RegexEngines.compile(engine, valueText, 0);
+      matcher = new ThreadLocalMatcher(compiledDelimiter);
     }
   }
 
+  /**
+   * @return the matcher for the compiled delimiter, or null if the delimiter has no text
+   */
+  ThreadLocalMatcher getMatcher() {
+    return matcher;
+  }
+
+  /**
+   * @return the compiled delimiter, or null if the delimiter has no text
+   */
+  CompiledRegex getPattern() {
+    return compiledDelimiter;
+  }
+
   /**
    * Check if the candidate matches the rules for the delimiter.
    *
    * @param candidate The candidate line
    * @return true, if it matches the candidate
    */
-  public boolean matches(String candidate) {
+  public boolean matches(CharSequence candidate) {
     // if the file is one record, then we want the entire file,
     // if it's per line, then we match each line
     // otherwise, we check the delimiter
@@ -74,10 +93,20 @@ public class Delimiter {
     } else if (isPerLine) {
       return StringUtils.isNotBlank(candidate);
     } else {
-      return StringUtils.isNotBlank(candidate) && compiledDelimiter.matcher(candidate).matches();
+      return StringUtils.isNotBlank(candidate) && matcher.matches(candidate);
     }
   }
 
+  /**
+   * Check if the candidate matches the rules for the delimiter, this is kept for callers that were compiled against it
+   *
+   * @param candidate The candidate line
+   * @return true, if it matches the candidate
+   */
+  public boolean matches(String candidate) {
+    return matches((CharSequence) candidate);
+  }
+
   /**
    * This is true if the delimiter text value is required
    *
@@ -0,0 +1,177 @@
+package com.sonalake.utah.config;
+
+import com.sonalake.utah.regex.CompiledRegex;
+import com.sonalake.utah.regex.RegexEngine;
+import com.sonalake.utah.regex.RegexEngines;
+import com.sonalake.utah.regex.RegexMatcher;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The compiled record delimiters.
+ * <p>
+ * Every line of the input is checked against the delimiters, so rather than try each one in turn:
+ * <ul>
+ * <li>delimiters that are plain text are checked with a string comparison</li>
+ * <li>the other delimiters are combined into a single regex, with a group around each one, so the first delimiter
+ * that matches is found in one pass</li>
+ * </ul>
+ * As with {@link Config#getApplicableDelim(CharSequence)}, when more than one delimiter matches, the first one in the
+ * config is used.
+ */
+class DelimiterSet {
+
+  private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)");
+  private static final Pattern INLINE_FLAGS = Pattern.compile("\\(\\?[idmsuxU-]*[):]");
+
+  private final Delimiter[] delimiters;
+
+  /**
+   * The index of the first per-line delimiter, this matches every line that isn't blank
+   */
+  private final int perLineIndex;
+
+  /**
+   * The text of the plain text delimiters, or null for the other delimiters
+   */
+  private final String[] literals;
+
+  /**
+   * The delimiters that are regexes, in config order, if they can't be combined, or a single combined regex
+   */
+  private final ThreadLocalMatcher[] patterns;
+
+  /**
+   * For each pattern, the index of the first delimiter it checks
+   */
+  private final int[] patternIndexes;
+
+  /**
+   * For each delimiter in the combined regex, the group around it, or null if they weren't combined
+   */
+  private final int[] groups;
+
+  /**
+   * Build the set from compiled delimiters
+   *
+   * @param sourceDelimiters the delimiters, in config order
+   * @param engine           the regex engine, for the combined regex
+   */
+  DelimiterSet(List<Delimiter> sourceDelimiters, RegexEngine engine) {
+    this.delimiters = sourceDelimiters.toArray(new Delimiter[0]);
+    this.literals = new String[delimiters.length];
+
+    int firstPerLine = delimiters.length;
+    List<Integer> regexIndexes = new ArrayList<>();
+    for (int i = 0; i < delimiters.length && firstPerLine == delimiters.length; i++) {
+      Delimiter delimiter = delimiters[i];
+      if (delimiter.isOneRecord) {
+        continue;
+      } else if (delimiter.isPerLine) {
+        firstPerLine = i;
+      } else {
+        literals[i] = RequiredLiterals.of(delimiter.getPattern().pattern()).getExactLiteral();
+        if (null == literals[i]) {
+          regexIndexes.add(i);
+        }
+      }
+    }
+    this.perLineIndex = firstPerLine;
+
+    CompiledRegex combined = regexIndexes.size() > 1 ? combine(regexIndexes, engine) : null;
+    if (null != combined) {
+      this.patterns = new ThreadLocalMatcher[]{new ThreadLocalMatcher(combined)};
+      this.patternIndexes = new int[]{regexIndexes.get(0)};
+      this.groups = new int[delimiters.length];
+      int group = 1;
+      for (int index : regexIndexes) {
+        groups[index] = group;
+        group += 1 + delimiters[index].getPattern().groupCount();
+      }
+    } else {
+      this.patterns = new ThreadLocalMatcher[regexIndexes.size()];
+      this.patternIndexes = new int[regexIndexes.size()];
+      for (int i = 0; i < regexIndexes.size(); i++) {
+        patterns[i] = delimiters[regexIndexes.get(i)].getMatcher();
+        patternIndexes[i] = regexIndexes.get(i);
+      }
+      this.groups = null;
+    }
+  }
+
+  /**
+   * Combine the regexes into a single alternation, unless one of them relies on its own group numbers or flags
+   *
+   * @param regexIndexes the indexes of the delimiters that are regexes
+   * @param engine       the regex engine
+   * @return the combined regex, or null if they can't be combined
+   */
+  private CompiledRegex combine(List<Integer> regexIndexes, RegexEngine engine) {
+    StringBuilder combined = new StringBuilder();
+    for (int index : regexIndexes) {
+      String regex = delimiters[index].getPattern().pattern();
+      if (BACK_REFERENCE.matcher(regex).find() || INLINE_FLAGS.matcher(regex).find()) {
+        return null;
+      }
+      combined.append(combined.length() == 0 ? "(" : "|(").append(regex).append(')');
+    }
+    try {
+      return RegexEngines.compile(engine, combined.toString(), 0);
+    } catch (PatternSyntaxException e) {
+      // e.g. the same named group in two of the delimiters
+      return null;
+    }
+  }
+
+  /**
+   * Get the applicable delimiter for the candidate. The first delimiter that matches the text is used.
+   *
+   * @param candidate the candidate text
+   * @return the applicable delimiter, or null if there are none.
+   */
+  Delimiter getApplicableDelim(CharSequence candidate) {
+    if (StringUtils.isBlank(candidate)) {
+      return null;
+    }
+
+    // the plain text delimiters are cheap, so check them first; then we only need to check the regexes before them
+    int applicable = perLineIndex;
+    for (int i = 0; i < applicable; i++) {
+      if (null != literals[i] && StringUtils.equals(literals[i], candidate)) {
+        applicable = i;
+      }
+    }
+
+    for (int i = 0; i < patterns.length && patternIndexes[i] < applicable; i++) {
+      RegexMatcher matcher = patterns[i].matcher(candidate);
+      try {
+        if (matcher.matches()) {
+          applicable = Math.min(applicable, null == groups ? patternIndexes[i] : findGroup(matcher));
+          break;
+        }
+      } finally {
+        matcher.reset("");
+      }
+    }
+    return applicable < delimiters.length ? delimiters[applicable] : null;
+  }
+
+  /**
+   * Find the delimiter that matched the combined regex
+   *
+   * @param matcher the matcher
+   * @return the index of the delimiter
+   */
+  private int findGroup(RegexMatcher matcher) {
+    for (int i = 0; i < groups.length; i++) {
+      if (0 != groups[i] && -1 != matcher.start(groups[i])) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("The combined delimiter matched, but none of its delimiters did");
+  }
+}
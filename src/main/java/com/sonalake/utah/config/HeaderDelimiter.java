@@ -1,9 +1,11 @@
 package com.sonalake.utah.config;
 
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlText;
+import com.sonalake.utah.regex.CompiledRegex;
+import com.sonalake.utah.regex.RegexEngine;
+import com.sonalake.utah.regex.RegexEngines;
 
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * A header delimiter - used to identify the header where there are values in the header of the file that are to be
@@ -20,20 +22,30 @@ public class HeaderDelimiter {
     /**
      * The compiled pattern, this is the one used at runtime
      */
-    private Pattern compiledPattern;
+    private CompiledRegex compiledPattern;
+    private ThreadLocalMatcher matcher;
 
+    public boolean matches(CharSequence candidate) {
+        return matcher.matches(candidate);
+    }
+
+    /**
+     * Kept for callers that were compiled against it
+     */
     public boolean matches(String candidate) {
-        return compiledPattern.matcher(candidate).matches();
+        return matches((CharSequence) candidate);
     }
 
     /**
      * Compile the delimiter based on the searches
      *
      * @param searches the searches, processed in this order
+     * @param engine   the regex engine
      */
-    void compile(List<NameValue> searches) {
+    void compile(List<NameValue> searches, RegexEngine engine) {
         String valueText = SearchHelper.translate(delimiter, searches);
-        compiledPattern = Pattern.compile(".*?" + valueText + ".*?");
+        compiledPattern = RegexEngines.compile(engine, ".*?" + valueText + ".*?", 0);
+        matcher = new ThreadLocalMatcher(compiledPattern);
     }
 
 }
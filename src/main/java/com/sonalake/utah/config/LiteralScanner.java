@@ -0,0 +1,160 @@
+package com.sonalake.utah.config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Finds the first occurrence of each of a set of literals, in a single pass over the text.
+ * <p>
+ * This is an Aho-Corasick automaton: the literals are built into a trie, with a link from each node to the longest
+ * suffix that's also in the trie, and then turned into a table of transitions, so each char of the text is a single
+ * lookup. Only the chars that are in the literals get their own column in the table; every other char resets the
+ * automaton.
+ */
+final class LiteralScanner {
+
+  private static final int ASCII = 128;
+
+  private final String[] literals;
+
+  /**
+   * The column for each ascii char, 0 is the column for chars that aren't in any literal
+   */
+  private final int[] asciiColumns;
+
+  /**
+   * The non-ascii chars that are in the literals, sorted, each has the column after the one before it
+   */
+  private final char[] otherChars;
+  private final int firstOtherColumn;
+  private final int columnCount;
+
+  /**
+   * The next state, for each state and column
+   */
+  private final int[] transitions;
+
+  /**
+   * The literals that end at each state
+   */
+  private final int[][] outputs;
+
+  /**
+   * Build the automaton
+   *
+   * @param literals the literals, none of which can be empty
+   */
+  LiteralScanner(List<String> literals) {
+    this.literals = literals.toArray(new String[0]);
+    this.asciiColumns = new int[ASCII];
+    SortedSet<Character> others = new TreeSet<>();
+    int columns = 1;
+    for (String literal : this.literals) {
+      for (char c : literal.toCharArray()) {
+        if (c >= ASCII) {
+          others.add(c);
+        } else if (0 == asciiColumns[c]) {
+          asciiColumns[c] = columns++;
+        }
+      }
+    }
+    this.otherChars = new char[others.size()];
+    int index = 0;
+    for (char c : others) {
+      otherChars[index++] = c;
+    }
+    this.firstOtherColumn = columns;
+    this.columnCount = columns + otherChars.length;
+
+    // the trie, where a transition of 0 means there isn't one yet
+    List<int[]> trie = new ArrayList<>();
+    List<List<Integer>> ends = new ArrayList<>();
+    trie.add(new int[columnCount]);
+    ends.add(new ArrayList<>());
+    for (int i = 0; i < this.literals.length; i++) {
+      int state = 0;
+      for (char c : this.literals[i].toCharArray()) {
+        int column = column(c);
+        if (0 == trie.get(state)[column]) {
+          trie.get(state)[column] = trie.size();
+          trie.add(new int[columnCount]);
+          ends.add(new ArrayList<>());
+        }
+        state = trie.get(state)[column];
+      }
+      ends.get(state).add(i);
+    }
+
+    // fill in the missing transitions breadth first, from the suffix links
+    int stateCount = trie.size();
+    this.transitions = new int[stateCount * columnCount];
+    this.outputs = new int[stateCount][];
+    int[] suffixes = new int[stateCount];
+    Queue<Integer> queue = new ArrayDeque<>();
+    queue.add(0);
+    while (!queue.isEmpty()) {
+      int state = queue.remove();
+      int suffix = suffixes[state];
+      List<Integer> stateEnds = ends.get(state);
+      if (0 != state) {
+        stateEnds.addAll(ends.get(suffix));
+      }
+      outputs[state] = stateEnds.stream().mapToInt(Integer::intValue).toArray();
+      for (int column = 1; column < columnCount; column++) {
+        int child = trie.get(state)[column];
+        if (0 != child) {
+          suffixes[child] = 0 == state ? 0 : transitions[suffix * columnCount + column];
+          transitions[state * columnCount + column] = child;
+          queue.add(child);
+        } else {
+          transitions[state * columnCount + column] = 0 == state ? 0 : transitions[suffix * columnCount + column];
+        }
+      }
+    }
+  }
+
+  private int column(char c) {
+    if (c < ASCII) {
+      return asciiColumns[c];
+    }
+    int index = Arrays.binarySearch(otherChars, c);
+    return index < 0 ? 0 : firstOtherColumn + index;
+  }
+
+  /**
+   * @return the number of literals
+   */
+  int size() {
+    return literals.length;
+  }
+
+  /**
+   * Find the first occurrence of each literal
+   *
+   * @param text  the text
+   * @param first the array to put the occurrences in, this has one entry for each literal, so it can be reused for
+   *              each text
+   * @return for each literal, the index of its first occurrence in the text, or -1 if it's not there
+   */
+  int[] scan(CharSequence text, int[] first) {
+    Arrays.fill(first, -1);
+    int remaining = literals.length;
+    int state = 0;
+    int length = text.length();
+    for (int i = 0; i < length && remaining > 0; i++) {
+      state = transitions[state * columnCount + column(text.charAt(i))];
+      for (int literal : outputs[state]) {
+        if (first[literal] < 0) {
+          first[literal] = i + 1 - literals[literal].length();
+          remaining--;
+        }
+      }
+    }
+    return first;
+  }
+}
@@ -0,0 +1,154 @@
+package com.sonalake.utah.config;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A limit on how much work can be spent pulling the values out of a single record.
+ * <p>
+ * A regex can't be interrupted once it's running, so instead the record text is wrapped in a char sequence that
+ * counts each char the regexes read; once the steps, or the time, run out, or the record is cancelled, the next read
+ * fails, and the value is treated as if it didn't match, i.e. it takes its default. The clock only runs while the
+ * regexes are reading the text, so the time spent waiting for the lines of the record to be read isn't counted. A
+ * budget is only good for one record, and isn't thread safe.
+ */
+public final class MatchBudget {
+
+  /**
+   * The clock and the cancel flag are only checked every so many steps
+   */
+  private static final int CHECK_INTERVAL = 1 << 10;
+
+  private final long stepLimit;
+  private final long timeoutNanos;
+  private final boolean hasDeadline;
+  private final BooleanSupplier isCancelled;
+
+  private long steps;
+  private boolean isExceeded;
+
+  /**
+   * The time counted before the clock was last paused, and when it was last started, if it's running
+   */
+  private long elapsedNanos;
+  private long started;
+  private boolean isRunning;
+
+  /**
+   * Build a budget, the clock starts on the first step
+   *
+   * @param stepLimit    the number of chars the regexes can read, or {@link Long#MAX_VALUE} for no limit
+   * @param timeoutNanos the time the values can take, or {@link Long#MAX_VALUE} for no limit
+   * @param isCancelled  true if the work has been cancelled
+   */
+  public MatchBudget(long stepLimit, long timeoutNanos, BooleanSupplier isCancelled) {
+    this.stepLimit = stepLimit;
+    this.timeoutNanos = timeoutNanos;
+    this.hasDeadline = timeoutNanos != Long.MAX_VALUE;
+    this.isCancelled = isCancelled;
+  }
+
+  /**
+   * @return true if the budget ran out, and so some values may have taken their defaults
+   */
+  public boolean isExceeded() {
+    return isExceeded;
+  }
+
+  /**
+   * @return the number of steps taken so far
+   */
+  public long getSteps() {
+    return steps;
+  }
+
+  /**
+   * @return the time taken so far, in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return isRunning ? elapsedNanos + System.nanoTime() - started : elapsedNanos;
+  }
+
+  /**
+   * Stop the clock, e.g. while the next line of the record is read, it starts again on the next step
+   */
+  void pause() {
+    if (isRunning) {
+      elapsedNanos += System.nanoTime() - started;
+      isRunning = false;
+    }
+  }
+
+  /**
+   * Wrap the record text, so that the reads are counted against this budget
+   *
+   * @param text the record text
+   * @return the wrapped text
+   */
+  CharSequence wrap(CharSequence text) {
+    return new BudgetedText(text);
+  }
+
+  private void step() {
+    if (isExceeded) {
+      throw new ExceededException();
+    }
+    if (!isRunning) {
+      started = System.nanoTime();
+      isRunning = true;
+    }
+    steps++;
+    boolean isOver = steps > stepLimit;
+    if (!isOver && 0 == (steps & (CHECK_INTERVAL - 1))) {
+      isOver = isCancelled.getAsBoolean() || (hasDeadline && getElapsedNanos() > timeoutNanos);
+    }
+    if (isOver) {
+      isExceeded = true;
+      throw new ExceededException();
+    }
+  }
+
+  /**
+   * Thrown out of the regex when the budget runs out
+   */
+  static final class ExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    ExceededException() {
+      // there's no need for a stack trace, this is caught straight away
+      super("The match budget was exceeded", null, false, false);
+    }
+  }
+
+  /**
+   * The record text, where every char that's read is a step
+   */
+  private final class BudgetedText implements CharSequence {
+    private final CharSequence text;
+
+    BudgetedText(CharSequence text) {
+      this.text = text;
+    }
+
+    @Override
+    public int length() {
+      return text.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+      step();
+      return text.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      // this is only used to pull out the text of a value, once it's been matched
+      return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return text.toString();
+    }
+  }
+}
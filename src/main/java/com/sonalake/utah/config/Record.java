@@ -0,0 +1,209 @@
+package com.sonalake.utah.config;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The values pulled out of a record. Rather than a map per record, this is an array of values, indexed by the slots
+ * in the config's {@link RecordSchema}, and a bitmap of the slots that are set (a value can be set, but null, when
+ * its group didn't take part in the match).
+ * <p>
+ * A record is also a read-only map of field id to value, in the order of the ids, so it can be used anywhere a map
+ * of the values was used before.
+ * <p>
+ * The header values are the same for every record in a file, so rather than copy them into each record, a record can
+ * have a header layer, that's shared by all the records. A value in the header hides the record's own value.
+ * <p>
+ * The values of typed fields (see {@link ValueType}) are kept in an array of longs, and read with
+ * {@link #getLong(int)}; in the map, they're shown in their canonical form.
+ */
+public final class Record extends AbstractMap<String, String> {
+
+  private final RecordSchema schema;
+  private final String[] values;
+  private final long[] numbers;
+  private final long[] isSet;
+  private Record header;
+  private Set<Map.Entry<String, String>> entries;
+
+  /**
+   * Build an empty record
+   *
+   * @param schema the fields that the record can have
+   */
+  Record(RecordSchema schema) {
+    this.schema = schema;
+    this.values = new String[schema.size()];
+    this.numbers = schema.hasTypedFields() ? new long[schema.size()] : null;
+    this.isSet = new long[(schema.size() + 63) >>> 6];
+  }
+
+  /**
+   * @return the fields that the record can have
+   */
+  public RecordSchema getSchema() {
+    return schema;
+  }
+
+  /**
+   * @param slot the slot of a field
+   * @return true if the field has a value
+   */
+  public boolean isSet(int slot) {
+    return isOwnSet(slot) || (null != header && header.isOwnSet(slot));
+  }
+
+  /**
+   * @param slot the slot of a field
+   * @return the value of the field, or null if it's not set
+   */
+  public String get(int slot) {
+    Record layer = null != header && header.isOwnSet(slot) ? header : this;
+    ValueType type = schema.getType(slot);
+    if (type == ValueType.STRING || !layer.isOwnSet(slot)) {
+      return layer.values[slot];
+    }
+    return type.format(layer.numbers[slot]);
+  }
+
+  /**
+   * @param slot the slot of a typed field
+   * @return the value of the field
+   * @throws IllegalStateException if the field isn't typed, or isn't set
+   */
+  public long getLong(int slot) {
+    if (schema.getType(slot) == ValueType.STRING) {
+      throw new IllegalStateException(String.format("Field '%s' isn't typed", schema.getId(slot)));
+    }
+    if (null != header && header.isOwnSet(slot)) {
+      return header.numbers[slot];
+    } else if (isOwnSet(slot)) {
+      return numbers[slot];
+    }
+    throw new IllegalStateException(String.format("Field '%s' isn't set", schema.getId(slot)));
+  }
+
+  /**
+   * @param slot the slot of an <code>int</code> field
+   * @return the value of the field
+   * @throws IllegalStateException if the field isn't typed, or isn't set
+   */
+  public int getInt(int slot) {
+    return (int) getLong(slot);
+  }
+
+  /**
+   * Set the header layer of this record. The header isn't copied, so it mustn't be changed after this, and it should
+   * be set before the record is handed out.
+   *
+   * @param headerRecord the header values, these must have the same schema and no header of their own, or null
+   * @return this record
+   */
+  public Record withHeader(Record headerRecord) {
+    if (null != headerRecord && (headerRecord.schema != schema || null != headerRecord.header)) {
+      throw new IllegalArgumentException("The header must have the same schema, and no header of its own");
+    }
+    this.header = headerRecord;
+    return this;
+  }
+
+  private boolean isOwnSet(int slot) {
+    return 0 != (isSet[slot >>> 6] & (1L << slot));
+  }
+
+  /**
+   * @param slot  the slot of a field
+   * @param value the value, this can be null
+   */
+  void set(int slot, String value) {
+    values[slot] = value;
+    isSet[slot >>> 6] |= 1L << slot;
+  }
+
+  /**
+   * @param slot  the slot of a typed field
+   * @param value the value
+   */
+  void setLong(int slot, long value) {
+    numbers[slot] = value;
+    isSet[slot >>> 6] |= 1L << slot;
+  }
+
+  @Override
+  public String get(Object key) {
+    int slot = schema.getSlot(key);
+    return slot < 0 ? null : get(slot);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    int slot = schema.getSlot(key);
+    return slot >= 0 && isSet(slot);
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (int i = 0; i < isSet.length; i++) {
+      size += Long.bitCount(null == header ? isSet[i] : isSet[i] | header.isSet[i]);
+    }
+    return size;
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    if (null == entries) {
+      entries = new EntrySet();
+    }
+    return entries;
+  }
+
+  /**
+   * The fields that are set, in slot order
+   */
+  private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new Iterator<Map.Entry<String, String>>() {
+        private int next = nextSet(0);
+
+        @Override
+        public boolean hasNext() {
+          return next < values.length;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int slot = next;
+          next = nextSet(slot + 1);
+          return new SimpleImmutableEntry<>(schema.getId(slot), get(slot));
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return Record.this.size();
+    }
+  }
+
+  /**
+   * @param from the first slot to check
+   * @return the first slot, from the given one, that is set, or the number of slots if there are none
+   */
+  private int nextSet(int from) {
+    for (int slot = from; slot < values.length; slot++) {
+      if (isSet(slot)) {
+        return slot;
+      }
+    }
+    return values.length;
+  }
+}
@@ -0,0 +1,34 @@
+package com.sonalake.utah.config;
+
+/**
+ * Passes the values of records to a {@link RecordVisitor}. The working space for finding the values is kept from one
+ * record to the next, and the values are passed as views over the record text, so no map, or copy of the values, is
+ * built for each record.
+ * <p>
+ * An emitter isn't thread safe, so each thread needs its own.
+ */
+public final class RecordEmitter {
+
+  private final ValueSet values;
+  private final ValueSet.Matches matches;
+
+  /**
+   * @param values the compiled record values
+   */
+  RecordEmitter(ValueSet values) {
+    this.values = values;
+    this.matches = values.newMatches(false);
+  }
+
+  /**
+   * Pass the values of a record to a visitor
+   *
+   * @param recordText the record text, this must not change until the visitor has returned
+   * @param budget     the limit on the work for the record, or null if there's no limit
+   * @param header     the header values, these hide the record's own values, or null if there's no header
+   * @param visitor    the visitor
+   */
+  public void emit(CharSequence recordText, MatchBudget budget, Record header, RecordVisitor visitor) {
+    values.visit(matches, recordText, budget, header, visitor);
+  }
+}
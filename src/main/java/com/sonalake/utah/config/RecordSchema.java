@@ -0,0 +1,97 @@
+package com.sonalake.utah.config;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The fields that a config's records can have. Each field id is given a slot when the config is compiled, so a record
+ * is just an array of values, indexed by slot. The slots are in the order of the ids, so a record iterates in the same
+ * order as a sorted map would.
+ * <p>
+ * Each field also has a {@link ValueType}; a typed field's values are kept as longs.
+ */
+public final class RecordSchema {
+
+  private final String[] ids;
+  private final ValueType[] types;
+  private final Map<String, Integer> slots;
+  private final boolean hasTypedFields;
+
+  /**
+   * @param fieldIds the ids of the fields, these can have duplicates, all the fields are strings
+   */
+  RecordSchema(Collection<String> fieldIds) {
+    this(stringFields(fieldIds));
+  }
+
+  /**
+   * @param fieldTypes the type of each field
+   */
+  RecordSchema(Map<String, ValueType> fieldTypes) {
+    this.ids = new TreeSet<>(fieldTypes.keySet()).toArray(new String[0]);
+    this.types = new ValueType[ids.length];
+    this.slots = new HashMap<>();
+    boolean isTyped = false;
+    for (int i = 0; i < ids.length; i++) {
+      slots.put(ids[i], i);
+      types[i] = fieldTypes.get(ids[i]);
+      isTyped |= types[i] != ValueType.STRING;
+    }
+    this.hasTypedFields = isTyped;
+  }
+
+  private static Map<String, ValueType> stringFields(Collection<String> fieldIds) {
+    Map<String, ValueType> fieldTypes = new HashMap<>();
+    for (String id : fieldIds) {
+      fieldTypes.put(id, ValueType.STRING);
+    }
+    return fieldTypes;
+  }
+
+  /**
+   * @return the number of fields
+   */
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * @param slot the slot
+   * @return the id of the field in the slot
+   */
+  public String getId(int slot) {
+    return ids[slot];
+  }
+
+  /**
+   * @param slot the slot
+   * @return the type of the field in the slot
+   */
+  public ValueType getType(int slot) {
+    return types[slot];
+  }
+
+  /**
+   * @return true if any of the fields aren't strings
+   */
+  boolean hasTypedFields() {
+    return hasTypedFields;
+  }
+
+  /**
+   * @param id the id of a field
+   * @return the slot of the field, or -1 if there's no such field
+   */
+  public int getSlot(Object id) {
+    Integer slot = slots.get(id);
+    return null == slot ? -1 : slot;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(ids);
+  }
+}
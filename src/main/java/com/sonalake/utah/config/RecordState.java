@@ -0,0 +1,65 @@
+package com.sonalake.utah.config;
+
+/**
+ * The values found in a record so far, as its lines are read. The line scoped values are searched for in each line as
+ * it's added, and stop being searched for once they're found, so if all the values are line scoped, then the record
+ * text never needs to be built.
+ * <p>
+ * A state is for one record at a time, but can be reset for the next one, and isn't thread safe.
+ */
+public final class RecordState {
+
+  private final ValueSet values;
+  private final ValueSet.Matches matches;
+  private MatchBudget budget;
+
+  /**
+   * @param values the compiled record values
+   * @param budget the limit on the work for the record, or null if there's no limit
+   */
+  RecordState(ValueSet values, MatchBudget budget) {
+    this.values = values;
+    this.matches = values.newMatches(true);
+    this.budget = budget;
+  }
+
+  /**
+   * Start the next record, reusing this state's working space
+   *
+   * @param budget the limit on the work for the record, or null if there's no limit
+   */
+  public void reset(MatchBudget budget) {
+    matches.reset();
+    this.budget = budget;
+  }
+
+  /**
+   * Search the next line of the record for the line scoped values
+   *
+   * @param line the line, this is only read during the call
+   */
+  public void addLine(CharSequence line) {
+    values.matchLine(matches, line, budget);
+    if (null != budget) {
+      // the clock doesn't run while the next line is read
+      budget.pause();
+    }
+  }
+
+  /**
+   * @return true if there are record scoped values, so the record text is needed to finish the record
+   */
+  public boolean isTextNeeded() {
+    return values.hasRecordPatterns();
+  }
+
+  /**
+   * Build the map of name/values for the record
+   *
+   * @param recordText the record text, this is only read if {@link #isTextNeeded()}
+   * @return the record
+   */
+  Record buildMap(CharSequence recordText) {
+    return values.buildMap(matches, recordText, budget);
+  }
+}
@@ -0,0 +1,46 @@
+package com.sonalake.utah.config;
+
+/**
+ * Receives the values of each record, as they're pulled out of the record text, rather than as a map. This is for
+ * consumers that write each record straight on to somewhere else, e.g. a columnar buffer or a socket, and so have no
+ * use for the map.
+ * <p>
+ * The values are views over the parser's buffers, so they're only valid during the call to
+ * {@link #field(int, String, CharSequence)}; a visitor that wants to keep a value must take a copy of it, e.g. with
+ * <code>toString()</code>.
+ */
+public interface RecordVisitor {
+
+  /**
+   * Called before the fields of each record
+   */
+  void startRecord();
+
+  /**
+   * Called for each field that the record has, in slot order, i.e. in the order of the field ids
+   *
+   * @param slot  the slot of the field in the config's {@link RecordSchema}
+   * @param id    the id of the field
+   * @param value the value, this is only valid during this call, and is null if the value's group didn't take part
+   *              in the match
+   */
+  void field(int slot, String id, CharSequence value);
+
+  /**
+   * Called instead of {@link #field(int, String, CharSequence)} for each typed field, by default this passes the
+   * canonical text of the value to that method
+   *
+   * @param slot  the slot of the field in the config's {@link RecordSchema}
+   * @param id    the id of the field
+   * @param type  the type of the field
+   * @param value the value
+   */
+  default void field(int slot, String id, ValueType type, long value) {
+    field(slot, id, type.format(value));
+  }
+
+  /**
+   * Called after the fields of each record
+   */
+  void endRecord();
+}
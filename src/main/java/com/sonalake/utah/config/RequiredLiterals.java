@@ -0,0 +1,463 @@
+package com.sonalake.utah.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The literal text that must appear in the input for a regex to match. This is worked out once, when the config is
+ * compiled, so that we can skip running a regex over text that can't possibly match it.
+ * <p>
+ * The analysis is conservative: only literals that are outside of any group, and aren't optional, are taken. If the
+ * regex has a top-level alternation, or uses flags that change how literals match (case-insensitive or comments mode),
+ * then there are no required literals.
+ * <p>
+ * The same pass also works out if the regex can only ever match within a single line, i.e. nothing in it can match a
+ * line feed, and it has no anchors or lookarounds that would see the line differently from the record.
+ */
+final class RequiredLiterals {
+
+  private static final RequiredLiterals NONE =
+    new RequiredLiterals(Collections.<String>emptyList(), false, null, false, false);
+  private static final RequiredLiterals ALTERNATION =
+    new RequiredLiterals(Collections.<String>emptyList(), false, null, false, true);
+
+  /**
+   * The required literals, in the order they appear in the regex
+   */
+  private final List<String> literals;
+
+  /**
+   * True if the part of the regex before the first literal can't match a line feed
+   */
+  private final boolean isPrefixSingleLine;
+
+  /**
+   * If the whole regex is a literal, then this is the text of it
+   */
+  private final String exactLiteral;
+
+  /**
+   * True if any match of the regex is within a single line
+   */
+  private final boolean isSingleLine;
+
+  /**
+   * True if the regex has a top-level alternation
+   */
+  private final boolean isAlternation;
+
+  private RequiredLiterals(List<String> literals, boolean isPrefixSingleLine, String exactLiteral,
+                           boolean isSingleLine, boolean isAlternation) {
+    this.literals = literals;
+    this.isPrefixSingleLine = isPrefixSingleLine;
+    this.exactLiteral = exactLiteral;
+    this.isSingleLine = isSingleLine;
+    this.isAlternation = isAlternation;
+  }
+
+  /**
+   * @return the required literals, in the order they appear in the regex, this is empty if there are none
+   */
+  List<String> getLiterals() {
+    return literals;
+  }
+
+  /**
+   * If this is true then any match of the regex must start on the same line as an occurrence of the first literal, so
+   * we can start looking for a match from the start of the line where the first literal first appears.
+   *
+   * @return true if the part of the regex before the first literal can't match a line feed
+   */
+  boolean isPrefixSingleLine() {
+    return isPrefixSingleLine;
+  }
+
+  /**
+   * @return the text of the regex, if the whole regex is a literal, or null otherwise
+   */
+  String getExactLiteral() {
+    return exactLiteral;
+  }
+
+  /**
+   * If this is true then searching a record for the regex finds the same match as searching each of its lines in turn,
+   * so the regex can be run against the lines as they are read.
+   *
+   * @return true if nothing in the regex can match a line feed, or depends on what's outside of the line
+   */
+  boolean isSingleLine() {
+    return isSingleLine;
+  }
+
+  /**
+   * @return true if the regex has a top-level alternation, in which case there are no required literals
+   */
+  boolean isAlternation() {
+    return isAlternation;
+  }
+
+  /**
+   * Find the literals that are required by a regex
+   *
+   * @param regex the regex, this should be a valid java regex
+   * @return the literals
+   */
+  static RequiredLiterals of(String regex) {
+    return new Analyzer(regex).analyze();
+  }
+
+  /**
+   * A single pass over the regex
+   */
+  private static final class Analyzer {
+    private final String regex;
+    private final List<String> literals = new ArrayList<>();
+    private final StringBuilder run = new StringBuilder();
+
+    private int position;
+    private int depth;
+
+    /**
+     * True if something, other than a literal, has been seen
+     */
+    private boolean hasNonLiteral;
+
+    /**
+     * True if something that can match a line feed has been seen before the first literal
+     */
+    private boolean canPrefixMatchLineFeed;
+
+    /**
+     * True if something that can match a line feed, or an anchor, has been seen anywhere
+     */
+    private boolean canMatchLineFeed;
+    private boolean hasAnchor;
+
+    /**
+     * True if the last atom was a literal char, that was added to the run
+     */
+    private boolean wasLiteral;
+
+    Analyzer(String regex) {
+      this.regex = regex;
+    }
+
+    RequiredLiterals analyze() {
+      while (position < regex.length()) {
+        char c = regex.charAt(position++);
+        switch (c) {
+          case '\\':
+            if (!escape()) {
+              return NONE;
+            }
+            break;
+          case '[':
+            nonLiteral(characterClass());
+            break;
+          case '(':
+            if (!group()) {
+              return NONE;
+            }
+            break;
+          case ')':
+            depth--;
+            nonLiteral(false);
+            break;
+          case '|':
+            if (0 == depth) {
+              return ALTERNATION;
+            }
+            nonLiteral(false);
+            break;
+          case '.':
+            // values are compiled with DOTALL
+            nonLiteral(true);
+            break;
+          case '^':
+          case '$':
+            hasAnchor = true;
+            nonLiteral(false);
+            break;
+          case '?':
+          case '*':
+            quantifier(0);
+            break;
+          case '+':
+            quantifier(1);
+            break;
+          case '{':
+            if (!boundedQuantifier()) {
+              return NONE;
+            }
+            break;
+          default:
+            literal(c);
+        }
+      }
+      endRun();
+
+      String exactLiteral = !hasNonLiteral && literals.size() == 1 ? literals.get(0) : null;
+      return new RequiredLiterals(
+        Collections.unmodifiableList(literals), !literals.isEmpty() && !canPrefixMatchLineFeed, exactLiteral,
+        !canMatchLineFeed && !hasAnchor, false
+      );
+    }
+
+    /**
+     * Handle an escape, the position is after the backslash
+     *
+     * @return false if the escape means we can't analyze the regex
+     */
+    private boolean escape() {
+      if (position >= regex.length()) {
+        return false;
+      }
+      char c = regex.charAt(position++);
+      switch (c) {
+        case 'd':
+        case 'w':
+        case 'S':
+        case 'h':
+        case 'b':
+        case 'B':
+          nonLiteral(false);
+          return true;
+        case 'A':
+        case 'G':
+        case 'z':
+        case 'Z':
+          hasAnchor = true;
+          nonLiteral(false);
+          return true;
+        case 't':
+          literal('\t');
+          return true;
+        case 'f':
+          literal('\f');
+          return true;
+        case 'a':
+          literal('\u0007');
+          return true;
+        case 'e':
+          literal('\u001B');
+          return true;
+        case 'Q':
+          int end = regex.indexOf("\\E", position);
+          String quoted = regex.substring(position, end < 0 ? regex.length() : end);
+          position = end < 0 ? regex.length() : end + 2;
+          for (char q : quoted.toCharArray()) {
+            literal(q);
+          }
+          return true;
+        case 'k':
+          // a named back reference, skip over the name
+          int close = regex.indexOf('>', position);
+          position = close < 0 ? regex.length() : close + 1;
+          nonLiteral(true);
+          return true;
+        case 'p':
+        case 'P':
+          if (position < regex.length() && regex.charAt(position) == '{') {
+            int closeBrace = regex.indexOf('}', position);
+            position = closeBrace < 0 ? regex.length() : closeBrace + 1;
+          } else {
+            position++;
+          }
+          nonLiteral(true);
+          return true;
+        case 'x':
+        case 'u':
+        case 'c':
+        case '0':
+          // a char by its code, we don't bother working out what it is, but just skip over it
+          position = skipCharCode(c, position);
+          nonLiteral(true);
+          return true;
+        default:
+          if (Character.isLetterOrDigit(c)) {
+            // \s, \n, \v, \R, \W, \D, \H, back references and anything else we don't know about
+            nonLiteral(true);
+          } else {
+            literal(c);
+          }
+          return true;
+      }
+    }
+
+    private int skipCharCode(char type, int from) {
+      int end = from;
+      if (type == 'c') {
+        return Math.min(regex.length(), from + 1);
+      } else if (type == 'x' && end < regex.length() && regex.charAt(end) == '{') {
+        int close = regex.indexOf('}', end);
+        return close < 0 ? regex.length() : close + 1;
+      }
+      int maxLength = type == 'x' ? 2 : type == 'u' ? 4 : 3;
+      while (end < regex.length() && end - from < maxLength && Character.digit(regex.charAt(end), 16) >= 0) {
+        end++;
+      }
+      return end;
+    }
+
+    /**
+     * Skip over a character class, the position is after the opening bracket
+     *
+     * @return true if the class might match a line feed
+     */
+    private boolean characterClass() {
+      boolean canMatchLineFeed = false;
+      int start = position;
+      if (position < regex.length() && regex.charAt(position) == '^') {
+        canMatchLineFeed = true;
+        position++;
+      }
+      int nesting = 1;
+      char previous = 0;
+      while (position < regex.length() && nesting > 0) {
+        char c = regex.charAt(position++);
+        if (c == '\\' && position < regex.length()) {
+          char escaped = regex.charAt(position++);
+          if (Character.isLetterOrDigit(escaped) && "dwSh".indexOf(escaped) < 0) {
+            canMatchLineFeed = true;
+          }
+          previous = escaped;
+        } else if (c == '[') {
+          nesting++;
+          canMatchLineFeed = true;
+        } else if (c == ']' && position - 1 > start) {
+          nesting--;
+        } else if (c == '-' && previous != 0 && position < regex.length() && regex.charAt(position) != ']') {
+          char upper = regex.charAt(position);
+          if (previous <= '\n' && upper >= '\n') {
+            canMatchLineFeed = true;
+          }
+        } else if (c == '\n') {
+          canMatchLineFeed = true;
+        } else {
+          previous = c;
+        }
+      }
+      return canMatchLineFeed;
+    }
+
+    /**
+     * Handle the start of a group, the position is after the opening parenthesis
+     *
+     * @return false if the group means we can't analyze the regex
+     */
+    private boolean group() {
+      depth++;
+      if (position < regex.length() && regex.charAt(position) == '?') {
+        int flagsEnd = position + 1;
+        while (flagsEnd < regex.length() && "idmsuxU-".indexOf(regex.charAt(flagsEnd)) >= 0) {
+          flagsEnd++;
+        }
+        String flags = regex.substring(position + 1, flagsEnd);
+        if (flags.indexOf('i') >= 0 || flags.indexOf('x') >= 0) {
+          return false;
+        }
+        if (flagsEnd < regex.length() && regex.charAt(flagsEnd) == ')') {
+          // an inline flag, rather than a group
+          depth--;
+          position = flagsEnd + 1;
+          nonLiteral(false);
+          return true;
+        }
+        if (!flags.isEmpty() || (flagsEnd < regex.length() && regex.charAt(flagsEnd) == ':')) {
+          // a non-capturing group, possibly with flags
+          position = flagsEnd + 1;
+          nonLiteral(false);
+        } else if (regex.startsWith("<", flagsEnd) && !regex.startsWith("<=", flagsEnd)
+          && !regex.startsWith("<!", flagsEnd)) {
+          // a named group, skip over the name
+          int close = regex.indexOf('>', flagsEnd);
+          position = close < 0 ? regex.length() : close + 1;
+          nonLiteral(false);
+        } else {
+          // lookarounds and atomic groups might look anywhere, so treat them like anything else we don't understand
+          position = regex.startsWith("<", flagsEnd) ? flagsEnd + 2 : flagsEnd + 1;
+          nonLiteral(true);
+        }
+        return true;
+      }
+      nonLiteral(false);
+      return true;
+    }
+
+    /**
+     * Handle a bounded quantifier, e.g. {2,3}, the position is after the opening brace
+     *
+     * @return false if this isn't a valid quantifier
+     */
+    private boolean boundedQuantifier() {
+      int close = regex.indexOf('}', position);
+      if (close < 0) {
+        return false;
+      }
+      String bounds = regex.substring(position, close);
+      position = close + 1;
+      int comma = bounds.indexOf(',');
+      String lower = comma < 0 ? bounds : bounds.substring(0, comma);
+      try {
+        quantifier(Integer.parseInt(lower.trim()));
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+
+    /**
+     * Apply a quantifier to the last atom
+     *
+     * @param minimum the minimum number of times the atom must appear
+     */
+    private void quantifier(int minimum) {
+      // skip the lazy or possessive modifier
+      if (position < regex.length() && (regex.charAt(position) == '?' || regex.charAt(position) == '+')) {
+        position++;
+      }
+      if (wasLiteral && 0 == minimum) {
+        // the last char is optional, so it's not required
+        run.setLength(run.length() - 1);
+      }
+      nonLiteral(false);
+    }
+
+    private void literal(char c) {
+      canMatchLineFeed |= c == '\n';
+      if (0 == depth) {
+        if (literals.isEmpty() && 0 == run.length()) {
+          // this is the start of the first literal
+          canPrefixMatchLineFeed |= c == '\n';
+        }
+        run.append(c);
+        wasLiteral = true;
+      } else {
+        nonLiteral(c == '\n');
+      }
+    }
+
+    /**
+     * Something other than a literal char in the regex, this ends the current literal run
+     *
+     * @param canMatchLineFeed true if the thing might match a line feed
+     */
+    private void nonLiteral(boolean canMatchLineFeed) {
+      hasNonLiteral = true;
+      wasLiteral = false;
+      this.canMatchLineFeed |= canMatchLineFeed;
+      endRun();
+      if (literals.isEmpty()) {
+        canPrefixMatchLineFeed |= canMatchLineFeed;
+      }
+    }
+
+    private void endRun() {
+      if (run.length() > 0) {
+        literals.add(run.toString());
+        run.setLength(0);
+      }
+    }
+  }
+}
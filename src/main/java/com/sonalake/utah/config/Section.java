@@ -0,0 +1,102 @@
+package com.sonalake.utah.config;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import com.sonalake.utah.regex.RegexEngine;
+import com.sonalake.utah.regex.RegexEngines;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * A region of a record, that values can be restricted to. This is for very large records, e.g. a whole
+ * <code>show tech-support</code> dump, where each value is only in one part of the text, and searching all of the
+ * text for every value would be slow.
+ * <p>
+ * The section starts at the first line of the record that matches the start regex, and runs up to, but not including,
+ * the next line that matches the end regex, or to the end of the record if there's no end regex, or no line matches
+ * it. As with the delimiters, a regex must match the whole line. If no line matches the start regex, then the
+ * section isn't in the record, and the values in it take their defaults.
+ */
+public class Section {
+
+  /**
+   * The name of the section, values use this to say they're in the section
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "id")
+  String id;
+
+  /**
+   * The regex for the first line of the section
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "start")
+  String start;
+
+  /**
+   * The regex for the line after the section, this is optional
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "end")
+  String end;
+
+  private ThreadLocalMatcher startMatcher;
+  private ThreadLocalMatcher endMatcher;
+
+  /**
+   * Default constructor (needed for jaxb)
+   */
+  public Section() {
+  }
+
+  /**
+   * @param id    the name of the section
+   * @param start the regex for the first line of the section
+   * @param end   the regex for the line after the section, or null
+   */
+  Section(String id, String start, String end) {
+    this.id = id;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Compile the patterns, based on the configured searches
+   *
+   * @param searches the searches
+   * @param engine   the regex engine
+   */
+  void compile(List<NameValue> searches, RegexEngine engine) {
+    if (StringUtils.isBlank(id) || StringUtils.isBlank(start)) {
+      throw new IllegalArgumentException(String.format("Section must have an id and a start: %s", this));
+    }
+    if (null == startMatcher) {
+      startMatcher = new ThreadLocalMatcher(RegexEngines.compile(engine, SearchHelper.translate(start, searches), 0));
+      if (null != end) {
+        endMatcher = new ThreadLocalMatcher(RegexEngines.compile(engine, SearchHelper.translate(end, searches), 0));
+      }
+    }
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @param line a line of the record
+   * @return true if the line is the first line of the section
+   */
+  boolean isStart(CharSequence line) {
+    return startMatcher.matches(line);
+  }
+
+  /**
+   * @param line a line of the record, after the first line of the section
+   * @return true if the line is the first line after the section
+   */
+  boolean isEnd(CharSequence line) {
+    return null != endMatcher && endMatcher.matches(line);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("'%s' => '%s' to '%s'", id, start, end);
+  }
+}
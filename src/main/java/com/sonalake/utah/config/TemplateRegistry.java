@@ -0,0 +1,208 @@
+package com.sonalake.utah.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of compiled configs, so that a template that's loaded again and again is only parsed and compiled once.
+ * <p>
+ * Configs are keyed by where they were loaded from and the SHA-256 hash of their content, so a template that's changed
+ * is compiled again. A compiled config is thread-safe, so the same config is returned to every caller. When the
+ * registry is full the least recently used config is evicted. This can be used from any thread.
+ */
+public class TemplateRegistry {
+
+  static final int DEFAULT_MAX_SIZE = 1024;
+
+  private final ConfigLoader loader = new ConfigLoader();
+  private final int maxSize;
+  private final Map<Key, Config> configs;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Build a registry that holds up to 1024 configs
+   */
+  public TemplateRegistry() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Build a registry
+   *
+   * @param maxSize the maximum number of configs held
+   */
+  public TemplateRegistry(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException(String.format("Max size must be positive, not %s", maxSize));
+    }
+    this.maxSize = maxSize;
+    this.configs = new LinkedHashMap<Key, Config>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Config> eldest) {
+        if (size() > TemplateRegistry.this.maxSize) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Get the config at a URL, this is only compiled if its content isn't already in the registry
+   *
+   * @param url the location of the config
+   * @return the config
+   * @throws IOException should the file fail to load or be parseable
+   */
+  public Config getConfig(URL url) throws IOException {
+    try (InputStream in = url.openStream()) {
+      return getConfig(url.toString(), readFully(in));
+    }
+  }
+
+  /**
+   * Get the config in a file, this is only compiled if its content isn't already in the registry
+   *
+   * @param file the config file
+   * @return the config
+   * @throws IOException should the file fail to load or be parseable
+   */
+  public Config getConfig(Path file) throws IOException {
+    return getConfig(file.toUri().toString(), Files.readAllBytes(file));
+  }
+
+  /**
+   * Get a config, this is only compiled if its content isn't already in the registry for the location
+   *
+   * @param location where the config came from
+   * @param content  the content of the config
+   * @return the config
+   * @throws IOException should the config fail to be parseable
+   */
+  public Config getConfig(String location, byte[] content) throws IOException {
+    Key key = new Key(location, sha256(content));
+    synchronized (this) {
+      Config config = configs.get(key);
+      if (null != config) {
+        hits++;
+        return config;
+      }
+      misses++;
+    }
+    // compile outside of the lock, so that other templates can still be looked up, if two threads race to compile the
+    // same template then the first one in wins
+    Config compiled = loader.loadConfig(content);
+    synchronized (this) {
+      Config config = configs.get(key);
+      if (null != config) {
+        return config;
+      }
+      configs.put(key, compiled);
+      return compiled;
+    }
+  }
+
+  /**
+   * @return the number of configs that were found in the registry
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * @return the number of configs that had to be compiled
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * @return the number of configs that were evicted to make room for others
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * @return the number of configs in the registry
+   */
+  public synchronized int size() {
+    return configs.size();
+  }
+
+  /**
+   * Remove all the configs, the statistics aren't reset
+   */
+  public synchronized void clear() {
+    configs.clear();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format(
+      "TemplateRegistry: size [%s/%s], hits [%s], misses [%s], evictions [%s]",
+      configs.size(), maxSize, hits, misses, evictions
+    );
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  static byte[] sha256(byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      // every java platform has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The location and content hash of a config
+   */
+  private static final class Key {
+    private final String location;
+    private final byte[] hash;
+
+    Key(String location, byte[] hash) {
+      this.location = location;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return location.equals(key.location) && Arrays.equals(hash, key.hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * location.hashCode() + Arrays.hashCode(hash);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.sonalake.utah.config;
+
+/**
+ * Helpers for searching record text. The records are usually views over a parser's buffer, rather than strings, so
+ * these work on any char sequence without copying it.
+ */
+final class TextHelper {
+
+  private TextHelper() {
+  }
+
+  /**
+   * Find the start of the line that contains an index
+   *
+   * @param text  the text
+   * @param index the index
+   * @return the index of the first char in the line
+   */
+  static int lineStart(CharSequence text, int index) {
+    for (int i = index - 1; i >= 0; i--) {
+      if (text.charAt(i) == '\n') {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+}
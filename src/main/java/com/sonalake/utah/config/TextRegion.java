@@ -0,0 +1,71 @@
+package com.sonalake.utah.config;
+
+/**
+ * A read-only view over a region of some text, so that a regex can be run over part of a record without copying it.
+ * Like {@link java.util.regex.Matcher#region(int, int)}, anchors match at the ends of the region. A view can be
+ * re-pointed at another region, so it's only valid until it's next set.
+ */
+final class TextRegion implements CharSequence {
+
+  private CharSequence text;
+  private int start;
+  private int end;
+
+  TextRegion() {
+    this("", 0, 0);
+  }
+
+  /**
+   * @param text  the text
+   * @param start the offset of the first char in the region
+   * @param end   the offset after the last char in the region
+   */
+  TextRegion(CharSequence text, int start, int end) {
+    this.text = text;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Point this view at a new region
+   *
+   * @param newText  the text
+   * @param newStart the offset of the first char in the region
+   * @param newEnd   the offset after the last char in the region
+   * @return this view
+   */
+  TextRegion set(CharSequence newText, int newStart, int newEnd) {
+    this.text = newText;
+    this.start = newStart;
+    this.end = newEnd;
+    return this;
+  }
+
+  @Override
+  public int length() {
+    return end - start;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= end - start) {
+      throw new IndexOutOfBoundsException(String.format("Index %s is outside the region of length %s",
+        index, end - start));
+    }
+    return text.charAt(start + index);
+  }
+
+  @Override
+  public CharSequence subSequence(int from, int to) {
+    if (from < 0 || to > end - start || from > to) {
+      throw new IndexOutOfBoundsException(String.format("Range %s to %s is outside the region of length %s",
+        from, to, end - start));
+    }
+    return text.subSequence(start + from, start + to);
+  }
+
+  @Override
+  public String toString() {
+    return text.subSequence(start, end).toString();
+  }
+}
@@ -0,0 +1,45 @@
+package com.sonalake.utah.config;
+
+import com.sonalake.utah.regex.CompiledRegex;
+import com.sonalake.utah.regex.RegexMatcher;
+
+/**
+ * A matcher for a compiled regex that's kept for each thread, and reset for each text. A config can be shared by many
+ * parsers on many threads, so it can't hold a single matcher, but building a new one for every line is expensive.
+ * <p>
+ * The matcher is reset to an empty text once it's been used, so that it doesn't keep the parser's buffers reachable
+ * after the parse is over.
+ */
+final class ThreadLocalMatcher {
+
+  private final ThreadLocal<RegexMatcher> matchers;
+
+  /**
+   * @param regex the compiled regex
+   */
+  ThreadLocalMatcher(CompiledRegex regex) {
+    this.matchers = ThreadLocal.withInitial(() -> regex.matcher(""));
+  }
+
+  /**
+   * @param text the text
+   * @return true if the regex matches the whole of the text
+   */
+  boolean matches(CharSequence text) {
+    RegexMatcher matcher = matcher(text);
+    try {
+      return matcher.matches();
+    } finally {
+      matcher.reset("");
+    }
+  }
+
+  /**
+   * @param text the text
+   * @return this thread's matcher, reset for the text, this is only good until the next call on the same thread, and
+   * it should be reset to an empty text once it's been used
+   */
+  RegexMatcher matcher(CharSequence text) {
+    return matchers.get().reset(text);
+  }
+}
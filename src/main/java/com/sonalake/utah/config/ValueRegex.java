@@ -2,8 +2,11 @@ package com.sonalake.utah.config;
 
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 
+import com.sonalake.utah.regex.CompiledRegex;
+import com.sonalake.utah.regex.RegexEngine;
+import com.sonalake.utah.regex.RegexEngines;
+
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -14,6 +17,16 @@ import static com.sonalake.utah.config.SearchHelper.translate;
  */
 public class ValueRegex extends NameValue {
 
+  /**
+   * The value is searched for in each line of the record in turn
+   */
+  public static final String LINE_SCOPE = "line";
+
+  /**
+   * The value is searched for in the whole of the record text
+   */
+  public static final String RECORD_SCOPE = "record";
+
   /**
    * This is the group that will be used when pulling values out of the test string.
    */
@@ -26,10 +39,51 @@ public class ValueRegex extends NameValue {
   @JacksonXmlProperty(isAttribute = true, localName = "default")
   String defaultValue;
 
+  /**
+   * The regex engine for this value, if it's not set, then the config's engine is used
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "engine")
+  String engine;
+
+  /**
+   * Where the value is searched for, either {@link #LINE_SCOPE} or {@link #RECORD_SCOPE}. If it's not set, then a value
+   * that can only ever match within a line is line scoped, and any other value is record scoped.
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "scope")
+  String scope;
+
+  /**
+   * The id of the section the value is in, if it's not set, then the value is searched for in the whole record
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "section")
+  String section;
+
+  /**
+   * The type of the value, see {@link ValueType}, if it's not set, then the value is a string
+   */
+  @JacksonXmlProperty(isAttribute = true, localName = "type")
+  String type;
+
   /**
    * The compiled regex
    */
-  private Pattern compiledPattern;
+  private CompiledRegex compiledPattern;
+
+  /**
+   * The literals that must be in the record text for the regex to match
+   */
+  private RequiredLiterals requiredLiterals;
+
+  /**
+   * True if the value is searched for in each line of the record in turn
+   */
+  private boolean isLineScoped;
+
+  /**
+   * The compiled type, and the default value, if there is one and the value is typed
+   */
+  private ValueType valueType;
+  private long defaultNumber;
 
   /**
    * Default constructor (needed for jaxb)
@@ -56,18 +110,31 @@ public class ValueRegex extends NameValue {
   }
 
   /**
-   * Compile the regex for use later on
+   * Compile the regex for use later on. The regex is searched for anywhere in the record text, rather than matched
+   * against the whole of it, so that we can start the search on the line where its required literals are.
+   * <p>
+   * A regex with a top-level alternation, e.g. <code>A|B</code>, is still matched against the whole record, as
+   * <code>.*?A|B.*</code>, as it always has been, so the first alternative has to be at the end of the record, and the
+   * last at the start.
    *
-   * @param searches the searches in the value
+   * @param searches      the searches in the value
+   * @param defaultEngine the engine to use, if this value doesn't have one of its own
    */
-  void compile(List<NameValue> searches) {
+  void compile(List<NameValue> searches, RegexEngine defaultEngine) {
     if (null == compiledPattern) {
-      String lineRegex = translate(getValue(), searches);
-      String regex = String.format(".*?%s.*", lineRegex);
+      String regex = translate(getValue(), searches);
+      RegexEngine regexEngine = null == engine ? defaultEngine : RegexEngines.get(engine);
       try {
-        Pattern valuePattern = Pattern.compile(regex, Pattern.DOTALL);
+        requiredLiterals = RequiredLiterals.of(regex);
+        String searchRegex = requiredLiterals.isAlternation() ? String.format("\\A(?:.*?%s.*)\\z", regex) : regex;
+        CompiledRegex valuePattern = RegexEngines.compile(regexEngine, searchRegex, Pattern.DOTALL);
         validatePattern(valuePattern);
         compiledPattern = valuePattern;
+        isLineScoped = isLineScoped(requiredLiterals);
+        valueType = ValueType.of(type);
+        if (valueType != ValueType.STRING && hasDefaultValue()) {
+          defaultNumber = parseDefault();
+        }
       } catch (PatternSyntaxException e) {
         throw new IllegalArgumentException(
           String.format("Pattern for '%s' is not a valid regex '%s'", getValue(), regex)
@@ -76,13 +143,42 @@ public class ValueRegex extends NameValue {
     }
   }
 
+  /**
+   * Work out the scope of the value
+   *
+   * @param literals the analysis of the regex
+   * @return true if the value is searched for in each line in turn
+   */
+  private boolean isLineScoped(RequiredLiterals literals) {
+    if (null == scope) {
+      return literals.isSingleLine();
+    } else if (LINE_SCOPE.equals(scope)) {
+      return true;
+    } else if (RECORD_SCOPE.equals(scope)) {
+      return false;
+    }
+    throw new IllegalArgumentException(
+      String.format("Scope for '%s' must be '%s' or '%s', not '%s'", this, LINE_SCOPE, RECORD_SCOPE, scope)
+    );
+  }
+
+  private long parseDefault() {
+    try {
+      return valueType.parse(defaultValue);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Default for '%s' is not a valid %s: '%s'", this, valueType.getName(), defaultValue)
+      );
+    }
+  }
+
   /**
    * Validate that the pattern is acceptable - i.e. that it parses as a regex and contains a single group
    *
    * @param candidate the candidate pattern
    */
-  private void validatePattern(Pattern candidate) {
-    int count = candidate.matcher("").groupCount();
+  private void validatePattern(CompiledRegex candidate) {
+    int count = candidate.groupCount();
     if (count < getGroup()) {
       throw new IllegalArgumentException(
         String.format("Pattern for '%s' should have at least %s group, not '%s'; in: %s",
@@ -92,13 +188,51 @@ public class ValueRegex extends NameValue {
   }
 
   /**
-   * Build the matcher for the record text
+   * Get the compiled pattern, this is searched for in the record text
+   *
+   * @return the pattern
+   */
+  CompiledRegex getPattern() {
+    return compiledPattern;
+  }
+
+  /**
+   * @return the literals that must be in the record text for the regex to match
+   */
+  RequiredLiterals getRequiredLiterals() {
+    return requiredLiterals;
+  }
+
+  /**
+   * A line scoped value is searched for in each line of the record, and takes its value from the first line that it
+   * matches. Within that line, the regex sees only the line, so anchors match at the start and end of the line.
    *
-   * @param recordText the record text
-   * @return the matcher for this pattern
+   * @return true if the value is searched for in each line of the record in turn
+   */
+  boolean isLineScoped() {
+    return isLineScoped;
+  }
+
+  /**
+   * @return the type of the value
+   */
+  ValueType getType() {
+    return valueType;
+  }
+
+  /**
+   * @return the default value, converted to the value's type, this is only valid if the value is typed and has a
+   * default
+   */
+  long getDefaultNumber() {
+    return defaultNumber;
+  }
+
+  /**
+   * @return the id of the section the value is in, or null if it's searched for in the whole record
    */
-  Matcher buildMatcher(String recordText) {
-    return compiledPattern.matcher(recordText);
+  String getSection() {
+    return section;
   }
 
   /**
@@ -0,0 +1,762 @@
+package com.sonalake.utah.config;
+
+import com.sonalake.utah.regex.CompiledRegex;
+import com.sonalake.utah.regex.RegexMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The compiled values for a section of the config (i.e. the header or the records).
+ * <p>
+ * It's common for many values to use the same regex, and differ only in the group they take, e.g. where a search is
+ * defined for the whole of a line. So, the values are grouped by their compiled regex, and each distinct regex is
+ * only run once per record; its groups are then shared by every value that uses it.
+ * <p>
+ * Most values don't match most records, so before a regex is run we check that the record has all the literals the
+ * regex needs, and then only search from the line where the first of them is. The literals for all the regexes are
+ * found together, in one pass over the record, by a {@link LiteralScanner}.
+ * <p>
+ * Line scoped regexes are run against each line in turn, until they match, so they can be run as the lines are read
+ * (see {@link RecordState}); the record scoped regexes are only run once the whole record has been read.
+ * <p>
+ * A value in a {@link Section} is only searched for in the section's region of the record. The regions are found in
+ * the same pass over the lines that runs the line scoped regexes.
+ * <p>
+ * If the values are ordered, i.e. they're declared in the order they appear in the record, then each record scoped
+ * regex is searched for from the end of the last match, rather than from the start of the record, and only if that
+ * fails is the whole record searched.
+ */
+class ValueSet {
+
+  /**
+   * The values, in the order they are applied
+   */
+  private final ValueRegex[] values;
+
+  /**
+   * The distinct patterns used by the values
+   */
+  private final CompiledRegex[] patterns;
+
+  /**
+   * The literals required by each of the distinct patterns
+   */
+  private final RequiredLiterals[] literals;
+
+  /**
+   * For each of the distinct patterns, the index in the scanner for its scope of each of its literals
+   */
+  private final int[][] literalIndexes;
+
+  /**
+   * For each of the distinct patterns, the groups that the values take from it
+   */
+  private final int[][] groups;
+
+  /**
+   * The line scoped patterns
+   */
+  private final int[] linePatterns;
+
+  /**
+   * True for each of the distinct patterns that are line scoped
+   */
+  private final boolean[] isLineScoped;
+
+  /**
+   * Find all the literals in a line, and in a record
+   */
+  private final LiteralScanner lineScanner;
+  private final LiteralScanner recordScanner;
+
+  /**
+   * For each value, the index of its pattern
+   */
+  private final int[] patternIndexes;
+
+  /**
+   * The sections that the values are in
+   */
+  private final Section[] sections;
+
+  /**
+   * For each of the distinct patterns, the index of its section, or -1 if it's searched for in the whole record
+   */
+  private final int[] patternSections;
+
+  /**
+   * True if the values are in the order they appear in the record
+   */
+  private final boolean isOrdered;
+
+  /**
+   * The fields of the records, and, for each value, the slot of its field
+   */
+  private final RecordSchema schema;
+  private final int[] slots;
+
+  /**
+   * Somewhere to keep what's found in each record, for records that are built in one go, so that the working space,
+   * and the matchers, are reused rather than built for every record
+   */
+  private final ThreadLocal<Matches> threadMatches = ThreadLocal.withInitial(() -> newMatches(false));
+
+  /**
+   * Build the set from compiled values
+   *
+   * @param sourceValues the values, in the order they are applied
+   * @param allSections  the sections, values can only be in these
+   * @param isOrdered    true if the values are in the order they appear in the record
+   * @param schema       the fields of the records, this must include the ids of the values
+   */
+  ValueSet(List<ValueRegex> sourceValues, List<Section> allSections, boolean isOrdered, RecordSchema schema) {
+    this.values = sourceValues.toArray(new ValueRegex[0]);
+    this.isOrdered = isOrdered;
+    this.schema = schema;
+    this.slots = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      slots[i] = schema.getSlot(values[i].getId());
+    }
+    this.patternIndexes = new int[values.length];
+
+    // only keep the sections that are used
+    Map<String, Section> sectionsById = new LinkedHashMap<>();
+    for (Section section : allSections) {
+      sectionsById.put(section.getId(), section);
+    }
+    Map<String, Integer> sectionIndexes = new LinkedHashMap<>();
+    List<Section> usedSections = new ArrayList<>();
+    for (ValueRegex value : values) {
+      String sectionId = value.getSection();
+      if (null != sectionId && !sectionIndexes.containsKey(sectionId)) {
+        Section section = sectionsById.get(sectionId);
+        if (null == section) {
+          throw new IllegalArgumentException(
+            String.format("Value %s is in section '%s', which isn't defined", value, sectionId)
+          );
+        }
+        sectionIndexes.put(sectionId, usedSections.size());
+        usedSections.add(section);
+      }
+    }
+    this.sections = usedSections.toArray(new Section[0]);
+
+    // the same regex in a different scope or section can match something else, so it's a different pattern
+    Map<String, Integer> distinct = new LinkedHashMap<>();
+    List<ValueRegex> distinctValues = new ArrayList<>();
+    List<TreeSet<Integer>> distinctGroups = new ArrayList<>();
+    for (int i = 0; i < values.length; i++) {
+      String key = (values[i].isLineScoped() ? "line:" : "record:") + values[i].getSection() + ":"
+        + values[i].getPattern().pattern();
+      Integer index = distinct.get(key);
+      if (null == index) {
+        index = distinctValues.size();
+        distinct.put(key, index);
+        distinctValues.add(values[i]);
+        distinctGroups.add(new TreeSet<Integer>());
+      }
+      distinctGroups.get(index).add(values[i].getGroup());
+      patternIndexes[i] = index;
+    }
+
+    int count = distinctValues.size();
+    this.patterns = new CompiledRegex[count];
+    this.literals = new RequiredLiterals[count];
+    this.groups = new int[count][];
+    this.isLineScoped = new boolean[count];
+    this.patternSections = new int[count];
+    this.literalIndexes = new int[count][];
+    List<Integer> lineIndexes = new ArrayList<>();
+    Map<String, Integer> lineLiterals = new LinkedHashMap<>();
+    Map<String, Integer> recordLiterals = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      ValueRegex value = distinctValues.get(i);
+      patterns[i] = value.getPattern();
+      literals[i] = value.getRequiredLiterals();
+      isLineScoped[i] = value.isLineScoped();
+      patternSections[i] = null == value.getSection() ? -1 : sectionIndexes.get(value.getSection());
+      if (isLineScoped[i]) {
+        lineIndexes.add(i);
+      }
+      groups[i] = new int[distinctGroups.get(i).size()];
+      int g = 0;
+      for (int group : distinctGroups.get(i)) {
+        groups[i][g++] = group;
+      }
+
+      Map<String, Integer> scopeLiterals = isLineScoped[i] ? lineLiterals : recordLiterals;
+      List<String> patternLiterals = literals[i].getLiterals();
+      literalIndexes[i] = new int[patternLiterals.size()];
+      for (int j = 0; j < patternLiterals.size(); j++) {
+        String literal = patternLiterals.get(j);
+        scopeLiterals.putIfAbsent(literal, scopeLiterals.size());
+        literalIndexes[i][j] = scopeLiterals.get(literal);
+      }
+    }
+    this.linePatterns = new int[lineIndexes.size()];
+    for (int i = 0; i < linePatterns.length; i++) {
+      linePatterns[i] = lineIndexes.get(i);
+    }
+    this.lineScanner = new LiteralScanner(new ArrayList<>(lineLiterals.keySet()));
+    this.recordScanner = new LiteralScanner(new ArrayList<>(recordLiterals.keySet()));
+  }
+
+  /**
+   * @return the number of distinct patterns that are run against each record
+   */
+  int getPatternCount() {
+    return patterns.length;
+  }
+
+  /**
+   * @return true if any of the values are line scoped
+   */
+  boolean hasLinePatterns() {
+    return linePatterns.length > 0;
+  }
+
+  /**
+   * @return true if any of the values are record scoped, i.e. they need the whole of the record text
+   */
+  boolean hasRecordPatterns() {
+    return linePatterns.length < patterns.length;
+  }
+
+
+  /**
+   * @param isCopyingLines true if the lines are added one at a time, and so the groups found in them have to be
+   *                       copied, or false if the lines are read from the record text
+   * @return somewhere to keep what's been found in a record
+   */
+  Matches newMatches(boolean isCopyingLines) {
+    return new Matches(this, isCopyingLines);
+  }
+
+  /**
+   * Build a map of name/values from the record text
+   *
+   * @param text   The candidate text for parsing
+   * @param budget the limit on the work that can be done for the record, or null if there's no limit
+   * @return the record
+   */
+  Record buildMap(CharSequence text, MatchBudget budget) {
+    Matches matches = threadMatches.get();
+    matches.reset();
+    matchLines(matches, text, budget);
+    return buildMap(matches, text, budget);
+  }
+
+  /**
+   * Pass the values from the record text to a visitor, in slot order. The values are views over the record text.
+   *
+   * @param matches somewhere to keep what's been found, this is reset first
+   * @param text    the record text
+   * @param budget  the limit on the work that can be done for the record, or null if there's no limit
+   * @param header  the header values, these hide the record's own values, or null if there's no header
+   * @param visitor the visitor
+   */
+  void visit(Matches matches, CharSequence text, MatchBudget budget, Record header, RecordVisitor visitor) {
+    try {
+      emit(matches, text, budget, header, visitor);
+    } finally {
+      matches.release();
+    }
+  }
+
+  private void emit(Matches matches, CharSequence text, MatchBudget budget, Record header, RecordVisitor visitor) {
+    matches.reset();
+    matchLines(matches, text, budget);
+    matchRecord(matches, text, budget);
+
+    // the last value for each field wins, as it would in a map
+    int[] winners = matches.winners;
+    Arrays.fill(winners, -1);
+    for (int i = 0; i < values.length; i++) {
+      ValueType type = values[i].getType();
+      boolean isSet = false;
+      matches.isDefault[i] = false;
+      if (matches.isFound[patternIndexes[i]]) {
+        if (type == ValueType.STRING) {
+          isSet = true;
+        } else {
+          CharSequence found = matches.groupView(patternIndexes[i], values[i].getGroup(), text);
+          isSet = null != found && convert(type, found, matches.numbers, i);
+        }
+      }
+      if (!isSet && values[i].hasDefaultValue()) {
+        isSet = true;
+        matches.isDefault[i] = true;
+        matches.numbers[i] = values[i].getDefaultNumber();
+      }
+      if (isSet) {
+        winners[slots[i]] = i;
+      }
+    }
+
+    visitor.startRecord();
+    for (int slot = 0; slot < winners.length; slot++) {
+      ValueType type = schema.getType(slot);
+      if (null != header && header.isSet(slot)) {
+        if (type == ValueType.STRING) {
+          visitor.field(slot, schema.getId(slot), header.get(slot));
+        } else {
+          visitor.field(slot, schema.getId(slot), type, header.getLong(slot));
+        }
+      } else if (winners[slot] >= 0) {
+        int i = winners[slot];
+        if (type != ValueType.STRING) {
+          visitor.field(slot, schema.getId(slot), type, matches.numbers[i]);
+        } else if (matches.isDefault[i]) {
+          visitor.field(slot, schema.getId(slot), values[i].getDefaultValue());
+        } else {
+          visitor.field(slot, schema.getId(slot), matches.groupView(patternIndexes[i], values[i].getGroup(), text));
+        }
+      }
+    }
+    visitor.endRecord();
+  }
+
+  /**
+   * Run the line scoped patterns, and find the sections, in the lines of the record text
+   *
+   * @param matches what's been found in the record so far
+   * @param text    the record text
+   * @param budget  the limit on the work that can be done for the record, or null if there's no limit
+   */
+  private void matchLines(Matches matches, CharSequence text, MatchBudget budget) {
+    if (hasLinePatterns() || sections.length > 0) {
+      int start = 0;
+      int length = text.length();
+      while (start < length && matches.needsMoreLines()) {
+        int end = start;
+        while (end < length && text.charAt(end) != '\n') {
+          end++;
+        }
+        matchLine(matches, matches.line.set(text, start, end), budget);
+        start = end + 1;
+      }
+    }
+  }
+
+  /**
+   * Run the line scoped patterns, that haven't matched yet, against the next line of the record
+   *
+   * @param matches what's been found in the record so far
+   * @param line    the line, without its line feed
+   * @param budget  the limit on the work that can be done for the record, or null if there's no limit
+   */
+  void matchLine(Matches matches, CharSequence line, MatchBudget budget) {
+    int lineStart = matches.lineOffset;
+    matches.lineOffset += line.length() + 1;
+    for (int i = 0; i < sections.length; i++) {
+      if (matches.sectionStarts[i] < 0) {
+        if (sections[i].isStart(line)) {
+          matches.sectionStarts[i] = lineStart;
+        }
+      } else if (matches.sectionEnds[i] < 0 && sections[i].isEnd(line)) {
+        matches.sectionEnds[i] = lineStart;
+      }
+    }
+
+    if (0 == matches.remainingLinePatterns) {
+      return;
+    }
+    CharSequence source = null == budget ? line : budget.wrap(line);
+    int[] occurrences = scan(lineScanner, source, matches.lineOccurrences);
+    for (int patternIndex : linePatterns) {
+      if (!matches.isFound[patternIndex] && matches.isInSection(patternSections[patternIndex])
+        && find(patternIndex, source, occurrences, 0, lineStart, matches)) {
+        matches.remainingLinePatterns--;
+      }
+    }
+  }
+
+  /**
+   * Build a map of name/values, from what was found in the lines of the record, and the record text
+   *
+   * @param matches what was found in the lines of the record
+   * @param text    the record text, this is only read if there are record scoped values
+   * @param budget  the limit on the work that can be done for the record, or null if there's no limit
+   * @return the record
+   */
+  Record buildMap(Matches matches, CharSequence text, MatchBudget budget) {
+    try {
+      return buildRecord(matches, text, budget);
+    } finally {
+      matches.release();
+    }
+  }
+
+  private Record buildRecord(Matches matches, CharSequence text, MatchBudget budget) {
+    matchRecord(matches, text, budget);
+
+    // skoot through the each of the values in turn, and parse out the fields
+    // from the record. We only store the value if the group matches.
+    Record result = new Record(schema);
+    long[] number = matches.numbers;
+    for (int i = 0; i < values.length; i++) {
+      ValueRegex valueRegex = values[i];
+      ValueType type = valueRegex.getType();
+      int patternIndex = patternIndexes[i];
+      if (!matches.isFound[patternIndex]) {
+        setDefault(result, i);
+      } else if (type == ValueType.STRING) {
+        result.set(slots[i], matches.group(patternIndex, valueRegex.getGroup(), text));
+      } else {
+        // a typed value that can't be converted is treated as if it didn't match
+        CharSequence found = matches.groupView(patternIndex, valueRegex.getGroup(), text);
+        if (null != found && convert(type, found, number, 0)) {
+          result.setLong(slots[i], number[0]);
+        } else {
+          setDefault(result, i);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void setDefault(Record result, int valueIndex) {
+    ValueRegex valueRegex = values[valueIndex];
+    if (!valueRegex.hasDefaultValue()) {
+      return;
+    }
+    if (valueRegex.getType() == ValueType.STRING) {
+      result.set(slots[valueIndex], valueRegex.getDefaultValue());
+    } else {
+      result.setLong(slots[valueIndex], valueRegex.getDefaultNumber());
+    }
+  }
+
+  /**
+   * Convert the text of a typed value
+   *
+   * @param type   the type
+   * @param text   the text of the group
+   * @param number the value is put in here
+   * @param index  the index in the array for the value
+   * @return true if the text could be converted
+   */
+  private static boolean convert(ValueType type, CharSequence text, long[] number, int index) {
+    try {
+      number[index] = type.parse(text);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Run the record scoped patterns against the record text, in the order of the values that use them
+   *
+   * @param matches what was found in the lines of the record
+   * @param text    the record text, this is only read if there are record scoped values
+   * @param budget  the limit on the work that can be done for the record, or null if there's no limit
+   */
+  private void matchRecord(Matches matches, CharSequence text, MatchBudget budget) {
+    if (!hasRecordPatterns()) {
+      return;
+    }
+    // each record scoped pattern is only run once, the first time a value needs it
+    boolean[] isEvaluated = matches.isEvaluated;
+    Arrays.fill(isEvaluated, false);
+    CharSequence source = null;
+    int[] occurrences = null;
+    CharSequence[] sectionSources = matches.sectionSources;
+    int[][] sectionOccurrences = matches.sectionOccurrences;
+    Arrays.fill(sectionSources, null);
+    // where the last record scoped match ended, if the values are ordered
+    int cursor = 0;
+
+    for (int i = 0; i < values.length; i++) {
+      int patternIndex = patternIndexes[i];
+      int section = patternSections[patternIndex];
+      if (isLineScoped[patternIndex] || isEvaluated[patternIndex]) {
+        continue;
+      }
+      isEvaluated[patternIndex] = true;
+      if (section < 0) {
+        if (null == source) {
+          source = null == budget ? text : budget.wrap(text);
+          occurrences = scan(recordScanner, source, matches.recordOccurrences);
+        }
+        boolean isFound = cursor > 0 && find(patternIndex, source, occurrences, cursor, 0, matches);
+        if (!isFound) {
+          isFound = find(patternIndex, source, occurrences, 0, 0, matches);
+        }
+        if (isFound && isOrdered) {
+          cursor = matches.lastEnd;
+        }
+      } else if (matches.sectionStarts[section] >= 0) {
+        int start = matches.sectionStarts[section];
+        if (null == sectionSources[section]) {
+          int end = matches.sectionEnds[section] < 0 ? text.length() : matches.sectionEnds[section];
+          CharSequence region = new TextRegion(text, start, end);
+          sectionSources[section] = null == budget ? region : budget.wrap(region);
+          sectionOccurrences[section] = scan(recordScanner, sectionSources[section], matches.sectionSpace[section]);
+        }
+        find(patternIndex, sectionSources[section], sectionOccurrences[section], 0, start, matches);
+      }
+    }
+  }
+
+  /**
+   * Find the first occurrence of each literal
+   *
+   * @param scanner     the scanner for the scope
+   * @param text        the line or record text
+   * @param occurrences the array to put the occurrences in
+   * @return the occurrences, or null if the budget ran out
+   */
+  private int[] scan(LiteralScanner scanner, CharSequence text, int[] occurrences) {
+    try {
+      return scanner.scan(text, occurrences);
+    } catch (MatchBudget.ExceededException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Search for a pattern in the text, and keep what's found
+   *
+   * @param patternIndex the index of the pattern
+   * @param text         the line, section or record text
+   * @param occurrences  the first occurrence of each literal in the text, or null if the budget ran out
+   * @param minimumStart the earliest offset a match can start at
+   * @param base         the offset of the text in the record text
+   * @param matches      the groups, and the end of the match, are kept in here
+   * @return true if the pattern was found
+   */
+  private boolean find(int patternIndex, CharSequence text, int[] occurrences, int minimumStart, int base,
+                       Matches matches) {
+    if (null == occurrences) {
+      return false;
+    }
+    try {
+      int from = 0;
+      int[] required = literalIndexes[patternIndex];
+      for (int i = 0; i < required.length; i++) {
+        int index = occurrences[required[i]];
+        if (index < 0) {
+          return false;
+        }
+        if (0 == i && literals[patternIndex].isPrefixSingleLine()) {
+          from = TextHelper.lineStart(text, index);
+        }
+      }
+
+      // the pattern still sees the text before the line, so anchors and boundaries work as they would on the record
+      RegexMatcher matcher = matches.matchers[patternIndex];
+      if (null == matcher) {
+        matcher = patterns[patternIndex].matcher(text);
+        matches.matchers[patternIndex] = matcher;
+      } else {
+        matcher.reset(text);
+      }
+      if (!matcher.find(Math.max(from, minimumStart))) {
+        return false;
+      }
+      matches.lastEnd = matcher.end(0);
+      if (matches.isCopyingLines && isLineScoped[patternIndex]) {
+        // the line is only valid until the next one is added, so take the groups now
+        String[] found = matches.groups[patternIndex];
+        for (int group : groups[patternIndex]) {
+          found[group] = matcher.group(group);
+        }
+      } else {
+        int[] bounds = matches.bounds[patternIndex];
+        for (int group : groups[patternIndex]) {
+          int start = matcher.start(group);
+          bounds[2 * group] = start < 0 ? -1 : base + start;
+          bounds[2 * group + 1] = start < 0 ? -1 : base + matcher.end(group);
+        }
+      }
+      matches.isFound[patternIndex] = true;
+      return true;
+    } catch (MatchBudget.ExceededException e) {
+      // once the budget's gone, this, and every other value, takes its default
+      return false;
+    }
+  }
+
+  /**
+   * What's been found in a record so far. This can be reset and reused for the next record.
+   */
+  static final class Matches {
+
+    private final boolean isCopyingLines;
+
+    /**
+     * True for each pattern that's been found
+     */
+    private final boolean[] isFound;
+
+    /**
+     * The groups found for each line scoped pattern, if the lines are copied
+     */
+    private final String[][] groups;
+
+    /**
+     * The offsets, in the record text, of the start and end of each group found for each pattern, or -1 if the
+     * group didn't take part in the match
+     */
+    private final int[][] bounds;
+
+    /**
+     * The number of line scoped patterns that haven't been found yet
+     */
+    private int remainingLinePatterns;
+    private final int linePatternCount;
+
+    /**
+     * The offset in the record text of the next line
+     */
+    private int lineOffset;
+
+    /**
+     * The offset of the end of the last match
+     */
+    private int lastEnd;
+
+    /**
+     * The offset in the record text of the start, and the end, of each section, or -1 if it hasn't been found yet
+     */
+    private final int[] sectionStarts;
+    private final int[] sectionEnds;
+
+    /**
+     * Working space, that's reused for each record
+     */
+    private final boolean[] isEvaluated;
+    private final int[] winners;
+    private final boolean[] isDefault;
+    private final long[] numbers;
+    private final CharSequence[] sectionSources;
+    private final int[][] sectionOccurrences;
+    private final int[] lineOccurrences;
+    private final int[] recordOccurrences;
+    private final int[][] sectionSpace;
+    private final TextRegion line = new TextRegion();
+    private final TextRegion view = new TextRegion();
+
+    /**
+     * The matcher for each pattern, these are built when they're first needed, and then reset for each text
+     */
+    private final RegexMatcher[] matchers;
+
+    Matches(ValueSet valueSet, boolean isCopyingLines) {
+      int patternCount = valueSet.patterns.length;
+      this.isCopyingLines = isCopyingLines;
+      this.isFound = new boolean[patternCount];
+      this.groups = new String[patternCount][];
+      this.bounds = new int[patternCount][];
+      for (int i = 0; i < patternCount; i++) {
+        int[] patternGroups = valueSet.groups[i];
+        int size = patternGroups[patternGroups.length - 1] + 1;
+        if (isCopyingLines && valueSet.isLineScoped[i]) {
+          groups[i] = new String[size];
+        } else {
+          bounds[i] = new int[2 * size];
+        }
+      }
+      this.linePatternCount = valueSet.linePatterns.length;
+      this.sectionStarts = new int[valueSet.sections.length];
+      this.sectionEnds = new int[valueSet.sections.length];
+      this.isEvaluated = new boolean[patternCount];
+      this.winners = new int[valueSet.schema.size()];
+      this.isDefault = new boolean[valueSet.values.length];
+      this.numbers = new long[Math.max(1, valueSet.values.length)];
+      this.sectionSources = new CharSequence[valueSet.sections.length];
+      this.sectionOccurrences = new int[valueSet.sections.length][];
+      this.lineOccurrences = new int[valueSet.lineScanner.size()];
+      this.recordOccurrences = new int[valueSet.recordScanner.size()];
+      this.sectionSpace = new int[valueSet.sections.length][valueSet.recordScanner.size()];
+      this.matchers = new RegexMatcher[patternCount];
+      reset();
+    }
+
+    /**
+     * Forget everything that's been found, ready for the next record
+     */
+    void reset() {
+      Arrays.fill(isFound, false);
+      remainingLinePatterns = linePatternCount;
+      lineOffset = 0;
+      lastEnd = 0;
+      Arrays.fill(sectionStarts, -1);
+      Arrays.fill(sectionEnds, -1);
+    }
+
+    /**
+     * Drop every reference to the record text, once the record's been built. The matches for records that are built
+     * in one go are kept for the thread, so this stops them keeping the last record's text, which can be a very large
+     * buffer, reachable until the thread parses another record with the same config.
+     */
+    void release() {
+      for (RegexMatcher matcher : matchers) {
+        if (null != matcher) {
+          matcher.reset("");
+        }
+      }
+      Arrays.fill(sectionSources, null);
+      line.set("", 0, 0);
+      view.set("", 0, 0);
+    }
+
+    /**
+     * @param patternIndex the index of a pattern that's been found
+     * @param group        the group
+     * @param text         the record text
+     * @return the text of the group, or null if the group didn't take part in the match
+     */
+    private String group(int patternIndex, int group, CharSequence text) {
+      if (null != groups[patternIndex]) {
+        return groups[patternIndex][group];
+      }
+      int start = bounds[patternIndex][2 * group];
+      return start < 0 ? null : text.subSequence(start, bounds[patternIndex][2 * group + 1]).toString();
+    }
+
+    /**
+     * @param patternIndex the index of a pattern that's been found
+     * @param group        the group
+     * @param text         the record text
+     * @return the text of the group, as a view that's only valid until the next call, or null if the group didn't
+     * take part in the match
+     */
+    private CharSequence groupView(int patternIndex, int group, CharSequence text) {
+      if (null != groups[patternIndex]) {
+        return groups[patternIndex][group];
+      }
+      int start = bounds[patternIndex][2 * group];
+      return start < 0 ? null : view.set(text, start, bounds[patternIndex][2 * group + 1]);
+    }
+
+    /**
+     * @param section the index of a section, or -1 for the whole record
+     * @return true if the current line is in the section
+     */
+    private boolean isInSection(int section) {
+      return section < 0 || (sectionStarts[section] >= 0 && sectionEnds[section] < 0);
+    }
+
+    /**
+     * @return true if there are line scoped patterns still to find, or sections that haven't ended yet
+     */
+    private boolean needsMoreLines() {
+      if (remainingLinePatterns > 0) {
+        return true;
+      }
+      for (int end : sectionEnds) {
+        if (end < 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
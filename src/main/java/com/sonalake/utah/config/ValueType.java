@@ -0,0 +1,252 @@
+package com.sonalake.utah.config;
+
+import java.util.Locale;
+
+/**
+ * The type of a value. A typed value is converted straight from the chars of its group, without building a string,
+ * and is kept in a record as a long; its text, in the record's map, is the canonical form of the long (e.g. a number
+ * without leading zeros), rather than the text it was converted from.
+ */
+public enum ValueType {
+
+  /**
+   * The text of the group, this is the default
+   */
+  STRING,
+
+  /**
+   * A decimal number, with an optional sign, that fits in an int
+   */
+  INT {
+    @Override
+    long parse(CharSequence text) {
+      long value = parseLong(text);
+      if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+        throw new NumberFormatException("Too big for an int");
+      }
+      return value;
+    }
+  },
+
+  /**
+   * A decimal number, with an optional sign, that fits in a long
+   */
+  LONG {
+    @Override
+    long parse(CharSequence text) {
+      return parseLong(text);
+    }
+  },
+
+  /**
+   * A dotted IPv4 address, e.g. <code>10.0.0.1</code>, as an unsigned 32 bit number
+   */
+  IPV4 {
+    @Override
+    long parse(CharSequence text) {
+      long address = 0;
+      int octets = 0;
+      int i = 0;
+      int length = text.length();
+      while (i < length) {
+        int start = i;
+        int octet = 0;
+        while (i < length && i - start < 3 && isDigit(text.charAt(i))) {
+          octet = octet * 10 + text.charAt(i++) - '0';
+        }
+        if (i == start || octet > 255 || ++octets > 4) {
+          throw new NumberFormatException("Not an IPv4 address");
+        }
+        address = (address << 8) | octet;
+        if (i < length && (text.charAt(i++) != '.' || i == length)) {
+          throw new NumberFormatException("Not an IPv4 address");
+        }
+      }
+      if (octets != 4) {
+        throw new NumberFormatException("Not an IPv4 address");
+      }
+      return address;
+    }
+
+    @Override
+    public String format(long value) {
+      return String.format("%s.%s.%s.%s", value >>> 24, (value >>> 16) & 0xFF, (value >>> 8) & 0xFF, value & 0xFF);
+    }
+  },
+
+  /**
+   * A duration, in seconds, either as <code>hh:mm:ss</code>, e.g. <code>10:37:12</code>, or as a number of units,
+   * e.g. <code>6w3d17h</code>, where the units are y(ears of 365 days), w(eeks), d(ays), h(ours), m(inutes) and
+   * s(econds)
+   */
+  DURATION {
+    @Override
+    long parse(CharSequence text) {
+      return containsColon(text) ? parseClock(text) : parseUnits(text);
+    }
+  };
+
+  /**
+   * The type for the name used in the config
+   *
+   * @param name the name, e.g. <code>long</code>, or null for a string
+   * @return the type
+   */
+  static ValueType of(String name) {
+    if (null == name) {
+      return STRING;
+    }
+    for (ValueType type : values()) {
+      if (type.name().equalsIgnoreCase(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException(String.format("Unknown value type '%s'", name));
+  }
+
+  /**
+   * @return the name used in the config
+   */
+  String getName() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Convert the text of a group
+   *
+   * @param text the text
+   * @return the value
+   * @throws NumberFormatException if the text isn't a valid value of this type
+   */
+  long parse(CharSequence text) {
+    throw new UnsupportedOperationException("Strings aren't converted");
+  }
+
+  /**
+   * @param value a value of this type
+   * @return the canonical text of the value
+   */
+  public String format(long value) {
+    return Long.toString(value);
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static long parseLong(CharSequence text) {
+    int length = text.length();
+    int i = 0;
+    boolean isNegative = false;
+    if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+      isNegative = text.charAt(0) == '-';
+      i++;
+    }
+    if (i == length) {
+      throw new NumberFormatException("Not a number");
+    }
+    // accumulate negatively, so that Long.MIN_VALUE doesn't overflow
+    long limit = isNegative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multiplyLimit = limit / 10;
+    long value = 0;
+    for (; i < length; i++) {
+      char c = text.charAt(i);
+      if (!isDigit(c)) {
+        throw new NumberFormatException("Not a number");
+      }
+      int digit = c - '0';
+      if (value < multiplyLimit || value * 10 < limit + digit) {
+        throw new NumberFormatException("Too big for a long");
+      }
+      value = value * 10 - digit;
+    }
+    return isNegative ? value : -value;
+  }
+
+  /**
+   * @param text e.g. <code>10:37:12</code>
+   * @return the number of seconds
+   */
+  private static long parseClock(CharSequence text) {
+    long[] parts = new long[3];
+    int part = 0;
+    int digits = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == ':' && digits > 0 && part < 2) {
+        part++;
+        digits = 0;
+      } else if (isDigit(c) && (0 == part || digits < 2) && digits < 9) {
+        parts[part] = parts[part] * 10 + c - '0';
+        digits++;
+      } else {
+        throw new NumberFormatException("Not a duration");
+      }
+    }
+    if (part != 2 || 0 == digits || parts[1] >= 60 || parts[2] >= 60) {
+      throw new NumberFormatException("Not a duration");
+    }
+    return parts[0] * 3600 + parts[1] * 60 + parts[2];
+  }
+
+  /**
+   * @param text e.g. <code>6w3d17h</code>
+   * @return the number of seconds
+   */
+  private static long parseUnits(CharSequence text) {
+    long seconds = 0;
+    long number = 0;
+    int digits = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (isDigit(c) && digits < 9) {
+        number = number * 10 + c - '0';
+        digits++;
+        continue;
+      }
+      long unit = unitSeconds(c);
+      if (0 == digits || unit < 0) {
+        throw new NumberFormatException("Not a duration");
+      }
+      seconds += number * unit;
+      number = 0;
+      digits = 0;
+    }
+    if (digits > 0 || 0 == text.length()) {
+      throw new NumberFormatException("Not a duration");
+    }
+    return seconds;
+  }
+
+  /**
+   * @param unit the unit
+   * @return the number of seconds in the unit, or -1 if it's not a unit
+   */
+  private static long unitSeconds(char unit) {
+    switch (unit) {
+      case 'y':
+        return 365L * 24 * 3600;
+      case 'w':
+        return 7L * 24 * 3600;
+      case 'd':
+        return 24L * 3600;
+      case 'h':
+        return 3600;
+      case 'm':
+        return 60;
+      case 's':
+        return 1;
+      default:
+        return -1;
+    }
+  }
+
+  private static boolean containsColon(CharSequence text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == ':') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,158 @@
+package com.sonalake.utah.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of chars, for the linear engine. This is a union of ranges, and of other (possibly negated) sets, which is
+ * itself possibly negated.
+ */
+final class CharClass {
+
+  static final CharClass DIGIT = new CharClass(new int[]{'0', '9'}, new CharClass[0], false);
+  static final CharClass WORD = new CharClass(new int[]{'0', '9', 'A', 'Z', '_', '_', 'a', 'z'}, new CharClass[0], false);
+  static final CharClass SPACE = new CharClass(new int[]{'\t', '\r', ' ', ' '}, new CharClass[0], false);
+  static final CharClass HORIZONTAL_SPACE = new CharClass(new int[]{
+    '\t', '\t', ' ', ' ', 0xA0, 0xA0, 0x1680, 0x1680, 0x180E, 0x180E, 0x2000, 0x200A, 0x202F, 0x202F, 0x205F, 0x205F,
+    0x3000, 0x3000
+  }, new CharClass[0], false);
+
+  /**
+   * Pairs of code points, the lower and upper bounds of each range
+   */
+  private final int[] ranges;
+  private final CharClass[] members;
+  private final boolean isNegated;
+
+  private CharClass(int[] ranges, CharClass[] members, boolean isNegated) {
+    this.ranges = ranges;
+    this.members = members;
+    this.isNegated = isNegated;
+  }
+
+  /**
+   * @return the complement of this set
+   */
+  CharClass negate() {
+    return new CharClass(ranges, members, !isNegated);
+  }
+
+  boolean matches(int codePoint) {
+    boolean isMember = false;
+    for (int i = 0; i < ranges.length && !isMember; i += 2) {
+      isMember = codePoint >= ranges[i] && codePoint <= ranges[i + 1];
+    }
+    for (int i = 0; i < members.length && !isMember; i++) {
+      isMember = members[i].matches(codePoint);
+    }
+    return isMember != isNegated;
+  }
+
+  /**
+   * @param max the largest code point to include
+   * @return the code points, up to the max, that are in this set, as sorted pairs of bounds of ranges that don't
+   * overlap or touch
+   */
+  int[] toRanges(int max) {
+    List<int[]> parts = new ArrayList<>();
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (ranges[i] <= max && ranges[i] <= ranges[i + 1]) {
+        parts.add(new int[]{ranges[i], Math.min(ranges[i + 1], max)});
+      }
+    }
+    for (CharClass member : members) {
+      int[] memberRanges = member.toRanges(max);
+      for (int i = 0; i < memberRanges.length; i += 2) {
+        parts.add(new int[]{memberRanges[i], memberRanges[i + 1]});
+      }
+    }
+    parts.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+    List<Integer> merged = new ArrayList<>();
+    for (int[] part : parts) {
+      int last = merged.size() - 1;
+      if (last > 0 && part[0] <= merged.get(last) + 1) {
+        merged.set(last, Math.max(merged.get(last), part[1]));
+      } else {
+        merged.add(part[0]);
+        merged.add(part[1]);
+      }
+    }
+    if (!isNegated) {
+      return toArray(merged);
+    }
+
+    List<Integer> complement = new ArrayList<>();
+    int next = 0;
+    for (int i = 0; i < merged.size(); i += 2) {
+      if (merged.get(i) > next) {
+        complement.add(next);
+        complement.add(merged.get(i) - 1);
+      }
+      next = merged.get(i + 1) + 1;
+    }
+    if (next <= max) {
+      complement.add(next);
+      complement.add(max);
+    }
+    return toArray(complement);
+  }
+
+  /**
+   * @param a   a set
+   * @param b   another set
+   * @param max the largest code point to check
+   * @return true if there's no code point, up to the max, that's in both sets
+   */
+  static boolean isDisjoint(CharClass a, CharClass b, int max) {
+    int[] first = a.toRanges(max);
+    int[] second = b.toRanges(max);
+    int i = 0;
+    int j = 0;
+    while (i < first.length && j < second.length) {
+      if (first[i + 1] < second[j]) {
+        i += 2;
+      } else if (second[j + 1] < first[i]) {
+        j += 2;
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int[] toArray(List<Integer> values) {
+    int[] array = new int[values.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = values.get(i);
+    }
+    return array;
+  }
+
+  /**
+   * Builds a set from its parts
+   */
+  static final class Builder {
+    private final List<Integer> ranges = new ArrayList<>();
+    private final List<CharClass> members = new ArrayList<>();
+
+    Builder addRange(int lower, int upper) {
+      ranges.add(lower);
+      ranges.add(upper);
+      return this;
+    }
+
+    Builder add(CharClass member) {
+      members.add(member);
+      return this;
+    }
+
+    CharClass build(boolean isNegated) {
+      int[] rangeArray = new int[ranges.size()];
+      for (int i = 0; i < rangeArray.length; i++) {
+        rangeArray[i] = ranges.get(i);
+      }
+      return new CharClass(rangeArray, members.toArray(new CharClass[0]), isNegated);
+    }
+  }
+}
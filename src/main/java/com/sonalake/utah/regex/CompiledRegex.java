@@ -0,0 +1,25 @@
+package com.sonalake.utah.regex;
+
+/**
+ * A regex that's been compiled by a {@link RegexEngine}. This is immutable, and safe to share across threads.
+ */
+public interface CompiledRegex {
+
+  /**
+   * @return the source regex
+   */
+  String pattern();
+
+  /**
+   * @return the number of capturing groups in the regex
+   */
+  int groupCount();
+
+  /**
+   * Build a matcher for some text, a matcher isn't safe to share across threads
+   *
+   * @param text the text
+   * @return the matcher
+   */
+  RegexMatcher matcher(CharSequence text);
+}
@@ -0,0 +1,88 @@
+package com.sonalake.utah.regex;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The default engine, this uses {@link java.util.regex}, and so supports every feature of java regexes. Regexes that
+ * are simple enough to match without backtracking are matched by a {@link SimpleRegex} instead.
+ */
+final class JdkRegexEngine implements RegexEngine {
+
+  @Override
+  public String getName() {
+    return RegexEngines.JDK;
+  }
+
+  @Override
+  public CompiledRegex compile(String regex, int flags) {
+    Pattern pattern = Pattern.compile(regex, flags);
+    SimpleRegex simple = SimpleRegex.compile(regex, flags);
+    return null != simple ? simple : new JdkRegex(pattern);
+  }
+
+  private static final class JdkRegex implements CompiledRegex {
+    private final Pattern pattern;
+    private final int groupCount;
+
+    JdkRegex(Pattern pattern) {
+      this.pattern = pattern;
+      this.groupCount = pattern.matcher("").groupCount();
+    }
+
+    @Override
+    public String pattern() {
+      return pattern.pattern();
+    }
+
+    @Override
+    public int groupCount() {
+      return groupCount;
+    }
+
+    @Override
+    public RegexMatcher matcher(CharSequence text) {
+      return new JdkMatcher(pattern.matcher(text));
+    }
+  }
+
+  private static final class JdkMatcher implements RegexMatcher {
+    private final Matcher matcher;
+
+    JdkMatcher(Matcher matcher) {
+      this.matcher = matcher;
+    }
+
+    @Override
+    public RegexMatcher reset(CharSequence text) {
+      matcher.reset(text);
+      return this;
+    }
+
+    @Override
+    public boolean matches() {
+      return matcher.matches();
+    }
+
+    @Override
+    public boolean find(int from) {
+      // this resets the region to the whole of the text, so anchors and lookbehinds can see what's before it
+      return matcher.find(from);
+    }
+
+    @Override
+    public int start(int group) {
+      return matcher.start(group);
+    }
+
+    @Override
+    public int end(int group) {
+      return matcher.end(group);
+    }
+
+    @Override
+    public String group(int group) {
+      return matcher.group(group);
+    }
+  }
+}
@@ -0,0 +1,575 @@
+package com.sonalake.utah.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static com.sonalake.utah.regex.LinearProgram.ANY;
+import static com.sonalake.utah.regex.LinearProgram.ANY_BUT_LINE_TERMINATOR;
+import static com.sonalake.utah.regex.LinearProgram.ASSERT;
+import static com.sonalake.utah.regex.LinearProgram.ASSERT_DOLLAR;
+import static com.sonalake.utah.regex.LinearProgram.ASSERT_INPUT_END;
+import static com.sonalake.utah.regex.LinearProgram.ASSERT_INPUT_START;
+import static com.sonalake.utah.regex.LinearProgram.ASSERT_NOT_WORD_BOUNDARY;
+import static com.sonalake.utah.regex.LinearProgram.ASSERT_WORD_BOUNDARY;
+import static com.sonalake.utah.regex.LinearProgram.CHAR;
+import static com.sonalake.utah.regex.LinearProgram.JUMP;
+import static com.sonalake.utah.regex.LinearProgram.MATCH;
+import static com.sonalake.utah.regex.LinearProgram.SAVE;
+import static com.sonalake.utah.regex.LinearProgram.SPLIT;
+
+/**
+ * Compiles a regex into a program for the linear engine. The regex has already been checked by
+ * {@link java.util.regex.Pattern}, so this only needs to handle valid regexes, and throws an
+ * {@link UnsupportedRegexException} for anything it doesn't understand.
+ */
+final class LinearCompiler {
+
+  private final String regex;
+  private final boolean isDotAll;
+  private int position;
+  private int groupCount;
+
+  private LinearCompiler(String regex, int flags) {
+    if (0 != (flags & ~Pattern.DOTALL)) {
+      throw new UnsupportedRegexException(String.format("Unsupported flags: %s", flags));
+    }
+    this.regex = regex;
+    this.isDotAll = 0 != (flags & Pattern.DOTALL);
+  }
+
+  /**
+   * Compile a regex
+   *
+   * @param regex the regex
+   * @param flags the flags, only {@link Pattern#DOTALL} is supported
+   * @return the program
+   */
+  static LinearProgram compile(String regex, int flags) {
+    LinearCompiler compiler = new LinearCompiler(regex, flags);
+    Node root = compiler.alternation();
+    if (compiler.position < regex.length()) {
+      throw compiler.unsupported("unbalanced parenthesis");
+    }
+
+    // group 0 is the whole match
+    LinearProgram.Builder builder = new LinearProgram.Builder();
+    builder.emit(SAVE, 0);
+    root.emit(builder);
+    builder.emit(SAVE, 1);
+    builder.emit(MATCH, 0);
+    return builder.build(compiler.groupCount);
+  }
+
+  private Node alternation() {
+    List<Node> alternatives = new ArrayList<>();
+    alternatives.add(sequence());
+    while (position < regex.length() && regex.charAt(position) == '|') {
+      position++;
+      alternatives.add(sequence());
+    }
+    return 1 == alternatives.size() ? alternatives.get(0) : new Alternation(alternatives);
+  }
+
+  private Node sequence() {
+    List<Node> nodes = new ArrayList<>();
+    while (position < regex.length() && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+      nodes.add(quantified(atom()));
+    }
+    return new Sequence(nodes);
+  }
+
+  private Node quantified(Node atom) {
+    if (position >= regex.length()) {
+      return atom;
+    }
+    int min;
+    int max;
+    char c = regex.charAt(position);
+    if (c == '*') {
+      min = 0;
+      max = -1;
+      position++;
+    } else if (c == '+') {
+      min = 1;
+      max = -1;
+      position++;
+    } else if (c == '?') {
+      min = 0;
+      max = 1;
+      position++;
+    } else if (c == '{') {
+      int close = regex.indexOf('}', position);
+      if (close < 0) {
+        throw unsupported("unclosed repetition");
+      }
+      String bounds = regex.substring(position + 1, close);
+      int comma = bounds.indexOf(',');
+      try {
+        min = Integer.parseInt((comma < 0 ? bounds : bounds.substring(0, comma)).trim());
+        String upper = comma < 0 ? bounds : bounds.substring(comma + 1).trim();
+        max = upper.isEmpty() ? -1 : Integer.parseInt(upper.trim());
+      } catch (NumberFormatException e) {
+        throw unsupported("bad repetition");
+      }
+      position = close + 1;
+    } else {
+      return atom;
+    }
+
+    boolean isGreedy = true;
+    if (position < regex.length() && regex.charAt(position) == '?') {
+      isGreedy = false;
+      position++;
+    } else if (position < regex.length() && regex.charAt(position) == '+') {
+      throw unsupported("possessive quantifiers");
+    }
+    return quantified(new Repeat(atom, min, max, isGreedy));
+  }
+
+  private Node atom() {
+    int c = regex.codePointAt(position);
+    position += Character.charCount(c);
+    switch (c) {
+      case '(':
+        return group();
+      case '[':
+        return new CharacterSet(characterClass());
+      case '.':
+        return new Instruction(isDotAll ? ANY : ANY_BUT_LINE_TERMINATOR, 0);
+      case '^':
+        return new Instruction(ASSERT, ASSERT_INPUT_START);
+      case '$':
+        return new Instruction(ASSERT, ASSERT_DOLLAR);
+      case '\\':
+        return escape();
+      default:
+        return new Instruction(CHAR, c);
+    }
+  }
+
+  private Node group() {
+    int group = -1;
+    if (regex.startsWith("?:", position)) {
+      position += 2;
+    } else if (regex.startsWith("?<", position) && !regex.startsWith("?<=", position)
+      && !regex.startsWith("?<!", position)) {
+      // a named group is numbered like any other group
+      position = regex.indexOf('>', position) + 1;
+      group = ++groupCount;
+    } else if (regex.startsWith("?", position)) {
+      throw unsupported("lookarounds, atomic groups and inline flags");
+    } else {
+      group = ++groupCount;
+    }
+    Node body = alternation();
+    if (position >= regex.length() || regex.charAt(position) != ')') {
+      throw unsupported("unclosed group");
+    }
+    position++;
+    return -1 == group ? body : new Group(group, body);
+  }
+
+  private Node escape() {
+    char c = regex.charAt(position++);
+    switch (c) {
+      case 'b':
+        return new Instruction(ASSERT, ASSERT_WORD_BOUNDARY);
+      case 'B':
+        return new Instruction(ASSERT, ASSERT_NOT_WORD_BOUNDARY);
+      case 'A':
+        return new Instruction(ASSERT, ASSERT_INPUT_START);
+      case 'z':
+        return new Instruction(ASSERT, ASSERT_INPUT_END);
+      case 'Z':
+        return new Instruction(ASSERT, ASSERT_DOLLAR);
+      case 'Q':
+        int end = regex.indexOf("\\E", position);
+        String quoted = regex.substring(position, end < 0 ? regex.length() : end);
+        position = end < 0 ? regex.length() : end + 2;
+        List<Node> chars = new ArrayList<>();
+        quoted.codePoints().forEach(q -> chars.add(new Instruction(CHAR, q)));
+        return new Sequence(chars);
+      default:
+        position--;
+        CharClass charClass = predefinedClass();
+        if (null != charClass) {
+          return new CharacterSet(charClass);
+        }
+        return new Instruction(CHAR, escapedChar());
+    }
+  }
+
+  /**
+   * Parse a predefined class, e.g. \d, the position is after the backslash
+   *
+   * @return the class, or null if the escape isn't a class
+   */
+  private CharClass predefinedClass() {
+    CharClass charClass;
+    char c = regex.charAt(position);
+    switch (Character.toLowerCase(c)) {
+      case 'd':
+        charClass = CharClass.DIGIT;
+        break;
+      case 'w':
+        charClass = CharClass.WORD;
+        break;
+      case 's':
+        charClass = CharClass.SPACE;
+        break;
+      case 'h':
+        charClass = CharClass.HORIZONTAL_SPACE;
+        break;
+      default:
+        return null;
+    }
+    position++;
+    return Character.isUpperCase(c) ? charClass.negate() : charClass;
+  }
+
+  /**
+   * Parse an escaped char, the position is after the backslash
+   *
+   * @return the char
+   */
+  private int escapedChar() {
+    char c = regex.charAt(position++);
+    switch (c) {
+      case 't':
+        return '\t';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 'f':
+        return '\f';
+      case 'a':
+        return '\u0007';
+      case 'e':
+        return '\u001B';
+      case 'x':
+        if (regex.startsWith("{", position)) {
+          int close = regex.indexOf('}', position);
+          int codePoint = Integer.parseInt(regex.substring(position + 1, close), 16);
+          position = close + 1;
+          return codePoint;
+        }
+        return hex(2);
+      case 'u':
+        return hex(4);
+      case '0':
+        int end = position;
+        while (end < regex.length() && end - position < 3 && regex.charAt(end) >= '0' && regex.charAt(end) <= '7'
+          && Integer.parseInt(regex.substring(position, end + 1), 8) <= 0377) {
+          end++;
+        }
+        int octal = Integer.parseInt(regex.substring(position, end), 8);
+        position = end;
+        return octal;
+      case 'c':
+        return regex.charAt(position++) ^ 64;
+      default:
+        if (Character.isLetterOrDigit(c)) {
+          throw unsupported(String.format("\\%s", c));
+        }
+        return c;
+    }
+  }
+
+  private int hex(int length) {
+    int value = Integer.parseInt(regex.substring(position, position + length), 16);
+    position += length;
+    return value;
+  }
+
+  /**
+   * Parse a character class, the position is after the opening bracket
+   *
+   * @return the class
+   */
+  private CharClass characterClass() {
+    boolean isNegated = false;
+    if (position < regex.length() && regex.charAt(position) == '^') {
+      isNegated = true;
+      position++;
+    }
+    CharClass.Builder builder = new CharClass.Builder();
+    boolean isFirst = true;
+    while (position < regex.length() && (isFirst || regex.charAt(position) != ']')) {
+      char c = regex.charAt(position);
+      if (c == '[' || regex.startsWith("&&", position) || (isFirst && c == ']')) {
+        throw unsupported("nested classes and intersections");
+      }
+      isFirst = false;
+
+      int lower;
+      if (c == '\\') {
+        position++;
+        CharClass predefined = predefinedClass();
+        if (null != predefined) {
+          builder.add(predefined);
+          continue;
+        }
+        if (regex.charAt(position) == 'Q' || regex.charAt(position) == 'E') {
+          throw unsupported("quotes in classes");
+        }
+        lower = escapedChar();
+      } else {
+        lower = regex.codePointAt(position);
+        position += Character.charCount(lower);
+      }
+
+      int upper = lower;
+      if (regex.startsWith("-", position) && position + 1 < regex.length() && regex.charAt(position + 1) != ']') {
+        position++;
+        if (regex.charAt(position) == '\\') {
+          position++;
+          if (regex.charAt(position) == 'Q' || regex.charAt(position) == 'E' || null != predefinedClass()) {
+            throw unsupported("bad range in class");
+          }
+          upper = escapedChar();
+        } else if (regex.charAt(position) == '[') {
+          throw unsupported("nested classes and intersections");
+        } else {
+          upper = regex.codePointAt(position);
+          position += Character.charCount(upper);
+        }
+      }
+      builder.addRange(lower, upper);
+    }
+    if (position >= regex.length()) {
+      throw unsupported("unclosed class");
+    }
+    position++;
+    return builder.build(isNegated);
+  }
+
+  private UnsupportedRegexException unsupported(String feature) {
+    return new UnsupportedRegexException(
+      String.format("The linear engine doesn't support %s, in: %s", feature, regex)
+    );
+  }
+
+  /**
+   * A part of the parsed regex, that can emit its instructions
+   */
+  private interface Node {
+    void emit(LinearProgram.Builder builder);
+
+    /**
+     * @return true if this can match without consuming any chars
+     */
+    boolean isNullable();
+
+    /**
+     * @return how deeply the capturing groups in this are nested in groups and repeats, counting the groups
+     * themselves, or 0 if there are none
+     */
+    int groupNesting();
+  }
+
+  private static final class Instruction implements Node {
+    private final int op;
+    private final int arg;
+
+    Instruction(int op, int arg) {
+      this.op = op;
+      this.arg = arg;
+    }
+
+    @Override
+    public void emit(LinearProgram.Builder builder) {
+      builder.emit(op, arg);
+    }
+
+    @Override
+    public boolean isNullable() {
+      return op == ASSERT;
+    }
+
+    @Override
+    public int groupNesting() {
+      return 0;
+    }
+  }
+
+  private static final class CharacterSet implements Node {
+    private final CharClass charClass;
+
+    CharacterSet(CharClass charClass) {
+      this.charClass = charClass;
+    }
+
+    @Override
+    public void emit(LinearProgram.Builder builder) {
+      builder.emitClass(charClass);
+    }
+
+    @Override
+    public boolean isNullable() {
+      return false;
+    }
+
+    @Override
+    public int groupNesting() {
+      return 0;
+    }
+  }
+
+  private static final class Sequence implements Node {
+    private final List<Node> nodes;
+
+    Sequence(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+    @Override
+    public void emit(LinearProgram.Builder builder) {
+      for (Node node : nodes) {
+        node.emit(builder);
+      }
+    }
+
+    @Override
+    public boolean isNullable() {
+      return nodes.stream().allMatch(Node::isNullable);
+    }
+
+    @Override
+    public int groupNesting() {
+      return nodes.stream().mapToInt(Node::groupNesting).max().orElse(0);
+    }
+  }
+
+  private static final class Alternation implements Node {
+    private final List<Node> alternatives;
+
+    Alternation(List<Node> alternatives) {
+      this.alternatives = alternatives;
+    }
+
+    @Override
+    public void emit(LinearProgram.Builder builder) {
+      // each split prefers its alternative, otherwise it goes on to the next split; they all jump to the end
+      List<Integer> jumps = new ArrayList<>();
+      for (int i = 0; i < alternatives.size() - 1; i++) {
+        int split = builder.emit(SPLIT, 0);
+        alternatives.get(i).emit(builder);
+        jumps.add(builder.emit(JUMP, 0));
+        builder.patch(split, split + 1, builder.next());
+      }
+      alternatives.get(alternatives.size() - 1).emit(builder);
+      for (int jump : jumps) {
+        builder.patch(jump, builder.next(), 0);
+      }
+    }
+
+    @Override
+    public boolean isNullable() {
+      return alternatives.stream().anyMatch(Node::isNullable);
+    }
+
+    @Override
+    public int groupNesting() {
+      return alternatives.stream().mapToInt(Node::groupNesting).max().orElse(0);
+    }
+  }
+
+  private static final class Group implements Node {
+    private final int group;
+    private final Node body;
+
+    Group(int group, Node body) {
+      this.group = group;
+      this.body = body;
+    }
+
+    @Override
+    public void emit(LinearProgram.Builder builder) {
+      builder.emit(SAVE, 2 * group);
+      body.emit(builder);
+      builder.emit(SAVE, 2 * group + 1);
+    }
+
+    @Override
+    public boolean isNullable() {
+      return body.isNullable();
+    }
+
+    @Override
+    public int groupNesting() {
+      return 1 + body.groupNesting();
+    }
+  }
+
+  private static final class Repeat implements Node {
+    private final Node body;
+    private final int min;
+    private final int max;
+    private final boolean isGreedy;
+
+    Repeat(Node body, int min, int max, boolean isGreedy) {
+      this.body = body;
+      this.min = min;
+      this.max = max;
+      this.isGreedy = isGreedy;
+    }
+
+    @Override
+    public void emit(LinearProgram.Builder builder) {
+      if (min > LinearProgram.MAX_SIZE || max > LinearProgram.MAX_SIZE) {
+        throw new UnsupportedRegexException("The repetition is too large for the linear engine");
+      }
+      if (body.isNullable()) {
+        // a backtracking engine stops looping after an empty iteration, and keeps that iteration's groups, which
+        // changes where the match ends, and the automaton can't tell that an iteration was empty
+        throw new UnsupportedRegexException("The linear engine doesn't support repeats of what can be empty");
+      }
+      if (body.groupNesting() > 1) {
+        // when a backtracking engine gives up an iteration it restores the outer group, but not the groups in it
+        throw new UnsupportedRegexException("The linear engine doesn't support repeats of nested groups");
+      }
+      for (int i = 0; i < min; i++) {
+        body.emit(builder);
+      }
+      if (-1 == max) {
+        int split = builder.emit(SPLIT, 0);
+        body.emit(builder);
+        builder.emit(JUMP, split);
+        patchSplit(builder, split);
+      } else {
+        List<Integer> splits = new ArrayList<>();
+        for (int i = min; i < max; i++) {
+          splits.add(builder.emit(SPLIT, 0));
+          body.emit(builder);
+        }
+        for (int split : splits) {
+          patchSplit(builder, split);
+        }
+      }
+    }
+
+    @Override
+    public boolean isNullable() {
+      return 0 == min || body.isNullable();
+    }
+
+    @Override
+    public int groupNesting() {
+      int nesting = body.groupNesting();
+      return 0 == nesting ? 0 : nesting + 1;
+    }
+
+    /**
+     * Point the split at the body and the end, in the order given by the greediness
+     */
+    private void patchSplit(LinearProgram.Builder builder, int split) {
+      if (isGreedy) {
+        builder.patch(split, split + 1, builder.next());
+      } else {
+        builder.patch(split, builder.next(), split + 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package com.sonalake.utah.regex;
+
+import java.util.Arrays;
+
+import static com.sonalake.utah.regex.LinearProgram.ANY;
+import static com.sonalake.utah.regex.LinearProgram.ANY_BUT_LINE_TERMINATOR;
+import static com.sonalake.utah.regex.LinearProgram.ASSERT;
+import static com.sonalake.utah.regex.LinearProgram.CHAR;
+import static com.sonalake.utah.regex.LinearProgram.CLASS;
+import static com.sonalake.utah.regex.LinearProgram.JUMP;
+import static com.sonalake.utah.regex.LinearProgram.MATCH;
+import static com.sonalake.utah.regex.LinearProgram.SAVE;
+import static com.sonalake.utah.regex.LinearProgram.SPLIT;
+
+/**
+ * Runs a linear program over some text. The text is read once, a char at a time, and every thread of the automaton
+ * is stepped along together; the threads are kept in priority order, so the match that's found is the one a
+ * backtracking engine would find first.
+ */
+final class LinearMatcher implements RegexMatcher {
+
+  private final LinearProgram program;
+  private CharSequence text;
+  private final int slotCount;
+
+  private ThreadList current;
+  private ThreadList next;
+  private final int[] stackInstructions;
+  private final int[][] stackSlots;
+
+  /**
+   * The start and end of each group in the last match, or null if there wasn't one
+   */
+  private int[] groups;
+
+  LinearMatcher(LinearProgram program, CharSequence text) {
+    this.program = program;
+    this.text = text;
+    this.slotCount = 2 * (program.groupCount + 1);
+    this.current = new ThreadList(program.size());
+    this.next = new ThreadList(program.size());
+    this.stackInstructions = new int[2 * program.size() + 1];
+    this.stackSlots = new int[2 * program.size() + 1][];
+  }
+
+  @Override
+  public RegexMatcher reset(CharSequence text) {
+    this.text = text;
+    groups = null;
+    return this;
+  }
+
+  @Override
+  public boolean matches() {
+    return run(0, true);
+  }
+
+  @Override
+  public boolean find(int from) {
+    if (from < 0 || from > text.length()) {
+      throw new IndexOutOfBoundsException(String.format("Illegal start index: %s", from));
+    }
+    return run(from, false);
+  }
+
+  @Override
+  public int start(int group) {
+    return getGroups()[2 * group];
+  }
+
+  @Override
+  public int end(int group) {
+    return getGroups()[2 * group + 1];
+  }
+
+  @Override
+  public String group(int group) {
+    int start = start(group);
+    return -1 == start ? null : text.subSequence(start, end(group)).toString();
+  }
+
+  private int[] getGroups() {
+    if (null == groups) {
+      throw new IllegalStateException("No match available");
+    }
+    return groups;
+  }
+
+  /**
+   * Run the program
+   *
+   * @param from        where to start
+   * @param isWholeText true if the match must start at the start, and end at the end, of the text
+   * @return true if there was a match
+   */
+  private boolean run(int from, boolean isWholeText) {
+    int length = text.length();
+    int[] matched = null;
+    current.clear();
+    int position = from;
+    while (true) {
+      // start a new thread here, unless there's already a match, as it would start further to the left
+      if (null == matched && (position == from || !isWholeText)) {
+        int[] slots = new int[slotCount];
+        Arrays.fill(slots, -1);
+        addThread(current, 0, slots, position);
+      }
+      if (0 == current.size && (null != matched || isWholeText || position >= length)) {
+        break;
+      }
+
+      int codePoint = position < length ? Character.codePointAt(text, position) : -1;
+      int nextPosition = position + (codePoint < 0 ? 1 : Character.charCount(codePoint));
+      next.clear();
+      for (int i = 0; i < current.size; i++) {
+        int instruction = current.instructions[i];
+        int[] slots = current.slots[i];
+        if (program.ops[instruction] == MATCH) {
+          if (!isWholeText || position == length) {
+            // the threads after this one have a lower priority, so they're dropped
+            matched = slots;
+            break;
+          }
+        } else if (codePoint >= 0 && consumes(instruction, codePoint)) {
+          addThread(next, instruction + 1, slots, nextPosition);
+        }
+      }
+      if (position >= length) {
+        break;
+      }
+      ThreadList swap = current;
+      current = next;
+      next = swap;
+      position = nextPosition;
+    }
+    groups = matched;
+    return null != matched;
+  }
+
+  private boolean consumes(int instruction, int codePoint) {
+    switch (program.ops[instruction]) {
+      case CHAR:
+        return codePoint == program.args[instruction];
+      case CLASS:
+        return program.classes[program.args[instruction]].matches(codePoint);
+      case ANY:
+        return true;
+      case ANY_BUT_LINE_TERMINATOR:
+        return !LinearProgram.isLineTerminator(codePoint);
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Add a thread to the list, following its epsilon moves depth first, so that the threads are added in priority
+   * order. An instruction is only ever added once per list; the first time is the one with the highest priority.
+   */
+  private void addThread(ThreadList list, int start, int[] startSlots, int position) {
+    int top = 0;
+    stackInstructions[top] = start;
+    stackSlots[top++] = startSlots;
+    while (top > 0) {
+      int instruction = stackInstructions[--top];
+      int[] slots = stackSlots[top];
+      stackSlots[top] = null;
+      if (!list.mark(instruction)) {
+        continue;
+      }
+      switch (program.ops[instruction]) {
+        case JUMP:
+          stackInstructions[top] = program.args[instruction];
+          stackSlots[top++] = slots;
+          break;
+        case SPLIT:
+          stackInstructions[top] = program.alternates[instruction];
+          stackSlots[top++] = slots;
+          stackInstructions[top] = program.args[instruction];
+          stackSlots[top++] = slots;
+          break;
+        case SAVE:
+          int[] saved = slots.clone();
+          saved[program.args[instruction]] = position;
+          stackInstructions[top] = instruction + 1;
+          stackSlots[top++] = saved;
+          break;
+        case ASSERT:
+          if (LinearProgram.check(program.args[instruction], text, position)) {
+            stackInstructions[top] = instruction + 1;
+            stackSlots[top++] = slots;
+          }
+          break;
+        default:
+          list.add(instruction, slots);
+      }
+    }
+  }
+
+  /**
+   * The threads at a position in the text, in priority order
+   */
+  private static final class ThreadList {
+    private final int[] instructions;
+    private final int[][] slots;
+    private final int[] marks;
+    private int generation;
+    private int size;
+
+    ThreadList(int programSize) {
+      this.instructions = new int[programSize];
+      this.slots = new int[programSize][];
+      this.marks = new int[programSize];
+    }
+
+    void clear() {
+      Arrays.fill(slots, 0, size, null);
+      size = 0;
+      generation++;
+    }
+
+    /**
+     * @return true if the instruction hadn't been seen in this list yet
+     */
+    boolean mark(int instruction) {
+      if (marks[instruction] == generation) {
+        return false;
+      }
+      marks[instruction] = generation;
+      return true;
+    }
+
+    void add(int instruction, int[] threadSlots) {
+      instructions[size] = instruction;
+      slots[size++] = threadSlots;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package com.sonalake.utah.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The instructions for the linear engine's automaton. Each instruction either consumes a char, or is an epsilon move
+ * (a jump, a split, a saved position or an assertion); the splits are ordered, so the first branch is preferred, as it
+ * would be by a backtracking engine.
+ */
+final class LinearProgram {
+
+  static final int CHAR = 0;
+  static final int CLASS = 1;
+  static final int ANY = 2;
+  static final int ANY_BUT_LINE_TERMINATOR = 3;
+  static final int SPLIT = 4;
+  static final int JUMP = 5;
+  static final int SAVE = 6;
+  static final int ASSERT = 7;
+  static final int MATCH = 8;
+
+  static final int ASSERT_INPUT_START = 0;
+  static final int ASSERT_INPUT_END = 1;
+  static final int ASSERT_DOLLAR = 2;
+  static final int ASSERT_WORD_BOUNDARY = 3;
+  static final int ASSERT_NOT_WORD_BOUNDARY = 4;
+
+  /**
+   * The largest program we'll build, bounded repeats are unrolled, so this limits how large they can be
+   */
+  static final int MAX_SIZE = 20000;
+
+  final int[] ops;
+  final int[] args;
+  final int[] alternates;
+  final CharClass[] classes;
+  final int groupCount;
+
+  private LinearProgram(Builder builder, int groupCount) {
+    int size = builder.ops.size();
+    this.ops = new int[size];
+    this.args = new int[size];
+    this.alternates = new int[size];
+    for (int i = 0; i < size; i++) {
+      ops[i] = builder.ops.get(i);
+      args[i] = builder.args.get(i);
+      alternates[i] = builder.alternates.get(i);
+    }
+    this.classes = builder.classes.toArray(new CharClass[0]);
+    this.groupCount = groupCount;
+  }
+
+  int size() {
+    return ops.length;
+  }
+
+  /**
+   * Check an assertion, with the same rules as {@link java.util.regex.Pattern}
+   *
+   * @param kind     the kind of assertion
+   * @param text     the text
+   * @param position the position in the text
+   * @return true if the assertion holds
+   */
+  static boolean check(int kind, CharSequence text, int position) {
+    int length = text.length();
+    switch (kind) {
+      case ASSERT_INPUT_START:
+        return 0 == position;
+      case ASSERT_INPUT_END:
+        return length == position;
+      case ASSERT_DOLLAR:
+        // at the end, or before a line terminator at the end (but not between a \r and a \n)
+        if (position == length) {
+          return true;
+        } else if (position == length - 2) {
+          return text.charAt(position) == '\r' && text.charAt(position + 1) == '\n';
+        } else if (position == length - 1) {
+          char c = text.charAt(position);
+          if (c == '\n') {
+            return position == 0 || text.charAt(position - 1) != '\r';
+          }
+          return c == '\r' || c == '\u0085' || (c | 1) == '\u2029';
+        }
+        return false;
+      case ASSERT_WORD_BOUNDARY:
+      case ASSERT_NOT_WORD_BOUNDARY:
+        boolean left = position > 0 && isWord(Character.codePointBefore(text, position));
+        boolean right = position < length && isWord(Character.codePointAt(text, position));
+        return (left != right) == (kind == ASSERT_WORD_BOUNDARY);
+      default:
+        throw new IllegalStateException(String.format("Unknown assertion: %s", kind));
+    }
+  }
+
+  private static boolean isWord(int codePoint) {
+    return codePoint == '_' || Character.isLetterOrDigit(codePoint);
+  }
+
+  static boolean isLineTerminator(int codePoint) {
+    return codePoint == '\n' || codePoint == '\r' || codePoint == '\u0085' || (codePoint | 1) == '\u2029';
+  }
+
+  /**
+   * Builds up the program an instruction at a time
+   */
+  static final class Builder {
+    private final List<Integer> ops = new ArrayList<>();
+    private final List<Integer> args = new ArrayList<>();
+    private final List<Integer> alternates = new ArrayList<>();
+    private final List<CharClass> classes = new ArrayList<>();
+
+    /**
+     * @return the index of the next instruction
+     */
+    int next() {
+      return ops.size();
+    }
+
+    int emit(int op, int arg, int alternate) {
+      if (ops.size() >= MAX_SIZE) {
+        throw new UnsupportedRegexException("The regex is too large for the linear engine");
+      }
+      ops.add(op);
+      args.add(arg);
+      alternates.add(alternate);
+      return ops.size() - 1;
+    }
+
+    int emit(int op, int arg) {
+      return emit(op, arg, 0);
+    }
+
+    int emitClass(CharClass charClass) {
+      classes.add(charClass);
+      return emit(CLASS, classes.size() - 1);
+    }
+
+    /**
+     * Point a jump or split at somewhere else, once we know where that is
+     */
+    void patch(int instruction, int arg, int alternate) {
+      args.set(instruction, arg);
+      alternates.set(instruction, alternate);
+    }
+
+    LinearProgram build(int groupCount) {
+      return new LinearProgram(this, groupCount);
+    }
+  }
+}
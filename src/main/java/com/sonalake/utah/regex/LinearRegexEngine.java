@@ -0,0 +1,47 @@
+package com.sonalake.utah.regex;
+
+/**
+ * An engine that runs regexes as an automaton, tracking every possible match at once, rather than backtracking; so
+ * the time it takes is linear in the size of the text, whatever the regex.
+ * <p>
+ * The matches, and the groups, are the same as {@link java.util.regex} would find, but it doesn't support back
+ * references, lookarounds, possessive quantifiers, atomic groups, inline flags, repeats of something that can match
+ * nothing, repeats of nested groups, or any flags other than {@link java.util.regex.Pattern#DOTALL}.
+ */
+final class LinearRegexEngine implements RegexEngine {
+
+  @Override
+  public String getName() {
+    return RegexEngines.LINEAR;
+  }
+
+  @Override
+  public CompiledRegex compile(String regex, int flags) {
+    return new LinearRegex(regex, LinearCompiler.compile(regex, flags));
+  }
+
+  private static final class LinearRegex implements CompiledRegex {
+    private final String regex;
+    private final LinearProgram program;
+
+    LinearRegex(String regex, LinearProgram program) {
+      this.regex = regex;
+      this.program = program;
+    }
+
+    @Override
+    public String pattern() {
+      return regex;
+    }
+
+    @Override
+    public int groupCount() {
+      return program.groupCount;
+    }
+
+    @Override
+    public RegexMatcher matcher(CharSequence text) {
+      return new LinearMatcher(program, text);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.sonalake.utah.regex;
+
+/**
+ * A regex engine, the values and delimiters in a config are compiled by one of these.
+ * <p>
+ * Engines are looked up by name, see {@link RegexEngines}, and further engines can be added by registering them with
+ * the {@link java.util.ServiceLoader}.
+ */
+public interface RegexEngine {
+
+  /**
+   * @return the name of the engine, as it is used in the config
+   */
+  String getName();
+
+  /**
+   * Compile a regex
+   *
+   * @param regex the regex, in java syntax
+   * @param flags the {@link java.util.regex.Pattern} flags to compile the regex with
+   * @return the compiled regex
+   * @throws UnsupportedRegexException if the engine doesn't support a feature the regex uses
+   */
+  CompiledRegex compile(String regex, int flags);
+}
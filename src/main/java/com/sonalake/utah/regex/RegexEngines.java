@@ -0,0 +1,80 @@
+package com.sonalake.utah.regex;
+
+import java.util.ServiceLoader;
+import java.util.regex.Pattern;
+
+/**
+ * Look up regex engines by name.
+ * <p>
+ * There are two built in engines:
+ * <ul>
+ * <li><code>jdk</code> - the default, this uses {@link java.util.regex}, and supports every feature, but a badly
+ * behaved regex can take exponential time on some input</li>
+ * <li><code>linear</code> - an automaton, this takes time linear in the size of the text, but doesn't support back
+ * references, lookarounds, possessive quantifiers, atomic groups or inline flags</li>
+ * </ul>
+ * Any other engine is looked up by name with the {@link ServiceLoader}.
+ */
+public final class RegexEngines {
+
+  public static final String JDK = "jdk";
+  public static final String LINEAR = "linear";
+
+  private static final RegexEngine JDK_ENGINE = new JdkRegexEngine();
+  private static final RegexEngine LINEAR_ENGINE = new LinearRegexEngine();
+
+  private RegexEngines() {
+  }
+
+  /**
+   * @return the default engine
+   */
+  public static RegexEngine getDefault() {
+    return JDK_ENGINE;
+  }
+
+  /**
+   * Get an engine by its name
+   *
+   * @param name the name of the engine, or null for the default
+   * @return the engine
+   * @throws IllegalArgumentException if there is no engine with the name
+   */
+  public static RegexEngine get(String name) {
+    if (null == name || JDK.equals(name)) {
+      return JDK_ENGINE;
+    } else if (LINEAR.equals(name)) {
+      return LINEAR_ENGINE;
+    }
+    for (RegexEngine engine : ServiceLoader.load(RegexEngine.class)) {
+      if (name.equals(engine.getName())) {
+        return engine;
+      }
+    }
+    throw new IllegalArgumentException(String.format("Unknown regex engine: '%s'", name));
+  }
+
+  /**
+   * Compile a regex with an engine, if the engine doesn't support the regex, then it's compiled with the default
+   * engine instead.
+   *
+   * @param engine the engine
+   * @param regex  the regex
+   * @param flags  the {@link java.util.regex.Pattern} flags to compile the regex with
+   * @return the compiled regex
+   * @throws java.util.regex.PatternSyntaxException if the regex isn't valid
+   */
+  public static CompiledRegex compile(RegexEngine engine, String regex, int flags) {
+    if (engine == JDK_ENGINE) {
+      return JDK_ENGINE.compile(regex, flags);
+    }
+    // check the regex is valid, so the other engines only need to handle valid regexes, but only build the default
+    // engine's form if it's needed
+    Pattern.compile(regex, flags);
+    try {
+      return engine.compile(regex, flags);
+    } catch (UnsupportedRegexException e) {
+      return JDK_ENGINE.compile(regex, flags);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.sonalake.utah.regex;
+
+/**
+ * Matches a compiled regex against some text. The groups are only available after a successful match.
+ */
+public interface RegexMatcher {
+
+  /**
+   * Start again with new text, so that a matcher can be reused rather than building a new one for each text
+   *
+   * @param text the text
+   * @return this matcher
+   */
+  RegexMatcher reset(CharSequence text);
+
+  /**
+   * @return true if the regex matches the whole of the text
+   */
+  boolean matches();
+
+  /**
+   * Search for the first match, starting at the given index. The text before the index is still visible to anchors
+   * and boundaries, so <code>^</code> only matches at the start of the text.
+   *
+   * @param from the index to search from
+   * @return true if the regex was found
+   */
+  boolean find(int from);
+
+  /**
+   * @param group the group
+   * @return the index of the start of the group, or -1 if the group didn't take part in the match
+   */
+  int start(int group);
+
+  /**
+   * @param group the group
+   * @return the index after the end of the group, or -1 if the group didn't take part in the match
+   */
+  int end(int group);
+
+  /**
+   * @param group the group
+   * @return the text of the group, or null if the group didn't take part in the match
+   */
+  String group(int group);
+}
@@ -0,0 +1,463 @@
+package com.sonalake.utah.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A regex that's simple enough to be matched by walking along the text, without any backtracking.
+ * <p>
+ * Most of the regexes in a template are sequences of literals and runs of a class of chars, e.g.
+ * <code>inet.0: (\d+)/(\d+)</code> or <code>(\d+(\.\d+){3})\s+(\S+?)</code>. Where each run is followed by something
+ * that can't start with a char from the run, there's only ever one way to match at a given start, so we can match
+ * the steps one after another, and record the group offsets as we go, with none of the machinery of a
+ * {@link java.util.regex.Matcher}. The regex must be:
+ * <ul>
+ * <li>literal chars, and the classes <code>. \d \D \s \S \w \W \h \H</code>, each with an optional quantifier</li>
+ * <li>groups, with no alternation, that can only be repeated a fixed number of times</li>
+ * <li>optionally, a <code>^</code> at the start</li>
+ * </ul>
+ * Anything else is left to {@link java.util.regex}.
+ */
+final class SimpleRegex implements CompiledRegex {
+
+  /**
+   * Chars above the basic plane are all treated the same by the classes we support, so this one stands for them all
+   */
+  private static final int SUPPLEMENTARY = 0x10000;
+
+  private static final CharClass LINE_TERMINATORS = new CharClass.Builder()
+    .addRange('\n', '\n').addRange('\r', '\r').addRange(0x85, 0x85).addRange(0x2028, 0x2029)
+    .build(false);
+
+  private final String regex;
+  private final Step[] steps;
+  private final int groupCount;
+  private final boolean isAnchored;
+
+  /**
+   * If the first step is a single char, then this is it, so we can skip straight to where it is
+   */
+  private final int firstChar;
+
+  private SimpleRegex(String regex, List<Step> steps, int groupCount, boolean isAnchored) {
+    this.regex = regex;
+    this.steps = steps.toArray(new Step[0]);
+    this.groupCount = groupCount;
+    this.isAnchored = isAnchored;
+    Step first = steps.stream().filter(step -> null != step.charClass).findFirst().orElse(null);
+    this.firstChar = null != first && first.min > 0 && first.literal >= 0 ? first.literal : -1;
+  }
+
+  /**
+   * Compile the regex, if it's simple enough
+   *
+   * @param regex the regex, this has already been checked by {@link Pattern}
+   * @param flags the flags
+   * @return the compiled regex, or null if the regex isn't simple enough
+   */
+  static SimpleRegex compile(String regex, int flags) {
+    if (0 != (flags & ~Pattern.DOTALL)) {
+      return null;
+    }
+    Parser parser = new Parser(regex, 0 != (flags & Pattern.DOTALL));
+    List<Step> steps = parser.parse();
+    if (null == steps || !isDeterministic(steps)) {
+      return null;
+    }
+    return new SimpleRegex(regex, steps, parser.groupCount, parser.isAnchored);
+  }
+
+  /**
+   * Check that every run that can vary in length is followed by a step that can't start with any of its chars, or by
+   * nothing at all
+   */
+  private static boolean isDeterministic(List<Step> steps) {
+    Step previous = null;
+    for (Step step : steps) {
+      if (null == step.charClass) {
+        continue;
+      }
+      if (null != previous && previous.min != previous.max) {
+        if (0 == step.min || !CharClass.isDisjoint(previous.charClass, step.charClass, SUPPLEMENTARY)) {
+          return false;
+        }
+      }
+      previous = step;
+    }
+    return true;
+  }
+
+  @Override
+  public String pattern() {
+    return regex;
+  }
+
+  @Override
+  public int groupCount() {
+    return groupCount;
+  }
+
+  @Override
+  public RegexMatcher matcher(CharSequence text) {
+    return new SimpleMatcher(text);
+  }
+
+  /**
+   * A step in the regex, either a run of chars from a class, or the start or end of a group
+   */
+  private static final class Step {
+    private final CharClass charClass;
+    private final int literal;
+    private final int min;
+    private final int max;
+    private final boolean isGreedy;
+    private final int slot;
+
+    /**
+     * True if there are no more chars to match after this step
+     */
+    private boolean isLast;
+
+    private Step(CharClass charClass, int literal, int min, int max, boolean isGreedy, int slot) {
+      this.charClass = charClass;
+      this.literal = literal;
+      this.min = min;
+      this.max = max;
+      this.isGreedy = isGreedy;
+      this.slot = slot;
+    }
+
+    static Step run(CharClass charClass, int literal, int min, int max, boolean isGreedy) {
+      return new Step(charClass, literal, min, max, isGreedy, -1);
+    }
+
+    static Step save(int slot) {
+      return new Step(null, -1, 0, 0, true, slot);
+    }
+  }
+
+  private final class SimpleMatcher implements RegexMatcher {
+    private CharSequence text;
+    private final int[] groups;
+    private boolean isMatched;
+
+    SimpleMatcher(CharSequence text) {
+      this.text = text;
+      this.groups = new int[2 * (groupCount + 1)];
+    }
+
+    @Override
+    public RegexMatcher reset(CharSequence text) {
+      this.text = text;
+      isMatched = false;
+      return this;
+    }
+
+    @Override
+    public boolean matches() {
+      isMatched = attempt(0, true);
+      return isMatched;
+    }
+
+    @Override
+    public boolean find(int from) {
+      if (from < 0 || from > text.length()) {
+        throw new IndexOutOfBoundsException(String.format("Illegal start index: %s", from));
+      }
+      isMatched = false;
+      int last = isAnchored ? 0 : text.length();
+      for (int start = from; start <= last && !isMatched; start++) {
+        if (firstChar >= 0) {
+          start = indexOf(start);
+          if (start < 0 || start > last) {
+            break;
+          }
+        }
+        isMatched = attempt(start, false);
+      }
+      return isMatched;
+    }
+
+    private int indexOf(int from) {
+      if (text instanceof String) {
+        return ((String) text).indexOf(firstChar, from);
+      }
+      for (int i = from; i < text.length(); i++) {
+        if (Character.codePointAt(text, i) == firstChar) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Try to match at a given start, there's only one way the steps can match, so there's nothing to backtrack
+     */
+    private boolean attempt(int start, boolean isWholeText) {
+      Arrays.fill(groups, -1);
+      int length = text.length();
+      int position = start;
+      for (Step step : steps) {
+        if (null == step.charClass) {
+          groups[step.slot] = position;
+          continue;
+        }
+        // a lazy run at the end of a search takes as little as it can, otherwise the next step decides where it ends
+        int limit = step.isLast && !step.isGreedy && !isWholeText ? step.min : step.max;
+        int count = 0;
+        while (count < limit && position < length) {
+          int codePoint = Character.codePointAt(text, position);
+          if (!step.charClass.matches(codePoint)) {
+            break;
+          }
+          position += Character.charCount(codePoint);
+          count++;
+        }
+        if (count < step.min) {
+          return false;
+        }
+      }
+      if (isWholeText && position != length) {
+        return false;
+      }
+      groups[0] = start;
+      groups[1] = position;
+      return true;
+    }
+
+    @Override
+    public int start(int group) {
+      checkMatch();
+      return groups[2 * group];
+    }
+
+    @Override
+    public int end(int group) {
+      checkMatch();
+      return groups[2 * group + 1];
+    }
+
+    @Override
+    public String group(int group) {
+      int start = start(group);
+      return -1 == start ? null : text.subSequence(start, end(group)).toString();
+    }
+
+    private void checkMatch() {
+      if (!isMatched) {
+        throw new IllegalStateException("No match available");
+      }
+    }
+  }
+
+  /**
+   * Parses the regex into steps, this gives up, and returns null, at the first thing it doesn't support
+   */
+  private static final class Parser {
+    private final String regex;
+    private final boolean isDotAll;
+    private int position;
+    private int groupCount;
+    private boolean isAnchored;
+
+    Parser(String regex, boolean isDotAll) {
+      this.regex = regex;
+      this.isDotAll = isDotAll;
+    }
+
+    List<Step> parse() {
+      if (regex.startsWith("^")) {
+        isAnchored = true;
+        position++;
+      }
+      List<Step> steps = sequence();
+      if (null == steps || position < regex.length()) {
+        return null;
+      }
+      for (int i = steps.size() - 1; i >= 0; i--) {
+        if (null != steps.get(i).charClass) {
+          steps.get(i).isLast = true;
+          break;
+        }
+      }
+      return steps;
+    }
+
+    private List<Step> sequence() {
+      List<Step> steps = new ArrayList<>();
+      while (position < regex.length() && regex.charAt(position) != ')') {
+        char c = regex.charAt(position);
+        if (c == '(') {
+          if (!group(steps)) {
+            return null;
+          }
+          continue;
+        }
+        CharClass charClass = null;
+        int literal = -1;
+        position++;
+        if (c == '.') {
+          charClass = isDotAll ? new CharClass.Builder().build(true) : LINE_TERMINATORS.negate();
+        } else if (c == '\\') {
+          if (position >= regex.length()) {
+            return null;
+          }
+          char escaped = regex.charAt(position++);
+          charClass = predefinedClass(escaped);
+          if (null == charClass) {
+            literal = escapedChar(escaped);
+            if (literal < 0) {
+              return null;
+            }
+          }
+        } else if ("[]{}*+?|^$".indexOf(c) >= 0) {
+          return null;
+        } else {
+          literal = c;
+          if (Character.isHighSurrogate(c)) {
+            return null;
+          }
+        }
+        if (literal >= 0) {
+          charClass = new CharClass.Builder().addRange(literal, literal).build(false);
+        }
+        if (!quantified(steps, charClass, literal)) {
+          return null;
+        }
+      }
+      return steps;
+    }
+
+    /**
+     * Parse a group, it can only be repeated a fixed number of times, so the copies are unrolled
+     */
+    private boolean group(List<Step> steps) {
+      position++;
+      int group = -1;
+      if (regex.startsWith("?:", position)) {
+        position += 2;
+      } else if (regex.startsWith("?", position)) {
+        return false;
+      } else {
+        group = ++groupCount;
+      }
+      List<Step> body = sequence();
+      if (null == body || position >= regex.length()) {
+        return false;
+      }
+      position++;
+
+      int count = 1;
+      if (regex.startsWith("{", position)) {
+        int close = regex.indexOf('}', position);
+        try {
+          count = Integer.parseInt(regex.substring(position + 1, close));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+          return false;
+        }
+        position = close + 1;
+      }
+      if (position < regex.length() && "*+?{".indexOf(regex.charAt(position)) >= 0) {
+        return false;
+      }
+      for (int i = 0; i < count; i++) {
+        if (-1 != group) {
+          steps.add(Step.save(2 * group));
+        }
+        steps.addAll(i == 0 ? body : copy(body));
+        if (-1 != group) {
+          steps.add(Step.save(2 * group + 1));
+        }
+      }
+      return true;
+    }
+
+    private List<Step> copy(List<Step> body) {
+      List<Step> copies = new ArrayList<>();
+      for (Step step : body) {
+        copies.add(new Step(step.charClass, step.literal, step.min, step.max, step.isGreedy, step.slot));
+      }
+      return copies;
+    }
+
+    private boolean quantified(List<Step> steps, CharClass charClass, int literal) {
+      int min = 1;
+      int max = 1;
+      if (position < regex.length()) {
+        char c = regex.charAt(position);
+        if (c == '*' || c == '+' || c == '?') {
+          min = c == '+' ? 1 : 0;
+          max = c == '?' ? 1 : Integer.MAX_VALUE;
+          position++;
+        } else if (c == '{') {
+          int close = regex.indexOf('}', position);
+          if (close < 0) {
+            return false;
+          }
+          String bounds = regex.substring(position + 1, close);
+          int comma = bounds.indexOf(',');
+          try {
+            min = Integer.parseInt(comma < 0 ? bounds : bounds.substring(0, comma));
+            max = comma < 0 ? min
+              : comma == bounds.length() - 1 ? Integer.MAX_VALUE : Integer.parseInt(bounds.substring(comma + 1));
+          } catch (NumberFormatException e) {
+            return false;
+          }
+          position = close + 1;
+        }
+      }
+      boolean isGreedy = true;
+      if (position < regex.length() && (regex.charAt(position) == '?' || regex.charAt(position) == '+')) {
+        if (min == 1 && max == 1 || regex.charAt(position) == '+') {
+          // a possessive quantifier, or a lazy quantifier with nothing to quantify
+          return false;
+        }
+        isGreedy = false;
+        position++;
+      }
+      if (position < regex.length() && "*+?{".indexOf(regex.charAt(position)) >= 0) {
+        return false;
+      }
+      steps.add(Step.run(charClass, literal, min, max, isGreedy));
+      return true;
+    }
+
+    private CharClass predefinedClass(char c) {
+      CharClass charClass;
+      switch (Character.toLowerCase(c)) {
+        case 'd':
+          charClass = CharClass.DIGIT;
+          break;
+        case 'w':
+          charClass = CharClass.WORD;
+          break;
+        case 's':
+          charClass = CharClass.SPACE;
+          break;
+        case 'h':
+          charClass = CharClass.HORIZONTAL_SPACE;
+          break;
+        default:
+          return null;
+      }
+      return Character.isUpperCase(c) ? charClass.negate() : charClass;
+    }
+
+    private int escapedChar(char c) {
+      switch (c) {
+        case 't':
+          return '\t';
+        case 'n':
+          return '\n';
+        case 'r':
+          return '\r';
+        case 'f':
+          return '\f';
+        default:
+          return Character.isLetterOrDigit(c) ? -1 : c;
+      }
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.sonalake.utah.regex;
+
+/**
+ * Thrown when an engine can't compile a regex because it uses a feature the engine doesn't support
+ */
+public class UnsupportedRegexException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * @param message what isn't supported
+   */
+  public UnsupportedRegexException(String message) {
+    super(message);
+  }
+}
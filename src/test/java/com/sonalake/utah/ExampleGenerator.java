@@ -0,0 +1,523 @@
+package com.sonalake.utah;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates synthetic input of any size for the example templates in <code>src/test/resources/examples</code>, for
+ * performance and stress testing.
+ * <p>
+ * The input is written a line at a time, so it can be much larger than the heap. It varies in the same ways as real
+ * device output: random addresses, counters and uptimes, both juniper record shapes, and, optionally, missing values.
+ * It can also include inputs that are known to be slow to parse: very long lines, and records that are missing their
+ * delimiter, so that they run into the next record. The same seed always generates the same input.
+ * <p>
+ * For the bgp summary and unix ifcfg templates the size is the number of peers or interfaces. For the version templates
+ * the whole input is one record, so the size is the number of lines of filler in the middle of it.
+ */
+public class ExampleGenerator {
+
+  /**
+   * The example templates, the name is the prefix of the template and example files
+   */
+  public enum Example {
+    CISCO_BGP_SUMMARY("cisco_bgp_summary"),
+    CISCO_VERSION("cisco_version"),
+    F10_IP_BGP_SUMMARY("f10_ip_bgp_summary"),
+    F10_VERSION("f10_version"),
+    JUNIPER_BGP_SUMMARY("juniper_bgp_summary"),
+    JUNIPER_VERSION("juniper_version"),
+    UNIX_IFCFG("unix_ifcfg");
+
+    private final String name;
+
+    Example(String name) {
+      this.name = name;
+    }
+
+    /**
+     * @return the prefix of the template and example files
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the classpath resource of the template
+     */
+    public String getTemplate() {
+      return "examples/" + name + "_template.xml";
+    }
+
+    /**
+     * @param name the prefix of the template and example files
+     * @return the example
+     */
+    public static Example of(String name) {
+      for (Example example : values()) {
+        if (example.name.equals(name)) {
+          return example;
+        }
+      }
+      throw new IllegalArgumentException(String.format("There's no example called %s", name));
+    }
+  }
+
+  private static final String[] CISCO_STATES = {"Idle", "Active", "Connect", "OpenSent", "Idle (Admin)"};
+  private static final String[] JUNIPER_STATES = {"Active", "Connect", "Idle", "OpenConfirm"};
+  private static final String[] INTERFACE_PREFIXES = {"en", "lo", "em", "bg", "wl", "ix"};
+  private static final String[] JUNOS_PACKAGES = {
+    "Base OS boot", "Base OS Software Suite", "Kernel Software Suite", "Crypto Software Suite",
+    "Packet Forwarding Engine Support (M/T Common)", "Packet Forwarding Engine Support (MX Common)",
+    "Online Documentation"
+  };
+  private static final String[] WORDS = {
+    "interface", "GigabitEthernet", "10.0.0.1", "up", "down", "65550", "0x2102", "bytes", "of", "memory", "(fc3)",
+    "5w4d", "Version", "12.2(31)SGA1", "-", "BGP", "route", "1/2/3"
+  };
+
+  private final Example example;
+  private long seed = 1;
+  private double missingRate;
+  private double longLineRate;
+  private int longLineLength = 1 << 16;
+  private double undelimitedRate;
+
+  private Random random;
+  private Writer out;
+
+  /**
+   * @param example the template the input is for
+   */
+  public ExampleGenerator(Example example) {
+    this.example = example;
+  }
+
+  /**
+   * @param seed the seed of the random values, the default is 1
+   * @return this generator
+   */
+  public ExampleGenerator withSeed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /**
+   * @param rate the fraction, from 0 to 1, of the optional values that are left out, the default is none of them
+   * @return this generator
+   */
+  public ExampleGenerator withMissingValues(double rate) {
+    this.missingRate = checkRate(rate);
+    return this;
+  }
+
+  /**
+   * Add very long lines to some of the records. For the templates with a record per line the record's own line is
+   * made longer, otherwise an extra line is added to the record. For the version templates some of the lines of
+   * filler are long.
+   *
+   * @param rate   the fraction, from 0 to 1, of the records, or lines of filler, that have a long line
+   * @param length the length of the long lines
+   * @return this generator
+   */
+  public ExampleGenerator withLongLines(double rate, int length) {
+    if (length < 1) {
+      throw new IllegalArgumentException(String.format("Length must be positive, not %s", length));
+    }
+    this.longLineRate = checkRate(rate);
+    this.longLineLength = length;
+    return this;
+  }
+
+  /**
+   * Leave out the delimiter of some of the records, so that they run into the next record. This only applies to the
+   * templates with a delimiter pattern, i.e. the juniper bgp summary and unix ifcfg.
+   *
+   * @param rate the fraction, from 0 to 1, of the records without a delimiter
+   * @return this generator
+   */
+  public ExampleGenerator withUndelimitedRecords(double rate) {
+    this.undelimitedRate = checkRate(rate);
+    return this;
+  }
+
+  /**
+   * Generate an input
+   *
+   * @param size the number of peers or interfaces, or the number of lines of filler for the version templates
+   * @return the input
+   */
+  public String generate(long size) {
+    StringWriter text = new StringWriter();
+    try {
+      write(text, size);
+    } catch (IOException e) {
+      // a string writer doesn't throw
+      throw new IllegalStateException(e);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Write an input
+   *
+   * @param out  the input is written to this, it's flushed, but not closed
+   * @param size the number of peers or interfaces, or the number of lines of filler for the version templates
+   * @throws IOException if the output can't be written
+   */
+  public synchronized void write(Writer out, long size) throws IOException {
+    if (size < 0) {
+      throw new IllegalArgumentException(String.format("Size can't be negative, not %s", size));
+    }
+    this.random = new Random(seed);
+    this.out = out;
+    try {
+      switch (example) {
+        case CISCO_BGP_SUMMARY:
+          writeCiscoBgpSummary(size);
+          break;
+        case CISCO_VERSION:
+          writeCiscoVersion(size);
+          break;
+        case F10_IP_BGP_SUMMARY:
+          writeF10BgpSummary(size);
+          break;
+        case F10_VERSION:
+          writeF10Version(size);
+          break;
+        case JUNIPER_BGP_SUMMARY:
+          writeJuniperBgpSummary(size);
+          break;
+        case JUNIPER_VERSION:
+          writeJuniperVersion(size);
+          break;
+        default:
+          writeIfcfg(size);
+          break;
+      }
+      out.flush();
+    } finally {
+      this.out = null;
+      this.random = null;
+    }
+  }
+
+  private void writeCiscoBgpSummary(long size) throws IOException {
+    line("BGP router identifier %s, local AS number %s", ipAddress(), asNumber());
+    line("BGP table version is %s, main routing table version %<s", random.nextInt(1000000));
+    line("%s network entries using %s bytes of memory", random.nextInt(1000000), random.nextInt(100000000));
+    line("%s path entries using %s bytes of memory", random.nextInt(1000000), random.nextInt(100000000));
+    line("BGP using %s total bytes of memory", random.nextInt(100000000));
+    line("");
+    line("Neighbor        V    AS MsgRcvd MsgSent   TblVer  InQ OutQ Up/Down  State/PfxRcd");
+    for (long i = 0; i < size; i++) {
+      String start = String.format("%-15s %s %5s %7s %7s %8s %4s %4s", ipAddress(), 4, asNumber(),
+        random.nextInt(10000000), random.nextInt(10000000), random.nextInt(1000000), random.nextInt(10),
+        random.nextInt(10));
+      if (isMissing()) {
+        // a peer that's never been up has no uptime
+        line("%s  %8s  %s", start, "never", state(CISCO_STATES));
+      } else {
+        line("%s  %-8s %s%s", start, uptime(), random.nextBoolean() ? random.nextInt(100000) : state(CISCO_STATES),
+          longTail());
+      }
+    }
+  }
+
+  private void writeF10BgpSummary(long size) throws IOException {
+    line("BGP router identifier %s, local AS number %s", ipAddress(), asNumber());
+    line("BGP table version is %s, main routing table version %<s", random.nextInt(1000000));
+    line("%s network entrie(s) using %s bytes of memory", random.nextInt(1000000), random.nextInt(100000000));
+    line("%s paths using %s bytes of memory", random.nextInt(1000000), random.nextInt(100000000));
+    line("%s neighbor(s) using %s bytes of memory", size, random.nextInt(100000000));
+    line("");
+    line("Neighbor        AS            MsgRcvd  MsgSent     TblVer  InQ  OutQ Up/Down  State/Pfx");
+    line("");
+    for (long i = 0; i < size; i++) {
+      String start = String.format("%-15s %5s %15s %8s %10s %4s %5s", ipAddress(), asNumber(),
+        random.nextInt(10000000), random.nextInt(10000000), random.nextInt(1000000), random.nextInt(10),
+        "(" + random.nextInt(10) + ")");
+      if (isMissing()) {
+        line("%s %8s", start, "never");
+      } else {
+        line("%s %8s %9s%s", start, clock(), random.nextBoolean() ? random.nextInt(100000) : state(CISCO_STATES),
+          longTail());
+      }
+    }
+  }
+
+  private void writeJuniperBgpSummary(long size) throws IOException {
+    line("Groups: %s Peers: %s Down peers: %s", random.nextInt(100), size, random.nextInt(100));
+    line("Table          Tot Paths  Act Paths Suppressed    History Damp State    Pending");
+    line("inet.0       %10s %10s %10s %10s %10s %10s", random.nextInt(1000000), random.nextInt(1000000), 0, 0, 0, 0);
+    line("inet6.0      %10s %10s %10s %10s %10s %10s", random.nextInt(1000000), random.nextInt(1000000), 0, 0, 0, 0);
+    line("Peer                     AS      InPkt     OutPkt    OutQ   Flaps Last Up/Dwn "
+      + "State|#Active/Received/Damped...");
+    for (long i = 0; i < size; i++) {
+      String start = String.format("%-18s %10s %10s %10s %7s %7s %11s", ipAddress(), asNumber(),
+        random.nextInt(10000000), random.nextInt(100000000), random.nextInt(10), random.nextInt(100), uptime());
+      if (random.nextBoolean()) {
+        // the counts are on the lines after the peer, and the inet6.0 line is the delimiter
+        line("%s Establ", start);
+        if (!isMissing()) {
+          line("  inet.0: %s", routeCounts());
+        }
+        writeLongLine();
+        if (!isUndelimited()) {
+          line("  inet6.0: %s", routeCounts());
+        }
+      } else {
+        // the counts are at the end of the peer line, or the state if it isn't established, the template has no
+        // delimiter for these, so they're part of the record of the next peer
+        line("%s %s", start, isMissing() ? state(JUNIPER_STATES) : routeCounts() + " " + routeCounts());
+        writeLongLine();
+      }
+    }
+  }
+
+  private void writeIfcfg(long size) throws IOException {
+    for (long i = 0; i < size; i++) {
+      String name = INTERFACE_PREFIXES[random.nextInt(INTERFACE_PREFIXES.length)] + random.nextInt(10);
+      if (isUndelimited()) {
+        // a name that doesn't match the delimiter, so the interface runs into the one before it
+        name = "bridge" + random.nextInt(1000);
+      }
+      line("%s: flags=8863<UP,BROADCAST,SMART,RUNNING,SIMPLEX,MULTICAST> mtu %s", name, 576 + random.nextInt(9000));
+      if (!isMissing()) {
+        line("\tether %s", macAddress());
+      }
+      if (!isMissing()) {
+        // the template only picks up the addresses without a scope
+        line("\tinet6 fe80::%x:%x%%%s prefixlen 64 scopeid 0x%x", random.nextInt(0x10000), random.nextInt(0x10000),
+          name, random.nextInt(16));
+        line("\tinet6 2001:db8::%x:%x prefixlen %s autoconf", random.nextInt(0x10000), random.nextInt(0x10000),
+          48 + 8 * random.nextInt(10));
+      }
+      if (!isMissing()) {
+        line("\tinet %s netmask 0x%08x broadcast %s", ipAddress(), -1 << random.nextInt(24), ipAddress());
+      }
+      writeLongLine();
+      line("\tmedia: autoselect (1000baseT <full-duplex,flow-control>)");
+      line("\tstatus: %s", random.nextBoolean() ? "active" : "inactive");
+    }
+  }
+
+  private void writeJuniperVersion(long size) throws IOException {
+    String version = String.format("%s.%sR%s.%s", 9 + random.nextInt(12), random.nextInt(4), 1 + random.nextInt(9),
+      random.nextInt(10));
+    line("Hostname: router%s.abc", random.nextInt(100000));
+    line("Model: mx%s", 80 * (1 + random.nextInt(12)));
+    for (String name : JUNOS_PACKAGES) {
+      if (!isMissing()) {
+        line("JUNOS %s [%s]", name, version);
+      }
+    }
+    // the packages that aren't in the template, as on a chassis with a lot of modules
+    for (long i = 0; i < size; i++) {
+      if (isLongLine()) {
+        line("JUNOS %s [%s]", longText(), version);
+      } else {
+        line("JUNOS %s Module %s [%s]", WORDS[random.nextInt(WORDS.length)], i, version);
+      }
+    }
+    line("JUNOS Routing Software Suite [%s]", version);
+  }
+
+  private void writeCiscoVersion(long size) throws IOException {
+    line("Cisco IOS Software, Catalyst 4500 L3 Switch Software (cat4500-ENTSERVICESK9-M), Version %s.%s(%s)SGA%s, "
+      + "RELEASE SOFTWARE (fc3)", 12 + random.nextInt(4), random.nextInt(5), random.nextInt(60), random.nextInt(9));
+    line("Technical Support: http://www.cisco.com/techsupport");
+    line("");
+    line("router%s.abc uptime is %s days, %s hours, %s minutes", random.nextInt(100000), random.nextInt(1000),
+      random.nextInt(24), random.nextInt(60));
+    if (!isMissing()) {
+      line("System returned to ROM by %s", random.nextBoolean() ? "reload" : "power-on");
+    }
+    line("System restarted at 05:09:09 PDT Wed Apr 2 2008");
+    line("System image file is \"bootflash:cat4500-entservicesk9-mz.122-%s.SGA1.bin\"", random.nextInt(100));
+    line("");
+    writeFiller(size);
+    line("cisco WS-C4948-10GE (MPC8540) processor (revision 5) with %sK bytes of memory.",
+      1 << (16 + random.nextInt(6)));
+    line("%s Gigabit Ethernet interfaces", 1 + random.nextInt(48));
+    line("");
+    line("Configuration register is 0x2102");
+  }
+
+  private void writeF10Version(long size) throws IOException {
+    line("Force10 Networks Real Time Operating System Software");
+    line("Force10 Application Software Version: %s.%s.%s.%s", 1 + random.nextInt(9), random.nextInt(9),
+      random.nextInt(9), random.nextInt(9));
+    line("router%s.abc uptime is %s day(s), %s hour(s), %s minute(s)", random.nextInt(100000), random.nextInt(1000),
+      random.nextInt(24), random.nextInt(60));
+    line("");
+    writeFiller(size);
+    line("System image file is \"flash://FTOS-EF-%s.bin\"", random.nextInt(100));
+    line("");
+    if (!isMissing()) {
+      line("Chassis Type: E%s", 300 * (1 + random.nextInt(4)));
+    }
+    line("%s GigabitEthernet/IEEE 802.3 interface(s)", random.nextInt(96));
+  }
+
+  /**
+   * Lines of text that don't match any of the values, as there would be between the values of a big record
+   */
+  private void writeFiller(long lines) throws IOException {
+    for (long i = 0; i < lines; i++) {
+      if (isLongLine()) {
+        line(longText());
+      } else if (random.nextInt(20) == 0) {
+        line("");
+      } else {
+        line("%s %s", 1 + random.nextInt(48), words(4 + random.nextInt(8)));
+      }
+    }
+  }
+
+  /**
+   * Write a long line, if the record is to have one
+   */
+  private void writeLongLine() throws IOException {
+    if (isLongLine()) {
+      line("  %s", longText());
+    }
+  }
+
+  /**
+   * @return a long description to add to the end of a line, if the record is to have one, otherwise nothing
+   */
+  private String longTail() {
+    return isLongLine() ? " " + longText() : "";
+  }
+
+  private String longText() {
+    StringBuilder text = new StringBuilder(longLineLength + 32);
+    while (text.length() < longLineLength) {
+      text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+    }
+    text.setLength(longLineLength);
+    return text.toString();
+  }
+
+  private String words(int count) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        text.append(' ');
+      }
+      text.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return text.toString();
+  }
+
+  private boolean isMissing() {
+    return missingRate > 0 && random.nextDouble() < missingRate;
+  }
+
+  private boolean isLongLine() {
+    return longLineRate > 0 && random.nextDouble() < longLineRate;
+  }
+
+  private boolean isUndelimited() {
+    return undelimitedRate > 0 && random.nextDouble() < undelimitedRate;
+  }
+
+  private String ipAddress() {
+    return String.format("%s.%s.%s.%s", 1 + random.nextInt(223), random.nextInt(256), random.nextInt(256),
+      1 + random.nextInt(254));
+  }
+
+  private String macAddress() {
+    return String.format("%02x:%02x:%02x:%02x:%02x:%02x", random.nextInt(256), random.nextInt(256),
+      random.nextInt(256), random.nextInt(256), random.nextInt(256), random.nextInt(256));
+  }
+
+  private int asNumber() {
+    return 64512 + random.nextInt(1023);
+  }
+
+  private String routeCounts() {
+    int received = random.nextInt(1000);
+    int active = random.nextInt(received + 1);
+    return String.format("%s/%s/%s", active, received, random.nextInt(10));
+  }
+
+  /**
+   * @return an uptime in weeks and days, as the devices show it after the first day
+   */
+  private String uptime() {
+    return String.format("%sw%sd%s", random.nextInt(100), random.nextInt(7),
+      random.nextBoolean() ? random.nextInt(24) + "h" : "");
+  }
+
+  /**
+   * @return an uptime as a time of day, as the devices show it during the first day
+   */
+  private String clock() {
+    return String.format("%02d:%02d:%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60));
+  }
+
+  private String state(String[] states) {
+    return states[random.nextInt(states.length)];
+  }
+
+  private void line(String format, Object... args) throws IOException {
+    out.write(args.length == 0 ? format : String.format(format, args));
+    out.write('\n');
+  }
+
+  private static double checkRate(double rate) {
+    if (rate < 0 || rate > 1) {
+      throw new IllegalArgumentException(String.format("Rate must be from 0 to 1, not %s", rate));
+    }
+    return rate;
+  }
+
+  /**
+   * Write an input to a file, e.g.
+   * <code>juniper_bgp_summary 500000 build/juniper.txt -m 0.1 -u 0.001</code>
+   *
+   * @param args the example, the size and the output file, then the options
+   * @throws IOException if the file can't be written
+   */
+  public static void main(String[] args) throws IOException {
+    Options options = new Options();
+    options.addOption("s", "seed", true, "The seed of the random values, the default is 1");
+    options.addOption("m", "missing", true, "The fraction of the optional values that are left out");
+    options.addOption("l", "long-lines", true, "The fraction of the records with a very long line");
+    options.addOption("L", "line-length", true, "The length of the long lines, the default is 65536");
+    options.addOption("u", "undelimited", true, "The fraction of the records without a delimiter");
+    try {
+      CommandLine cmd = new DefaultParser().parse(options, args);
+      if (cmd.getArgs().length != 3) {
+        throw new ParseException("The example, size and output file are needed");
+      }
+      ExampleGenerator generator = new ExampleGenerator(Example.of(cmd.getArgs()[0]))
+        .withSeed(Long.parseLong(cmd.getOptionValue("s", "1")))
+        .withMissingValues(Double.parseDouble(cmd.getOptionValue("m", "0")))
+        .withLongLines(Double.parseDouble(cmd.getOptionValue("l", "0")),
+          Integer.parseInt(cmd.getOptionValue("L", "65536")))
+        .withUndelimitedRecords(Double.parseDouble(cmd.getOptionValue("u", "0")));
+      try (BufferedWriter out = Files.newBufferedWriter(Paths.get(cmd.getArgs()[2]), StandardCharsets.UTF_8)) {
+        generator.write(out, Long.parseLong(cmd.getArgs()[1]));
+      }
+    } catch (ParseException | IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      new HelpFormatter().printHelp("ExampleGenerator <example> <size> <file>", options);
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.sonalake.utah;
+
+import com.sonalake.utah.ExampleGenerator.Example;
+import com.sonalake.utah.config.Config;
+import com.sonalake.utah.config.ConfigLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A test that the generated inputs parse as the templates expect
+ */
+public class ExampleGeneratorTest {
+
+  @Test
+  public void testSameSeedGeneratesSameInput() {
+    for (Example example : Example.values()) {
+      String first = new ExampleGenerator(example).withSeed(7).withMissingValues(0.2).generate(50);
+      Assert.assertEquals(example.getName(), first,
+        new ExampleGenerator(example).withSeed(7).withMissingValues(0.2).generate(50));
+      Assert.assertNotEquals(example.getName(), first,
+        new ExampleGenerator(example).withSeed(8).withMissingValues(0.2).generate(50));
+    }
+  }
+
+  /**
+   * Every peer or interface is a record, with all of its values
+   */
+  @Test
+  public void testRecordPerPeerOrInterface() throws IOException {
+    for (Example example : new Example[]{Example.CISCO_BGP_SUMMARY, Example.F10_IP_BGP_SUMMARY, Example.UNIX_IFCFG}) {
+      int fields = loadConfig(example).getSchema().size();
+      List<Map<String, String>> records = parse(example, new ExampleGenerator(example).generate(500));
+      Assert.assertEquals(example.getName(), 500, records.size());
+      for (Map<String, String> record : records) {
+        Assert.assertEquals(example.getName(), fields, record.size());
+      }
+    }
+  }
+
+  /**
+   * The version inputs are one record, however much filler there is
+   */
+  @Test
+  public void testVersionsAreOneRecord() throws IOException {
+    for (Example example : new Example[]{Example.CISCO_VERSION, Example.F10_VERSION, Example.JUNIPER_VERSION}) {
+      List<Map<String, String>> records = parse(example, new ExampleGenerator(example).generate(500));
+      Assert.assertEquals(example.getName(), 1, records.size());
+      Assert.assertEquals(example.getName(), loadConfig(example).getSchema().size(), records.get(0).size());
+    }
+  }
+
+  /**
+   * Only the peers with their counts on the following lines have a delimiter, so the other peers are in the same
+   * record as the next one of those
+   */
+  @Test
+  public void testJuniperShapes() throws IOException {
+    String text = new ExampleGenerator(Example.JUNIPER_BGP_SUMMARY).generate(500);
+    String[] lines = text.split("\n");
+    int peers = 0;
+    int delimiters = 0;
+    for (String line : lines) {
+      if (Character.isDigit(line.charAt(0))) {
+        peers++;
+      } else if (line.startsWith("  inet6.0:")) {
+        delimiters++;
+      }
+    }
+    Assert.assertEquals(500, peers);
+    Assert.assertTrue(delimiters > 0 && delimiters < peers);
+
+    List<Map<String, String>> records = parse(Example.JUNIPER_BGP_SUMMARY, text);
+    boolean isLastDelimited = lines[lines.length - 1].startsWith("  inet6.0:");
+    Assert.assertEquals(isLastDelimited ? delimiters : delimiters + 1, records.size());
+    for (Map<String, String> record : records) {
+      Assert.assertNotNull(record.get("remoteIp"));
+      Assert.assertNotNull(record.get("activeV6"));
+    }
+  }
+
+  @Test
+  public void testMissingValues() throws IOException {
+    List<Map<String, String>> records = parse(Example.UNIX_IFCFG,
+      new ExampleGenerator(Example.UNIX_IFCFG).withMissingValues(0.5).generate(500));
+    Assert.assertEquals(500, records.size());
+    int withoutEther = 0;
+    for (Map<String, String> record : records) {
+      Assert.assertNotNull(record.get("interface"));
+      withoutEther += record.containsKey("ether") ? 0 : 1;
+    }
+    Assert.assertTrue(withoutEther > 100 && withoutEther < 400);
+  }
+
+  @Test
+  public void testUndelimitedRecords() throws IOException {
+    for (Example example : new Example[]{Example.JUNIPER_BGP_SUMMARY, Example.UNIX_IFCFG}) {
+      int delimited = parse(example, new ExampleGenerator(example).generate(500)).size();
+      int undelimited = parse(example,
+        new ExampleGenerator(example).withUndelimitedRecords(0.2).generate(500)).size();
+      Assert.assertTrue(example.getName(), undelimited < delimited);
+    }
+  }
+
+  @Test
+  public void testLongLines() throws IOException {
+    for (Example example : Example.values()) {
+      String text = new ExampleGenerator(example).withLongLines(0.2, 5000).generate(50);
+      int longest = 0;
+      for (String line : text.split("\n")) {
+        longest = Math.max(longest, line.length());
+      }
+      Assert.assertTrue(example.getName(), longest >= 5000);
+      Assert.assertFalse(example.getName(), parse(example, text).isEmpty());
+    }
+  }
+
+  private static List<Map<String, String>> parse(Example example, String text) throws IOException {
+    Parser parser = Parser.parse(loadConfig(example), new StringReader(text));
+    List<Map<String, String>> records = new ArrayList<>();
+    for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+      records.add(record);
+    }
+    return records;
+  }
+
+  private static Config loadConfig(Example example) throws IOException {
+    ClassLoader classLoader = ExampleGeneratorTest.class.getClassLoader();
+    return new ConfigLoader().loadConfig(classLoader.getResource(example.getTemplate()));
+  }
+}
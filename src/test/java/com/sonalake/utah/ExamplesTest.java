@@ -2,13 +2,20 @@ package com.sonalake.utah;
 
 import com.sonalake.utah.config.Config;
 import com.sonalake.utah.config.ConfigLoader;
+import com.sonalake.utah.config.RecordVisitor;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,7 +34,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     @Test
-    public void testSampleFile() throws IOException {
+    public void testSampleFile() throws IOException, URISyntaxException {
         String configResource = "sample.config.xml";
         String fileResource = "sample.import.txt";
 
@@ -59,7 +66,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     @Test
-    public void testExampleCiscoVersion() throws IOException {
+    public void testExampleCiscoVersion() throws IOException, URISyntaxException {
         String configResource = "examples/cisco_version_template.xml";
         String fileResource = "examples/cisco_version_example.txt";
 
@@ -88,7 +95,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     @Test
-    public void testExampleCiscoBgpSurvey() throws IOException {
+    public void testExampleCiscoBgpSurvey() throws IOException, URISyntaxException {
         String configResource = "examples/cisco_bgp_summary_template.xml";
         String fileResource = "examples/cisco_bgp_summary_example.txt";
 
@@ -125,7 +132,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     @Test
-    public void testExampleF10IPBgpSurvey() throws IOException {
+    public void testExampleF10IPBgpSurvey() throws IOException, URISyntaxException {
         String configResource = "examples/f10_ip_bgp_summary_template.xml";
         String fileResource = "examples/f10_ip_bgp_summary_example.txt";
 
@@ -168,7 +175,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     @Test
-    public void testExampleF10Version() throws IOException {
+    public void testExampleF10Version() throws IOException, URISyntaxException {
         String configResource = "examples/f10_version_template.xml";
         String fileResource = "examples/f10_version_example.txt";
 
@@ -193,7 +200,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     @Test
-    public void testJuniperBgpVersion() throws IOException {
+    public void testJuniperBgpVersion() throws IOException, URISyntaxException {
         String configResource = "examples/juniper_bgp_summary_template.xml";
         String fileResource = "examples/juniper_bgp_summary_example.txt";
 
@@ -256,7 +263,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     @Test
-    public void testExampleJuniperVersion() throws IOException {
+    public void testExampleJuniperVersion() throws IOException, URISyntaxException {
         String configResource = "examples/juniper_version_template.xml";
         String fileResource = "examples/juniper_version_example.txt";
 
@@ -285,7 +292,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     @Test
-    public void testExampleIfcfg() throws IOException {
+    public void testExampleIfcfg() throws IOException, URISyntaxException {
         String configResource = "examples/unix_ifcfg_template.xml";
         String fileResource = "examples/unix_ifcfg_example.txt";
 
@@ -358,7 +365,7 @@ public class ExamplesTest {
      * @throws IOException
      */
     private void testFileProcessing(String configResource, String fileResource, List<Map<String, String>>
-            expectedResults) throws IOException {
+            expectedResults) throws IOException, URISyntaxException {
         // load the config
         URL configURL = Thread.currentThread().getContextClassLoader().getResource(configResource);
         Config config = new ConfigLoader().loadConfig(configURL);
@@ -379,6 +386,59 @@ public class ExamplesTest {
         }
 
         Assert.assertEquals(expectedResults, observedValues);
+
+        // a mapped file should give the same results
+        List<Map<String, String>> mappedValues = new ArrayList<>();
+        Path file = Paths.get(Thread.currentThread().getContextClassLoader().getResource(fileResource).toURI());
+        Parser parser = Parser.parse(config, file);
+        for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+            mappedValues.add(record);
+        }
+        Assert.assertEquals(expectedResults, mappedValues);
+
+        // and so should the linear regex engine
+        String configText = new String(Files.readAllBytes(Paths.get(configURL.toURI())), StandardCharsets.UTF_8);
+        Config linearConfig = new ConfigLoader().loadConfig(
+                new StringReader(configText.replace("<config>", "<config engine=\"linear\">")));
+        List<Map<String, String>> linearValues = new ArrayList<>();
+        Parser linearParser = Parser.parse(linearConfig, file);
+        for (Map<String, String> record = linearParser.next(); null != record; record = linearParser.next()) {
+            linearValues.add(record);
+        }
+        Assert.assertEquals(expectedResults, linearValues);
+
+        // the examples declare their values in the order they appear, so searching in order shouldn't change them
+        Config orderedConfig = new ConfigLoader().loadConfig(
+                new StringReader(configText.replace("<config>", "<config ordered-values=\"true\">")));
+        List<Map<String, String>> orderedValues = new ArrayList<>();
+        Parser orderedParser = Parser.parse(orderedConfig, file);
+        for (Map<String, String> record = orderedParser.next(); null != record; record = orderedParser.next()) {
+            orderedValues.add(record);
+        }
+        Assert.assertEquals(expectedResults, orderedValues);
+
+        // and the values pushed to a visitor should be the same as those in the maps
+        List<Map<String, String>> visitedValues = new ArrayList<>();
+        Parser.parse(config, file).forEach(new RecordVisitor() {
+            private Map<String, String> record;
+
+            @Override
+            public void startRecord() {
+                record = new TreeMap<>();
+            }
+
+            @Override
+            public void field(int slot, String id, CharSequence value) {
+                Assert.assertEquals(id, config.getSchema().getId(slot));
+                record.put(id, null == value ? null : value.toString());
+            }
+
+            @Override
+            public void endRecord() {
+                visitedValues.add(record);
+            }
+        });
+        Assert.assertEquals(expectedResults, visitedValues);
     }
 
 }
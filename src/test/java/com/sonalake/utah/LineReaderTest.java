@@ -0,0 +1,61 @@
+package com.sonalake.utah;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A test of the line reader - it should split lines the same way as a buffered reader
+ */
+public class LineReaderTest {
+
+  @Test
+  public void testLineTerminators() throws IOException {
+    assertSameLines("a\nb\r\nc\rd");
+    assertSameLines("a\n\nb\r\n\r\nc\r\r");
+    assertSameLines("\r\n");
+    assertSameLines("trailing line\n");
+    assertSameLines("");
+  }
+
+  /**
+   * Lines that are longer than the buffer, or are split across buffer refills, should be read whole
+   */
+  @Test
+  public void testLinesAcrossBufferBoundaries() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      for (int j = 0; j < i; j++) {
+        text.append((char) ('a' + (j % 26)));
+      }
+      text.append(i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\r" : "\n");
+    }
+    assertSameLines(text.toString(), 4);
+    assertSameLines(text.toString(), 7);
+  }
+
+  private void assertSameLines(String text) throws IOException {
+    assertSameLines(text, 8192);
+  }
+
+  private void assertSameLines(String text, int bufferSize) throws IOException {
+    List<String> expected = new ArrayList<>();
+    BufferedReader reference = new BufferedReader(new StringReader(text));
+    for (String line = reference.readLine(); null != line; line = reference.readLine()) {
+      expected.add(line);
+    }
+
+    List<String> observed = new ArrayList<>();
+    LineReader reader = new LineReader(new StringReader(text), bufferSize);
+    for (CharSequence line = reader.readLine(); null != line; line = reader.readLine()) {
+      observed.add(line.toString());
+    }
+    assertEquals(expected, observed);
+  }
+}
@@ -0,0 +1,96 @@
+package com.sonalake.utah;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A test of the mapped line reader - it should split lines the same way as a buffered reader
+ */
+public class MappedLineReaderTest {
+
+  private Path file;
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("mapped", ".txt");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testLineTerminators() throws IOException {
+    assertSameLines("a\nb\r\nc\rd", StandardCharsets.UTF_8);
+    assertSameLines("a\n\nb\r\n\r\nc\r\r", StandardCharsets.UTF_8);
+    assertSameLines("trailing line\n", StandardCharsets.UTF_8);
+    assertSameLines("", StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testNonAsciiLines() throws IOException {
+    assertSameLines("plain\ncafé – über\nplain again\n", StandardCharsets.UTF_8);
+    assertSameLines("plain\ncafé über\nplain again\n", StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Use tiny windows, so that lines are split across windows, and some lines are longer than a window
+   */
+  @Test
+  public void testLinesAcrossWindows() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      for (int j = 0; j < i; j++) {
+        text.append(j % 7 == 0 ? 'é' : (char) ('a' + (j % 26)));
+      }
+      text.append(i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\r" : "\n");
+    }
+    assertSameLines(text.toString(), StandardCharsets.UTF_8, 4);
+    assertSameLines(text.toString(), StandardCharsets.UTF_8, 7);
+  }
+
+  @Test
+  public void testSupportedCharsets() {
+    assertTrue(MappedLineReader.isSupported(StandardCharsets.UTF_8));
+    assertTrue(MappedLineReader.isSupported(StandardCharsets.US_ASCII));
+    assertTrue(MappedLineReader.isSupported(StandardCharsets.ISO_8859_1));
+    assertFalse(MappedLineReader.isSupported(StandardCharsets.UTF_16));
+  }
+
+  private void assertSameLines(String text, Charset charset) throws IOException {
+    assertSameLines(text, charset, MappedLineReader.DEFAULT_WINDOW_SIZE);
+  }
+
+  private void assertSameLines(String text, Charset charset, int windowSize) throws IOException {
+    Files.write(file, text.getBytes(charset));
+
+    List<String> expected = new ArrayList<>();
+    BufferedReader reference = new BufferedReader(new StringReader(text));
+    for (String line = reference.readLine(); null != line; line = reference.readLine()) {
+      expected.add(line);
+    }
+
+    List<String> observed = new ArrayList<>();
+    MappedLineReader reader = new MappedLineReader(file, charset, 0, Files.size(file), windowSize);
+    for (CharSequence line = reader.readLine(); null != line; line = reader.readLine()) {
+      observed.add(line.toString());
+    }
+    assertEquals(expected, observed);
+  }
+}
@@ -0,0 +1,116 @@
+package com.sonalake.utah;
+
+import com.sonalake.utah.config.Config;
+import com.sonalake.utah.config.ConfigLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A test that the parallel parser gives the same records as the sequential parser, for every chunk size
+ */
+public class ParallelParserTest {
+
+  @Test
+  public void testSampleFile() throws IOException, URISyntaxException {
+    assertSameRecords("sample.config.xml", "sample.import.txt");
+  }
+
+  /**
+   * A header and a record per line
+   */
+  @Test
+  public void testCiscoBgpSummary() throws IOException, URISyntaxException {
+    assertSameRecords("examples/cisco_bgp_summary_template.xml", "examples/cisco_bgp_summary_example.txt");
+  }
+
+  /**
+   * A header, and multiple delimiters, one of which is retained
+   */
+  @Test
+  public void testJuniperBgpSummary() throws IOException, URISyntaxException {
+    assertSameRecords("examples/juniper_bgp_summary_template.xml", "examples/juniper_bgp_summary_example.txt");
+  }
+
+  /**
+   * A delimiter at the start of the record
+   */
+  @Test
+  public void testIfcfg() throws IOException, URISyntaxException {
+    assertSameRecords("examples/unix_ifcfg_template.xml", "examples/unix_ifcfg_example.txt");
+  }
+
+  /**
+   * A delimiter at the start of the record, where the first record has some text before the first delimiter
+   */
+  @Test
+  public void testIfcfgWithPreamble() throws IOException, URISyntaxException {
+    Path file = Files.createTempFile("ifcfg", ".txt");
+    try {
+      Path example = resourcePath("examples/unix_ifcfg_example.txt");
+      String text = "$ ifconfig -a\r\n\r\n" + new String(Files.readAllBytes(example), StandardCharsets.UTF_8);
+      Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+      assertSameRecords("examples/unix_ifcfg_template.xml", file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * The whole file is a record
+   */
+  @Test
+  public void testOneRecord() throws IOException, URISyntaxException {
+    assertSameRecords("examples/cisco_version_template.xml", "examples/cisco_version_example.txt");
+  }
+
+  /**
+   * Check every possible chunk size, so that we try to cut the file at every offset
+   */
+  private void assertSameRecords(String configResource, String fileResource) throws IOException, URISyntaxException {
+    assertSameRecords(configResource, resourcePath(fileResource));
+  }
+
+  private void assertSameRecords(String configResource, Path file) throws IOException {
+    URL configURL = Thread.currentThread().getContextClassLoader().getResource(configResource);
+    Config config = new ConfigLoader().loadConfig(configURL);
+
+    // the sequential records
+    List<Map<String, String>> expected = new ArrayList<>();
+    String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    Parser parser = Parser.parse(config, new StringReader(text));
+    for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+      expected.add(record);
+    }
+    Assert.assertFalse(expected.isEmpty());
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (long chunkSize = 1; chunkSize <= text.length() + 1; chunkSize++) {
+        List<Map<String, String>> observed = new ParallelParser(config)
+          .withPool(pool)
+          .withChunkSize(chunkSize)
+          .parse(file);
+        Assert.assertEquals(String.format("Chunk size: %s", chunkSize), expected, observed);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private Path resourcePath(String resource) throws URISyntaxException {
+    return Paths.get(Thread.currentThread().getContextClassLoader().getResource(resource).toURI());
+  }
+}
@@ -0,0 +1,92 @@
+package com.sonalake.utah;
+
+import com.sonalake.utah.config.Config;
+import com.sonalake.utah.config.ConfigLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A test of the stream of records from the parser
+ */
+public class RecordSpliteratorTest {
+
+  private Config config;
+  private String text;
+
+  /**
+   * Build a large per-line file, from the cisco BGP summary example, so the stream has to be split many times
+   */
+  @Before
+  public void setup() throws IOException {
+    URL configURL = Thread.currentThread().getContextClassLoader().getResource("examples/cisco_bgp_summary_template.xml");
+    config = new ConfigLoader().loadConfig(configURL);
+
+    StringBuilder file = new StringBuilder(readResource("examples/cisco_bgp_summary_example.txt"));
+    for (int i = 0; i < 5000; i++) {
+      file.append(String.format("192.0.%s.%s      4 %s    6965    1766        9    0    0  5w4d  %s\n",
+        i / 250, i % 250, 60000 + i, i));
+    }
+    text = file.toString();
+  }
+
+  @Test
+  public void testSequentialStream() {
+    assertEquals(readAll(), Parser.parse(config, new StringReader(text)).stream().collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testParallelStreamIsOrdered() {
+    List<Map<String, String>> expected = readAll();
+    List<Map<String, String>> observed = Parser.parse(config, new StringReader(text))
+      .stream()
+      .parallel()
+      .collect(Collectors.toList());
+    assertEquals(expected.size(), observed.size());
+    assertEquals(expected, observed);
+  }
+
+  @Test
+  public void testCharacteristics() {
+    Spliterator<Map<String, String>> spliterator = Parser.parse(config, new StringReader(text)).stream().spliterator();
+    assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+    assertTrue(spliterator.hasCharacteristics(Spliterator.NONNULL));
+
+    // the split off batch knows exactly how many records it has
+    Spliterator<Map<String, String>> batch = spliterator.trySplit();
+    assertEquals(RecordSpliterator.BATCH_UNIT, batch.getExactSizeIfKnown());
+  }
+
+  private List<Map<String, String>> readAll() {
+    List<Map<String, String>> records = new ArrayList<>();
+    Parser parser = Parser.parse(config, new StringReader(text));
+    for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+      records.add(record);
+    }
+    return records;
+  }
+
+  private String readResource(String resource) throws IOException {
+    try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(resource)) {
+      StringBuilder result = new StringBuilder();
+      byte[] buffer = new byte[4096];
+      for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+        result.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+      }
+      return result.toString();
+    }
+  }
+}
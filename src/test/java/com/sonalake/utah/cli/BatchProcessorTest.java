@@ -0,0 +1,101 @@
+package com.sonalake.utah.cli;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for parsing many files from the command line
+ */
+public class BatchProcessorTest {
+
+    private Path directory;
+    private Path template;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("batch");
+        template = copy("examples/cisco_bgp_summary_template.xml", directory.resolve("template.xml"));
+        Files.createDirectories(directory.resolve("in/nested"));
+        copy("examples/cisco_bgp_summary_example.txt", directory.resolve("in/a.txt"));
+        copy("examples/cisco_bgp_summary_example.txt", directory.resolve("in/nested/b.txt"));
+        Files.write(directory.resolve("in/c.log"), "nothing here\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void testFindFiles() throws IOException {
+        String in = directory.resolve("in").toString();
+        assertEquals(
+            Arrays.asList(directory.resolve("in/a.txt"), directory.resolve("in/c.log"), directory.resolve("in/nested/b.txt")),
+            BatchProcessor.findFiles(Collections.singletonList(in))
+        );
+        assertEquals(
+            Arrays.asList(directory.resolve("in/a.txt"), directory.resolve("in/nested/b.txt")),
+            BatchProcessor.findFiles(Arrays.asList(in + "/*.txt", in + "/nested/b.txt"))
+        );
+    }
+
+    @Test
+    public void testMergedOutputHasTheSourceOfEachRecord() throws IOException {
+        String output = run("-o", "ndjson", "-t", "2", directory.resolve("in") + "/**.txt");
+
+        List<String> lines = Arrays.asList(output.split("\n"));
+        assertEquals(String.format("Wrong output: %s", output), 4, lines.size());
+        for (String file : new String[]{"in/a.txt", "in/nested/b.txt"}) {
+            String source = String.format("{\"source\":\"%s\",", directory.resolve(file));
+            assertEquals(output, 2, lines.stream().filter(line -> line.startsWith(source)).count());
+        }
+    }
+
+    @Test
+    public void testOutputFilePerInput() throws IOException {
+        Path out = directory.resolve("out");
+        String output = run("-o", "csv", "-d", out.toString(), directory.resolve("in/a.txt").toString(),
+            directory.resolve("in/nested/b.txt").toString());
+
+        // nothing goes to stdout
+        assertEquals("", output);
+        List<String> lines = Files.readAllLines(out.resolve("b.txt.csv"), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("localAS,remoteAS,remoteIp,routerId"));
+        assertEquals(lines, Files.readAllLines(out.resolve("a.txt.csv"), StandardCharsets.UTF_8));
+    }
+
+    private String run(String... args) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        String[] allArgs = new String[args.length + 2];
+        allArgs[0] = "-f";
+        allArgs[1] = template.toString();
+        System.arraycopy(args, 0, allArgs, 2, args.length);
+        new CommandLineInterface().processArgs(allArgs, new StringReader(""), new PrintStream(baos, true));
+        return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private Path copy(String resource, Path file) throws IOException {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(resource)) {
+            FileUtils.copyInputStreamToFile(in, file.toFile());
+        }
+        return file;
+    }
+}
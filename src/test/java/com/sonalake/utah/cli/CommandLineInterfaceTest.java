@@ -2,6 +2,8 @@ package com.sonalake.utah.cli;
 
 import com.google.gson.GsonBuilder;
 import com.sonalake.utah.Parser;
+import com.sonalake.utah.config.Config;
+import com.sonalake.utah.config.ConfigLoader;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.csv.CSVFormat;
@@ -72,6 +74,27 @@ public class CommandLineInterfaceTest {
 
     }
 
+    /*
+     * Tests NDJSON Output format is read correctly from command line
+     */
+    @Test
+    public void testArgNdjson() throws ParseException {
+        CLIConfig config = generateCommandline(" -o ndjson -f config.xml");
+
+        assertEquals(CLIConfig.Format.NDJSON, config.getFormat());
+    }
+
+    /*
+     * Tests the config can be precompiled from the command line
+     */
+    @Test
+    public void testArgPrecompile() throws ParseException {
+        CLIConfig config = generateCommandline(" -c -f config.xml");
+
+        assertTrue(config.isPrecompile());
+        assertEquals("config.xml.bin", config.getCompiledPath().toString());
+    }
+
     /*
      * Tests to assure invalid formats don't work
      */
@@ -103,7 +126,7 @@ public class CommandLineInterfaceTest {
      * Tests that the JSON output is the correct format
      */
     @Test
-    public void testJsonFormat() {
+    public void testJsonFormat() throws IOException {
         CommandLineInterface iface = new CommandLineInterface();
         OutputHelper helper  = new OutputHelper();
 
@@ -127,6 +150,31 @@ public class CommandLineInterfaceTest {
         assertEquals(expected, observed);
     }
 
+    /*
+     * Tests that the NDJSON output has one compact object per line
+     */
+    @Test
+    public void testNdjsonFormat() throws IOException {
+        CommandLineInterface iface = new CommandLineInterface();
+        OutputHelper helper  = new OutputHelper();
+
+        Parser parser = mock(Parser.class);
+        Map<String, String>[] parsedRecords  = new MapHelper()
+                .newMap()
+                .put("a", "hello")
+                .put("b", null)
+                .newMap()
+                .put("b", "out")
+                .put("c", "there")
+                .toArray();
+
+        when(parser.next()).thenReturn(parsedRecords[0]).thenReturn(parsedRecords[1]).thenReturn(null);
+
+        iface.printToNDJSON(parser, helper.target);
+
+        assertEquals("{\"a\":\"hello\"}\n{\"b\":\"out\",\"c\":\"there\"}\n", helper.getOutputAsString());
+    }
+
     private class OutputHelper {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         PrintStream target = new PrintStream(baos, true);
@@ -159,7 +207,7 @@ public class CommandLineInterfaceTest {
                 null
         );
 
-        iface.printToCSV(parser, helper.target);
+        iface.printToCSV(Arrays.asList("a", "b", "c", "d", "f"), parser, helper.target);
 
         String content = helper.getOutputAsString();
 
@@ -172,6 +220,14 @@ public class CommandLineInterfaceTest {
         assertCsvContent(content, expected);
     }
 
+    /*
+     * Tests that the CSV headers are every id in the template, even those that aren't in any record
+     */
+    @Test
+    public void testCsvColumnsComeFromTheTemplate() throws IOException {
+        assertEquals(Arrays.asList("a", "b", "c"), CommandLineInterface.getColumns(buildConfig("c", "a", "b")));
+    }
+
     @Test
     public void testHelpOutputForNoArgs() {
         CommandLineInterface iface = new CommandLineInterface();
@@ -238,6 +294,7 @@ public class CommandLineInterfaceTest {
 
         Parser parser = mock(Parser.class);
         when(parser.next()).thenReturn(new MapHelper().newMap().put("a","xyz").toArray()[0], null);
+        when(parser.getConfig()).thenReturn(buildConfig("a"));
         doReturn(parser).when(iface).parseInput(any(CLIConfig.class), any(BufferedReader.class));
 
         OutputHelper helper  = new OutputHelper();
@@ -247,6 +304,22 @@ public class CommandLineInterfaceTest {
         return helper;
     }
 
+    /**
+     * Build a config with a header value for the first id, and a value for each of the others
+     * @param ids the ids
+     * @return the config
+     */
+    private Config buildConfig(String... ids) throws IOException {
+        StringBuilder xml = new StringBuilder("<config><header-delim><![CDATA[---]]></header-delim><header>");
+        xml.append(String.format("<value id=\"%s\"><![CDATA[(.*)]]></value></header>", ids[0]));
+        xml.append("<delim per-line=\"true\"/><values>");
+        for (int i = 1; i < ids.length; i++) {
+            xml.append(String.format("<value id=\"%s\"><![CDATA[(.*)]]></value>", ids[i]));
+        }
+        xml.append("</values></config>");
+        return new ConfigLoader().loadConfig(new StringReader(xml.toString()));
+    }
+
     private void assertCsvContent(String content, List<List<String>> expected) throws IOException {
         CSVParser csv = CSVParser.parse(content, CSVFormat.DEFAULT);
 
@@ -0,0 +1,105 @@
+package com.sonalake.utah.config;
+
+import com.sonalake.utah.Parser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for loading precompiled configs
+ */
+public class CompiledTemplateTest {
+
+  private Path compiled;
+
+  @Before
+  public void setUp() throws IOException {
+    compiled = Files.createTempFile("template", ".bin");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(compiled);
+  }
+
+  /**
+   * Every example parses the same with the compiled config as with the XML
+   */
+  @Test
+  public void testCompiledConfigsParseTheSame() throws IOException, URISyntaxException {
+    for (String example : new String[]{
+      "cisco_bgp_summary", "cisco_version", "f10_ip_bgp_summary", "f10_version", "juniper_bgp_summary",
+      "juniper_version", "unix_ifcfg"
+    }) {
+      Path source = resourcePath(String.format("examples/%s_template.xml", example));
+      String text = new String(
+        Files.readAllBytes(resourcePath(String.format("examples/%s_example.txt", example))), StandardCharsets.UTF_8
+      );
+      new ConfigLoader().compileConfig(source, compiled);
+
+      List<Map<String, String>> expected = parse(new ConfigLoader().loadConfig(source.toUri().toURL()), text);
+      assertFalse(expected.isEmpty());
+      assertEquals(example, expected, parse(new ConfigLoader().loadConfig(source, compiled), text));
+      try (InputStream in = Files.newInputStream(compiled)) {
+        assertEquals(example, expected, parse(new ConfigLoader().loadCompiledConfig(in), text));
+      }
+    }
+  }
+
+  @Test
+  public void testChangedSourceIsLoadedFromTheXml() throws IOException {
+    Path source = Files.createTempFile("template", ".xml");
+    try {
+      Files.write(source, template("a").getBytes(StandardCharsets.UTF_8));
+      new ConfigLoader().compileConfig(source, compiled);
+      Files.write(source, template("b").getBytes(StandardCharsets.UTF_8));
+      assertEquals("b", new ConfigLoader().loadConfig(source, compiled).getHeaderNames().get(0));
+
+      // a file in some other format is ignored too
+      Files.write(compiled, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+      assertEquals("b", new ConfigLoader().loadConfig(source, compiled).getHeaderNames().get(0));
+    } finally {
+      Files.delete(source);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testOtherFormatsAreRejected() throws IOException {
+    new ConfigLoader().loadCompiledConfig(new ByteArrayInputStream(template("a").getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private List<Map<String, String>> parse(Config config, String text) {
+    List<Map<String, String>> records = new ArrayList<>();
+    Parser parser = Parser.parse(config, new StringReader(text));
+    for (Map<String, String> record = parser.next(); null != record; record = parser.next()) {
+      records.add(record);
+    }
+    return records;
+  }
+
+  private String template(String id) {
+    return String.format(
+      "<config><delim per-line=\"true\"/><values><value id=\"%s\"><![CDATA[(.*)]]></value></values></config>", id
+    );
+  }
+
+  private Path resourcePath(String resource) throws URISyntaxException {
+    return Paths.get(Thread.currentThread().getContextClassLoader().getResource(resource).toURI());
+  }
+}
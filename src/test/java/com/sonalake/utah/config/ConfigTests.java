@@ -18,10 +18,14 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -177,6 +181,364 @@ public class ConfigTests {
     assertEquals("999", header.get("header"));
   }
 
+  /**
+   * Values that use the same regex share a single match, but each one takes its own group
+   */
+  @Test
+  public void testValuesShareIdenticalPatterns() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addSearch("line", "(\\d+)/(\\d+)/(\\d+)");
+    addValue("first", "inet.0: {line}");
+    addValue("second", "inet.0: {line}").setAttribute("group", "2");
+    addValue("third", "inet.0: {line}").setAttribute("group", "3");
+    addValue("other", "inet6.0: {line}");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    Map<String, String> record = config.buildRecord("inet.0: 4/5/1\ninet6.0: 0/0/7\n");
+    assertEquals("4", record.get("first"));
+    assertEquals("5", record.get("second"));
+    assertEquals("1", record.get("third"));
+    assertEquals("0", record.get("other"));
+    ValueSet valueSet = new ValueSet(config.values, Collections.<Section>emptyList(), false, config.getSchema());
+    assertEquals(2, valueSet.getPatternCount());
+  }
+
+  @Test
+  public void testValuesAreFoundFromTheLineOfTheirLiterals() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("id", "Some ID: (\\S+)");
+    addValue("name", "\\s(\\w+) name:");
+    addValue("spanning", "start(.*)end");
+    addValue("missing", "inet6.0: (\\S+)").setAttribute("default", "none");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    Map<String, String> record = config.buildRecord("start\n  first name: x\nSome ID: 42\nend\n");
+    assertEquals("42", record.get("id"));
+    assertEquals("first", record.get("name"));
+    assertEquals("\n  first name: x\nSome ID: 42\n", record.get("spanning"));
+    assertEquals("none", record.get("missing"));
+  }
+
+  @Test
+  public void testFirstApplicableDelimiterIsUsed() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("{number} items");
+    addDelimiter("=====");
+    addDelimiter("(=+)");
+    addDelimiter("(\\w+) (\\w+)");
+    addSearch("number", "(\\d+)");
+    addValue("value", "(.*)");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    assertSame(config.delimiters.get(0), config.getApplicableDelim("12 items"));
+    assertSame(config.delimiters.get(1), config.getApplicableDelim("====="));
+    assertSame(config.delimiters.get(2), config.getApplicableDelim("===="));
+    assertSame(config.delimiters.get(3), config.getApplicableDelim("some items"));
+    assertNull(config.getApplicableDelim("items"));
+    assertNull(config.getApplicableDelim("   "));
+    assertFalse(config.matchesRecordDelim("===== "));
+  }
+
+  @Test
+  public void testDelimitersWithBackReferencesAreNotCombined() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("(-)\\1+");
+    addDelimiter("(=)\\1+");
+    addValue("value", "(.*)");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    assertSame(config.delimiters.get(0), config.getApplicableDelim("---"));
+    assertSame(config.delimiters.get(1), config.getApplicableDelim("==="));
+    assertNull(config.getApplicableDelim("-="));
+  }
+
+  @Test
+  public void testPerLineDelimiterHidesLaterDelimiters() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("=====");
+    addPerLineDelimiter();
+    addDelimiter("(.*)");
+    addValue("value", "(.*)");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    assertSame(config.delimiters.get(0), config.getApplicableDelim("====="));
+    assertSame(config.delimiters.get(1), config.getApplicableDelim("text"));
+    assertNull(config.getApplicableDelim(""));
+  }
+
+  @Test
+  public void testValuesCanChooseTheirRegexEngine() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("linear", "ID: (\\d+)").setAttribute("engine", "linear");
+    // back references aren't supported by the linear engine, so this falls back to the default
+    addValue("repeated", "(\\w)\\1").setAttribute("engine", "linear");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    Map<String, String> record = config.buildRecord("ID: 42 abba\n");
+    assertEquals("42", record.get("linear"));
+    assertEquals("b", record.get("repeated"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownRegexEngine() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("value", "(.*)").setAttribute("engine", "unknown");
+    new ConfigLoader().loadConfig(buildDocReader());
+  }
+
+  @Test
+  public void testLineScopedValuesSeeOnlyTheirLine() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("auto", "ID: (\\d+)");
+    addValue("line", "^name: (\\w+)$").setAttribute("scope", "line");
+    addValue("record", "^name: (\\w+)$");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+    assertTrue(config.hasLineScopedValues());
+
+    Map<String, String> record = config.buildRecord("first line\nname: x\nID: 42\nID: 43\n");
+    assertEquals("42", record.get("auto"));
+    assertEquals("x", record.get("line"));
+    // without a scope, the anchors are for the whole record
+    assertNull(record.get("record"));
+
+    // the values are the same when the lines are added one at a time
+    RecordState state = config.startRecord(null);
+    for (String line : new String[]{"first line", "name: x", "ID: 42", "ID: 43"}) {
+      state.addLine(line);
+    }
+    assertTrue(state.isTextNeeded());
+    assertEquals(record, config.buildRecord(state, "first line\nname: x\nID: 42\nID: 43\n"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownScope() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("value", "(.*)").setAttribute("scope", "page");
+    new ConfigLoader().loadConfig(buildDocReader());
+  }
+
+  @Test
+  public void testValuesAreOnlyFoundInTheirSection() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addSection("interfaces", "show interfaces", "show .*");
+    addSection("clock", "show clock", null);
+    addSection("version", "show version", null);
+    addValue("anywhere", "MTU (\\d+)");
+    addValue("interfaces", "MTU (\\d+)").setAttribute("section", "interfaces");
+    addValue("interfacesRecord", "MTU\\s(\\d+)").setAttribute("section", "interfaces");
+    addValue("clock", "^MTU (\\d+)$").setAttribute("section", "clock");
+    Element version = addValue("version", "MTU (\\d+)");
+    version.setAttribute("section", "version");
+    version.setAttribute("default", "none");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    String text = "show ip\nMTU 1\nshow interfaces\nMTU 2\nshow clock\nMTU 3\n";
+    Map<String, String> record = config.buildRecord(text);
+    assertEquals("1", record.get("anywhere"));
+    assertEquals("2", record.get("interfaces"));
+    assertEquals("2", record.get("interfacesRecord"));
+    // anchors match at the ends of the section
+    assertEquals(null, record.get("clock"));
+    assertEquals("none", record.get("version"));
+
+    RecordState state = config.startRecord(null);
+    for (String line : text.split("\n")) {
+      state.addLine(line);
+    }
+    assertEquals(record, config.buildRecord(state, text));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownSection() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("value", "(.*)").setAttribute("section", "missing");
+    new ConfigLoader().loadConfig(buildDocReader());
+  }
+
+  /**
+   * Add a section to the config
+   * @param id the id
+   * @param start the regex for the first line
+   * @param end the regex for the line after the section, or null
+   */
+  private void addSection(String id, String start, String end) {
+    Element section = document.createElement("section");
+    section.setAttribute("id", id);
+    section.setAttribute("start", start);
+    if (null != end) {
+      section.setAttribute("end", end);
+    }
+    findGroupNode("sections").appendChild(section);
+  }
+
+  @Test
+  public void testOrderedValuesAreSearchedForFromTheLastMatch() throws TransformerException, IOException {
+    createEmptyDocument();
+    findConfigNode().setAttribute("ordered-values", "true");
+    addDelimiter("DELIM");
+    // these can match a line feed, so they're record scoped
+    addValue("id", "id:\\s(\\d+)");
+    addValue("value", "value:\\s(\\d+)");
+    addValue("name", "name:\\s(\\w+)");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    Map<String, String> record = config.buildRecord("name: x\nvalue: 0\nid: 1\nvalue: 2\n");
+    assertEquals("1", record.get("id"));
+    // the first value after the id
+    assertEquals("2", record.get("value"));
+    // there's no name after the value, so the whole record is searched
+    assertEquals("x", record.get("name"));
+  }
+
+  @Test
+  public void testTypedValuesAreKeptAsLongs() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("mtu", "MTU (\\d+)").setAttribute("type", "int");
+    addValue("address", "inet (\\S+)").setAttribute("type", "ipv4");
+    addValue("uptime", "uptime (\\S+)").setAttribute("type", "duration");
+    Element drops = addValue("drops", "drops (\\S+)");
+    drops.setAttribute("type", "long");
+    drops.setAttribute("default", "-1");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    // the String form returns a map, as it always has
+    Record record = config.buildRecord((CharSequence) "MTU 01500\ninet 10.0.0.1\nuptime 6w3d17h\ndrops lots\n");
+    int mtu = record.getSchema().getSlot("mtu");
+    assertEquals(1500, record.getInt(mtu));
+    // the map shows the canonical form of the value
+    assertEquals("1500", record.get("mtu"));
+    assertEquals("10.0.0.1", record.get("address"));
+    assertEquals(0x0A000001L, record.getLong(record.getSchema().getSlot("address")));
+    assertEquals(((6 * 7 + 3) * 24 + 17) * 3600L, record.getLong(record.getSchema().getSlot("uptime")));
+    // a value that can't be converted takes the default
+    assertEquals(-1L, record.getLong(record.getSchema().getSlot("drops")));
+
+    // the visitor is passed the same longs
+    long[] visited = new long[record.getSchema().size()];
+    config.newEmitter().emit("MTU 01500\ninet 10.0.0.1\nuptime 6w3d17h\ndrops lots\n", null, null,
+      new RecordVisitor() {
+        @Override
+        public void startRecord() {
+        }
+
+        @Override
+        public void field(int slot, String id, CharSequence value) {
+          Assert.fail(id);
+        }
+
+        @Override
+        public void field(int slot, String id, ValueType type, long value) {
+          visited[slot] = value;
+        }
+
+        @Override
+        public void endRecord() {
+        }
+      });
+    for (int slot = 0; slot < visited.length; slot++) {
+      assertEquals(record.getLong(slot), visited[slot]);
+    }
+
+    record = config.buildRecord((CharSequence) "uptime 10:37:12\n");
+    assertEquals(10 * 3600 + 37 * 60 + 12L, record.getLong(record.getSchema().getSlot("uptime")));
+    assertFalse(record.containsKey("mtu"));
+  }
+
+  /**
+   * The matchers are kept for each thread, so they mustn't keep the last record, or line, reachable
+   */
+  @Test
+  public void testTextIsntKeptOnceTheRecordIsBuilt() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM \\d+");
+    addSection("version", "show version", null);
+    addValue("mtu", "MTU (\\d+)");
+    addValue("version", "Version (\\S+)").setAttribute("section", "version");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    StringBuilder record = new StringBuilder("MTU 1500\nshow version\nVersion 12.2\n");
+    StringBuilder line = new StringBuilder("DELIM 1");
+    assertEquals("1500", config.buildRecord(record).get("mtu"));
+    assertEquals("12.2", config.buildRecord(record, new MatchBudget(1000000, Long.MAX_VALUE, () -> false)).get("version"));
+    assertTrue(config.matchesRecordDelim(line));
+    WeakReference<StringBuilder> recordRef = new WeakReference<>(record);
+    WeakReference<StringBuilder> lineRef = new WeakReference<>(line);
+    record = null;
+    line = null;
+    for (int i = 0; i < 10 && (null != recordRef.get() || null != lineRef.get()); i++) {
+      System.gc();
+    }
+    assertNull(recordRef.get());
+    assertNull(lineRef.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDefaultMustMatchTheType() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    Element value = addValue("value", "(\\d+)");
+    value.setAttribute("type", "int");
+    value.setAttribute("default", "none");
+    new ConfigLoader().loadConfig(buildDocReader());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFieldsHaveOneType() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("value", "a(\\d+)").setAttribute("type", "int");
+    addValue("value", "b(\\d+)");
+    new ConfigLoader().loadConfig(buildDocReader());
+  }
+
+  /**
+   * A regex with a top-level alternation is matched against the whole record, as <code>.*?A|B.*</code>, so the first
+   * alternative has to end the record, and the last has to start it
+   */
+  @Test
+  public void testTopLevelAlternationIsMatchedAgainstTheRecord() throws TransformerException, IOException {
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("state", "Up (\\d+)|Down (\\d+)").setAttribute("default", "none");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+
+    assertEquals("none", config.buildRecord("x Down 5").get("state"));
+    assertEquals("none", config.buildRecord("Up 3 x").get("state"));
+    assertEquals("3", config.buildRecord("x Up 3").get("state"));
+    // the last alternative matches, so the value doesn't take its default, but its group isn't in the match
+    assertNull(config.buildRecord("Down 5 x").get("state"));
+  }
+
+  /**
+   * The methods that took, and returned, strings and maps are still there, for callers that were compiled against them
+   */
+  @Test
+  public void testStringMethodsAreKept() throws NoSuchMethodException, TransformerException, IOException {
+    assertSame(Map.class, Config.class.getMethod("buildRecord", String.class).getReturnType());
+    assertSame(Map.class, Config.class.getMethod("buildHeader", String.class).getReturnType());
+    assertSame(Delimiter.class, Config.class.getMethod("getApplicableDelim", String.class).getReturnType());
+    assertSame(boolean.class, Config.class.getMethod("matchesRecordDelim", String.class).getReturnType());
+    assertSame(boolean.class, Config.class.getMethod("matchesHeaderDelim", String.class).getReturnType());
+    assertSame(boolean.class, Delimiter.class.getMethod("matches", String.class).getReturnType());
+    assertSame(boolean.class, HeaderDelimiter.class.getMethod("matches", String.class).getReturnType());
+
+    createEmptyDocument();
+    addDelimiter("DELIM");
+    addValue("id", "Some ID: (\\S+)");
+    Config config = new ConfigLoader().loadConfig(buildDocReader());
+    assertEquals(Collections.singletonMap("id", "42"), config.buildRecord("Some ID: 42\n"));
+    assertTrue(config.matchesRecordDelim("DELIM"));
+  }
+
   /**
    * Add a search to the config
    * @param id the id
@@ -191,10 +553,11 @@ public class ConfigTests {
    * Add a value to the config
    * @param id the id
    * @param regex the regex
+   * @return the value element
    */
-  private void addValue(String id, String regex) {
+  private Element addValue(String id, String regex) {
     Element groupNode = findGroupNode("values");
-    createElementInGroup(groupNode, "value", id, regex);
+    return createElementInGroup(groupNode, "value", id, regex);
   }
 
   /**
@@ -213,12 +576,14 @@ public class ConfigTests {
    * @param elementName the new element's name
    * @param id the id
    * @param regex the regex
+   * @return the new element
    */
-  private void createElementInGroup(Element groupNode, String elementName, String id, String regex) {
+  private Element createElementInGroup(Element groupNode, String elementName, String id, String regex) {
     Element elementNode = document.createElement(elementName);
     elementNode.setAttribute("id", id);
     elementNode.setTextContent(regex);
     groupNode.appendChild(elementNode);
+    return elementNode;
   }
 
   /**
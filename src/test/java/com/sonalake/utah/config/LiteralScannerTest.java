@@ -0,0 +1,48 @@
+package com.sonalake.utah.config;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Tests for finding many literals in one pass
+ */
+public class LiteralScannerTest {
+
+  @Test
+  public void testOverlappingLiterals() {
+    LiteralScanner scanner = new LiteralScanner(Arrays.asList("he", "she", "his", "hers"));
+    int[] first = new int[scanner.size()];
+    assertArrayEquals(new int[]{2, 1, -1, 2}, scanner.scan("ushers", first));
+    assertArrayEquals(new int[]{1, -1, 5, -1}, scanner.scan("ahe this", first));
+  }
+
+  @Test
+  public void testNonAsciiLiterals() {
+    LiteralScanner scanner = new LiteralScanner(Arrays.asList("\u00FCber", "\u00C9t\u00E9", "\u4E2D\u6587", "\u00E9"));
+    String text = "\u00C9t\u00C9 \u00C9t\u00E9 \u4E2D\u00FC\u6587 \u4E2D\u6587 \u00FCbe";
+    assertArrayEquals(
+      new int[]{-1, text.indexOf("\u00C9t\u00E9"), text.indexOf("\u4E2D\u6587"), text.indexOf('\u00E9')},
+      scanner.scan(text, new int[scanner.size()])
+    );
+  }
+
+  @Test
+  public void testFirstOccurrenceIsFound() {
+    LiteralScanner scanner = new LiteralScanner(Arrays.asList("inet.0: ", "inet6.0: ", "/", "\u00C9tabli"));
+    String text = "  inet.0: 4/5/1\n  inet6.0: 0/0/0\n \u00C9tabli";
+    assertArrayEquals(
+      new int[]{text.indexOf("inet.0: "), text.indexOf("inet6.0: "), text.indexOf('/'), text.indexOf("\u00C9tabli")},
+      scanner.scan(text, new int[scanner.size()])
+    );
+  }
+
+  @Test
+  public void testNoLiterals() {
+    LiteralScanner scanner = new LiteralScanner(Collections.emptyList());
+    assertArrayEquals(new int[0], scanner.scan("some text", new int[0]));
+  }
+}
@@ -4,12 +4,24 @@ import com.sonalake.utah.Parser;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * A test of the parser
@@ -164,6 +176,136 @@ public class ParserTest {
     assertEquals(expectedValues, results);
   }
 
+  /**
+   * A regex that backtracks for a very long time goes over the budget, and takes its default, as do the values after
+   * it; the values before it are kept
+   */
+  @Test
+  public void testStepBudget() {
+    List<String> logged = captureSlowRecords();
+    addPerRecordDelimiter("DELIM");
+    addValue("before", "before: (\\d+)");
+    addDefaultValue("slow", "((.*a){20})!", "too slow");
+    // \s can match a line feed, so this is record scoped, and only searched for after the slow value
+    addValue("after", "after:\\s(\\d+)");
+    config.compilePatterns();
+
+    Parser parser = Parser.parse(config, buildSlowFile().buildReader()).withStepBudget(100000);
+    assertEquals(expectedFastRecord(), parser.next());
+    Map<String, String> slowRecord = parser.next();
+    assertEquals("too slow", slowRecord.get("slow"));
+    assertEquals("1", slowRecord.get("before"));
+    assertEquals(null, slowRecord.get("after"));
+    assertEquals(1, logged.size());
+    assertTrue(logged.get(0), logged.get(0).contains("line 3"));
+    assertNull(parser.next());
+  }
+
+  @Test
+  public void testTimeout() {
+    List<String> logged = captureSlowRecords();
+    addPerRecordDelimiter("DELIM");
+    addDefaultValue("slow", "((.*a){20})!", "too slow");
+    config.compilePatterns();
+
+    Parser parser = Parser.parse(config, buildSlowFile().buildReader()).withTimeout(50, TimeUnit.MILLISECONDS);
+    assertEquals("too slow", parser.next().get("slow"));
+    assertTrue(logged.isEmpty());
+    assertEquals("too slow", parser.next().get("slow"));
+    assertEquals(1, logged.size());
+  }
+
+  /**
+   * The time spent waiting for the lines of a record isn't counted against its timeout
+   */
+  @Test
+  public void testTimeoutExcludesReading() {
+    List<String> logged = captureSlowRecords();
+    addPerRecordDelimiter("DELIM");
+    addValue("field", "field: (\\d+)");
+    // \s can match a line feed, so this is record scoped, and only searched for once the record's been read
+    addValue("after", "after:\\s(\\d+)");
+    config.compilePatterns();
+
+    String filler = String.join("", Collections.nCopies(2000, "x"));
+    String text = String.join("\n", filler, "after: 2", filler, filler, filler, "field: 1", "DELIM", "");
+    Parser parser = Parser.parse(config, new SlowReader(text, 20)).withTimeout(50, TimeUnit.MILLISECONDS);
+    Map<String, String> record = parser.next();
+    assertEquals("1", record.get("field"));
+    assertEquals("2", record.get("after"));
+    assertTrue(logged.isEmpty());
+  }
+
+  /**
+   * Cancelling the parser stops a record that's stuck in a regex
+   */
+  @Test
+  public void testCancel() throws InterruptedException {
+    addPerRecordDelimiter("DELIM");
+    addDefaultValue("slow", "((.*a){20})!", "too slow");
+    config.compilePatterns();
+
+    Parser parser = Parser.parse(config, buildSlowFile().buildReader()).withTimeout(1, TimeUnit.HOURS);
+    assertEquals("too slow", parser.next().get("slow"));
+    AtomicReference<Map<String, String>> result = new AtomicReference<>(Collections.emptyMap());
+    Thread thread = new Thread(() -> result.set(parser.next()));
+    thread.start();
+    Thread.sleep(100);
+    parser.cancel();
+    thread.join(10000);
+    assertFalse(thread.isAlive());
+    assertNull(result.get());
+    assertNull(parser.next());
+  }
+
+  private FileBuilder buildSlowFile() {
+    // this takes a backtracking engine a very long time to fail to match
+    StringBuilder slowLine = new StringBuilder("! ");
+    for (int i = 0; i < 40; i++) {
+      slowLine.append('a');
+    }
+    return new FileBuilder()
+      .addLine("before: 0")
+      .addLine("DELIM")
+      .addLine("before: 1")
+      .addLine(slowLine.toString())
+      .addLine("after: 2");
+  }
+
+  private Map<String, String> expectedFastRecord() {
+    return new TreeMap<String, String>() {{
+      put("before", "0");
+      put("slow", "too slow");
+    }};
+  }
+
+  /**
+   * Capture the messages that are logged for slow records, rather than have them logged as normal
+   */
+  private List<String> captureSlowRecords() {
+    List<String> messages = new ArrayList<>();
+    Logger logger = Logger.getLogger(Parser.SLOW_RECORD_LOG);
+    for (Handler handler : logger.getHandlers()) {
+      logger.removeHandler(handler);
+    }
+    logger.setUseParentHandlers(false);
+    logger.addHandler(new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        messages.add(record.getMessage());
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+    return messages;
+  }
+
   private void addHeaderDelimiter(String s) {
     config.headerDelimiter = new HeaderDelimiter();
     config.headerDelimiter.delimiter = s;
@@ -200,6 +342,11 @@ public class ParserTest {
     addValue(id, 1, pattern);
   }
 
+  private void addDefaultValue(String id, String pattern, String defaultValue) {
+    addValue(id, pattern);
+    config.values.get(config.values.size() - 1).defaultValue = defaultValue;
+  }
+
   private void addHeaderValue(String id, String pattern) {
     ValueRegex regex = new ValueRegex(id, pattern);
     config.headers.add(regex);
@@ -223,4 +370,40 @@ public class ParserTest {
     config.delimiters.add(delimiter);
   }
 
+  /**
+   * A reader that waits before it returns each line, like a slow pipe
+   */
+  private static class SlowReader extends Reader {
+    private final String text;
+    private final long delayMillis;
+    private int position;
+
+    SlowReader(String text, long delayMillis) {
+      this.text = text;
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      if (position == text.length()) {
+        return -1;
+      }
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      int lineEnd = text.indexOf('\n', position);
+      int end = Math.min(lineEnd < 0 ? text.length() : lineEnd + 1, position + length);
+      text.getChars(position, end, buffer, offset);
+      int count = end - position;
+      position = end;
+      return count;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
 }
@@ -0,0 +1,72 @@
+package com.sonalake.utah.config;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RecordTest {
+
+  @Test
+  public void testRecordIsASortedMap() {
+    RecordSchema schema = new RecordSchema(Arrays.asList("b", "c", "a", "b"));
+    assertEquals(3, schema.size());
+    Record record = new Record(schema);
+    record.set(schema.getSlot("c"), "3");
+    record.set(schema.getSlot("a"), "1");
+    // a group that didn't take part in the match is set, but null
+    record.set(schema.getSlot("b"), null);
+
+    Map<String, String> expected = new TreeMap<>();
+    expected.put("c", "3");
+    expected.put("a", "1");
+    expected.put("b", null);
+    assertEquals(expected, record);
+    assertEquals(expected.hashCode(), record.hashCode());
+    assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(record.keySet()));
+    assertTrue(record.containsKey("b"));
+    assertFalse(record.containsKey("d"));
+    assertNull(record.get("d"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testRecordIsReadOnly() {
+    new Record(new RecordSchema(Arrays.asList("a"))).put("a", "1");
+  }
+
+  @Test
+  public void testHeaderLayer() {
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      ids.add(String.format("field%03d", i));
+    }
+    RecordSchema schema = new RecordSchema(ids);
+    Record header = new Record(schema);
+    header.set(0, "header");
+    header.set(99, "header");
+    Record record = new Record(schema);
+    record.set(0, "record");
+    record.set(70, "record");
+
+    record.withHeader(header);
+    assertEquals(3, record.size());
+    // the header hides the record's own value
+    assertEquals("header", record.get("field000"));
+    assertEquals("record", record.get("field070"));
+    assertEquals("header", record.get("field099"));
+    assertEquals(Arrays.asList("field000", "field070", "field099"), new ArrayList<>(record.keySet()));
+
+    // the header is shared, not copied
+    Record other = new Record(schema).withHeader(header);
+    assertEquals(2, other.size());
+    assertEquals("header", other.get(99));
+  }
+}
@@ -0,0 +1,87 @@
+package com.sonalake.utah.config;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the literals that are pulled out of a regex
+ */
+public class RequiredLiteralsTest {
+
+  @Test
+  public void testLiteralRuns() {
+    RequiredLiterals literals = RequiredLiterals.of("inet6.0: (\\d+)/(\\d+)");
+    assertEquals(Arrays.asList("inet6", "0: ", "/"), literals.getLiterals());
+    assertTrue(literals.isPrefixSingleLine());
+    assertNull(literals.getExactLiteral());
+  }
+
+  @Test
+  public void testExactLiteral() {
+    RequiredLiterals literals = RequiredLiterals.of("Some ID: ");
+    assertEquals(Collections.singletonList("Some ID: "), literals.getLiterals());
+    assertEquals("Some ID: ", literals.getExactLiteral());
+  }
+
+  @Test
+  public void testEscapesAndQuotes() {
+    assertEquals(Arrays.asList("a.b", "c\td"), RequiredLiterals.of("a\\.b\\s+c\\td").getLiterals());
+    assertEquals(Collections.singletonList("x(y)z"), RequiredLiterals.of("\\Qx(y)\\Ez").getLiterals());
+  }
+
+  @Test
+  public void testOptionalCharsAreNotRequired() {
+    assertEquals(Arrays.asList("ab", "d"), RequiredLiterals.of("abc?d").getLiterals());
+    assertEquals(Arrays.asList("ab", "d"), RequiredLiterals.of("abc*d").getLiterals());
+    assertEquals(Arrays.asList("abc", "d"), RequiredLiterals.of("abc+d").getLiterals());
+    assertEquals(Arrays.asList("ab", "d"), RequiredLiterals.of("abc{0,2}d").getLiterals());
+    assertEquals(Arrays.asList("abc", "d"), RequiredLiterals.of("abc{2}d").getLiterals());
+  }
+
+  @Test
+  public void testGroupsAreSkipped() {
+    assertEquals(Arrays.asList("a", "d"), RequiredLiterals.of("a(b|c)d").getLiterals());
+    assertEquals(Arrays.asList("a", "d"), RequiredLiterals.of("a(?:bc)?d").getLiterals());
+    assertEquals(Arrays.asList("a", "d"), RequiredLiterals.of("a(?<name>bc)d").getLiterals());
+    assertEquals(Arrays.asList("a", "d"), RequiredLiterals.of("a(?<=x)d").getLiterals());
+    assertEquals(Arrays.asList("a", "]d"), RequiredLiterals.of("a[]x]]d").getLiterals());
+  }
+
+  @Test
+  public void testNothingIsRequired() {
+    assertTrue(RequiredLiterals.of("a|b").getLiterals().isEmpty());
+    assertTrue(RequiredLiterals.of("(?i)abc").getLiterals().isEmpty());
+    assertTrue(RequiredLiterals.of("(\\d+)").getLiterals().isEmpty());
+    assertFalse(RequiredLiterals.of("(\\d+)").isPrefixSingleLine());
+  }
+
+  @Test
+  public void testPrefixThatCanMatchALineFeed() {
+    assertFalse(RequiredLiterals.of(".*abc").isPrefixSingleLine());
+    assertFalse(RequiredLiterals.of("\\s+abc").isPrefixSingleLine());
+    assertFalse(RequiredLiterals.of("[^x]abc").isPrefixSingleLine());
+    assertTrue(RequiredLiterals.of("\\w+ abc").isPrefixSingleLine());
+    assertTrue(RequiredLiterals.of("[a-z]+ abc").isPrefixSingleLine());
+    assertTrue(RequiredLiterals.of("^abc").isPrefixSingleLine());
+  }
+
+  @Test
+  public void testSingleLine() {
+    assertTrue(RequiredLiterals.of("ID: (\\d+)").isSingleLine());
+    assertTrue(RequiredLiterals.of("\\bname=(\\w+) [a-z]+").isSingleLine());
+    assertFalse(RequiredLiterals.of("a|b").isSingleLine());
+    assertFalse(RequiredLiterals.of("ID:\\s+(\\d+)").isSingleLine());
+    assertFalse(RequiredLiterals.of("ID: (.*)").isSingleLine());
+    assertFalse(RequiredLiterals.of("ID: ([^ ]+)").isSingleLine());
+    assertFalse(RequiredLiterals.of("^ID: (\\d+)").isSingleLine());
+    assertFalse(RequiredLiterals.of("ID: (\\d+)\\z").isSingleLine());
+    assertFalse(RequiredLiterals.of("(?<=x)ID: (\\d+)").isSingleLine());
+  }
+}
@@ -0,0 +1,83 @@
+package com.sonalake.utah.config;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the cache of compiled configs
+ */
+public class TemplateRegistryTest {
+
+  @Test
+  public void testConfigsAreOnlyCompiledOnce() throws IOException {
+    TemplateRegistry registry = new TemplateRegistry();
+    URL url = Thread.currentThread().getContextClassLoader().getResource("examples/cisco_bgp_summary_template.xml");
+    Config config = registry.getConfig(url);
+    assertSame(config, registry.getConfig(url));
+    assertEquals(1, registry.getMissCount());
+    assertEquals(1, registry.getHitCount());
+
+    // the same content from somewhere else is compiled again
+    byte[] content;
+    try (InputStream in = url.openStream()) {
+      content = IOUtils.toByteArray(in);
+    }
+    assertNotSame(config, registry.getConfig("elsewhere", content));
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  public void testChangedConfigsAreCompiledAgain() throws IOException {
+    TemplateRegistry registry = new TemplateRegistry();
+    Path file = Files.createTempFile("template", ".xml");
+    try {
+      Files.write(file, template("a").getBytes(StandardCharsets.UTF_8));
+      Config first = registry.getConfig(file);
+      Files.write(file, template("b").getBytes(StandardCharsets.UTF_8));
+      Config second = registry.getConfig(file);
+      assertNotSame(first, second);
+      assertEquals("b", second.getHeaderNames().get(0));
+      assertEquals(2, registry.getMissCount());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testLeastRecentlyUsedConfigIsEvicted() throws IOException {
+    TemplateRegistry registry = new TemplateRegistry(2);
+    Config a = registry.getConfig("a", template("a").getBytes(StandardCharsets.UTF_8));
+    registry.getConfig("b", template("b").getBytes(StandardCharsets.UTF_8));
+    // a is now more recently used than b
+    assertSame(a, registry.getConfig("a", template("a").getBytes(StandardCharsets.UTF_8)));
+    registry.getConfig("c", template("c").getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(2, registry.size());
+    assertEquals(1, registry.getEvictionCount());
+    assertSame(a, registry.getConfig("a", template("a").getBytes(StandardCharsets.UTF_8)));
+    registry.getConfig("b", template("b").getBytes(StandardCharsets.UTF_8));
+    assertEquals(4, registry.getMissCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxSizeMustBePositive() {
+    new TemplateRegistry(0);
+  }
+
+  private String template(String id) {
+    return String.format(
+      "<config><delim per-line=\"true\"/><values><value id=\"%s\"><![CDATA[(.*)]]></value></values></config>", id
+    );
+  }
+}
@@ -0,0 +1,47 @@
+package com.sonalake.utah.config;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for converting typed values
+ */
+public class ValueTypeTest {
+
+  @Test
+  public void testNumbers() {
+    assertEquals(-42, ValueType.INT.parse("-42"));
+    assertEquals(Long.MIN_VALUE, ValueType.LONG.parse("-9223372036854775808"));
+    assertEquals(Long.MAX_VALUE, ValueType.LONG.parse("+9223372036854775807"));
+    assertInvalid(ValueType.INT, "2147483648", "", "-", "1.5", "12a");
+    assertInvalid(ValueType.LONG, "9223372036854775808", "-9223372036854775809");
+  }
+
+  @Test
+  public void testAddresses() {
+    assertEquals(0xFFFFFFFFL, ValueType.IPV4.parse("255.255.255.255"));
+    assertEquals("192.168.0.1", ValueType.IPV4.format(ValueType.IPV4.parse("192.168.0.1")));
+    assertInvalid(ValueType.IPV4, "10.0.0", "10.0.0.1.", "10.0.0.256", "10..0.1", "1.2.3.4.5", "0010.0.0.1");
+  }
+
+  @Test
+  public void testDurations() {
+    assertEquals(90, ValueType.DURATION.parse("1m30s"));
+    assertEquals(365L * 24 * 3600 + 2 * 3600, ValueType.DURATION.parse("1y2h"));
+    assertEquals(100 * 3600 + 1, ValueType.DURATION.parse("100:00:01"));
+    assertInvalid(ValueType.DURATION, "", "1", "h", "1x", "10:60:00", "10:00", "10:00:00:00", "1:2:3a");
+  }
+
+  private void assertInvalid(ValueType type, String... texts) {
+    for (String text : texts) {
+      try {
+        type.parse(text);
+        fail(String.format("%s should not be a valid %s", text, type.getName()));
+      } catch (NumberFormatException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package com.sonalake.utah.regex;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the linear engine finds the same matches, and groups, as java.util.regex
+ */
+public class LinearRegexEngineTest {
+
+  private static final String[] PATTERNS = {
+    "abc",
+    "a(b|c)d",
+    "(a|ab)(c|bcd)(d*)",
+    "(a*)(a*)",
+    "(a*?)(a*)",
+    "(a+)+b",
+    "x{2,3}?(x*)",
+    "(\\d+)/(\\d+)/(\\d+)",
+    "Some ID: (\\S+)",
+    "^(\\w+)\\s+(\\w+)$",
+    "\\b(\\w+)\\b",
+    "(\\s*)\\B(\\w)",
+    "inet6\\.0: (.*)",
+    "start(.*)end",
+    "start(.*?)end",
+    "([^\\n]*)\\n([a-f0-9:]+)",
+    "(?<name>[A-Z][a-z]+) (?:[a-z]+ )?(\\d{1,3})",
+    "\\Qa.b\\E(\\w)",
+    "(a|b|)+c",
+    "((a)|b)+",
+    "[\\w.-]+@([\\w-]+\\.)+[a-z]{2,}",
+    "\\x41\\u0042\\t(\\p)?",
+    "$",
+    "(.)\\z",
+    "(\\h+)(\\H)",
+    "(ab|a)(bc|c)?",
+    "(x)?(y)?z",
+    "(?:a|(b))*c",
+    "([^abc\\s]+)",
+    "[a-c-]+(.)",
+    "(a{2})*(a?)",
+    "(.)(.)$",
+  };
+
+  private static final String[] TEXTS = {
+    "",
+    "abc",
+    "abcd",
+    "abd acd",
+    "aaaa",
+    "aaab",
+    "xxxxx",
+    "4/5/1\n0/0/7\n",
+    "Some ID: 42\nSome ID: 43",
+    "hello world",
+    "hello world\n",
+    "hello world\r\n",
+    "  indented words here",
+    "inet.0: 1\ninet6.0: 2/3\n",
+    "start one end two end",
+    "line\nfe80::1\n",
+    "Fred is 123 and Mary 45",
+    "a.bc a-bd",
+    "ababc",
+    "mail me@some.example.com now",
+    "AB\t",
+    "été café",
+    "tab\t \tend",
+    "xyz yz z",
+    "smile \uD83D\uDE00 ok",
+    "bx.1",
+    "1x.\n",
+    "xb xb",
+    "x1b\n\n1",
+    "bbb x",
+  };
+
+  @Test
+  public void testSameMatchesAsJdk() {
+    RegexEngine engine = new LinearRegexEngine();
+    for (String regex : PATTERNS) {
+      CompiledRegex linear;
+      try {
+        linear = engine.compile(regex, Pattern.DOTALL);
+      } catch (UnsupportedRegexException e) {
+        continue;
+      }
+      assertSameMatchesAsJdk(regex, linear);
+    }
+  }
+
+  /**
+   * A backtracking engine stops repeating once an iteration matches nothing, and keeps the groups nested in an
+   * iteration that it gives up, and the automaton can't do either, so these are left to java.util.regex
+   */
+  @Test
+  public void testRepeatsOfWhatCanBeEmpty() {
+    String[] regexes = {
+      "b(?:\\D*?)+\\D", "b((?:\\D*?)+)\\D", "(.*?){2}", "(a?){2,3}(a*)", "(?:a|)*b", "(a*)?b", "(\\d*)+", "(?:x?y?)*?y",
+      "(([^a]))+(\\D)", "((x)){0,2}?\\s", ".(?:(\\D)+){2}", "(([ab]))*?x(?:a|(\\w|))"
+    };
+    for (String regex : regexes) {
+      assertFalse(regex, isSupported(regex, Pattern.DOTALL));
+      assertSameMatchesAsJdk(regex, RegexEngines.compile(RegexEngines.get(RegexEngines.LINEAR), regex, Pattern.DOTALL));
+    }
+  }
+
+  private void assertSameMatchesAsJdk(String regex, CompiledRegex compiled) {
+    Pattern jdk = Pattern.compile(regex, Pattern.DOTALL);
+    assertEquals(regex, jdk.matcher("").groupCount(), compiled.groupCount());
+
+    for (String text : TEXTS) {
+      String context = String.format("/%s/ on '%s'", regex, text);
+      Matcher jdkMatcher = jdk.matcher(text);
+      RegexMatcher matcher = compiled.matcher(text);
+      assertSameMatch(context + " matches", jdkMatcher, jdkMatcher.matches(), matcher, matcher.matches());
+      for (int from = 0; from <= text.length(); from++) {
+        assertSameMatch(context + " from " + from, jdkMatcher, jdkMatcher.find(from), matcher, matcher.find(from));
+      }
+    }
+  }
+
+  private void assertSameMatch(String context, Matcher jdk, boolean isMatch, RegexMatcher linear,
+                               boolean isLinearMatch) {
+    assertEquals(context, isMatch, isLinearMatch);
+    if (isMatch) {
+      for (int group = 0; group <= jdk.groupCount(); group++) {
+        String groupContext = String.format("%s, group %s", context, group);
+        assertEquals(groupContext, jdk.start(group), linear.start(group));
+        assertEquals(groupContext, jdk.end(group), linear.end(group));
+        assertEquals(groupContext, jdk.group(group), linear.group(group));
+      }
+    }
+  }
+
+  @Test
+  public void testDotAll() {
+    RegexEngine engine = new LinearRegexEngine();
+    assertFalse(engine.compile("a.b", 0).matcher("a\nb").matches());
+    assertTrue(engine.compile("a.b", Pattern.DOTALL).matcher("a\nb").matches());
+  }
+
+  @Test
+  public void testLinearTime() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100000; i++) {
+      text.append('a');
+    }
+    // this would take exponential time with a backtracking engine
+    CompiledRegex regex = new LinearRegexEngine().compile("(a|a)+(a+)+b", Pattern.DOTALL);
+    assertFalse(regex.matcher(text).matches());
+  }
+
+  @Test
+  public void testUnsupportedFeatures() {
+    String[] unsupported = {"(a)\\1", "(?=a)", "(?<=a)b", "a*+", "(?>a)", "(?i)a", "\\p{Alpha}", "[a[b]]", "[a&&b]"};
+    for (String regex : unsupported) {
+      try {
+        new LinearRegexEngine().compile(regex, Pattern.DOTALL);
+        throw new AssertionError(String.format("Should not compile: %s", regex));
+      } catch (UnsupportedRegexException e) {
+        // expected
+      }
+    }
+    assertFalse(isSupported("x", Pattern.CASE_INSENSITIVE));
+  }
+
+  @Test
+  public void testFallBackToJdk() {
+    CompiledRegex regex = RegexEngines.compile(RegexEngines.get(RegexEngines.LINEAR), "(a)\\1", 0);
+    assertTrue(regex.matcher("aa").matches());
+  }
+
+  /**
+   * A matcher from every kind of compiled regex can be reset, and reused for new text
+   */
+  @Test
+  public void testMatchersCanBeReset() {
+    CompiledRegex[] regexes = {
+      new LinearRegexEngine().compile("id: (\\d+)", Pattern.DOTALL),
+      RegexEngines.compile(RegexEngines.get(RegexEngines.JDK), "id: (\\d+)", Pattern.DOTALL),
+      RegexEngines.compile(RegexEngines.get(RegexEngines.JDK), "(?<=\\n)id: (\\d+)", Pattern.DOTALL)
+    };
+    for (CompiledRegex regex : regexes) {
+      RegexMatcher matcher = regex.matcher("x\nid: 12");
+      assertTrue(regex.pattern(), matcher.find(0));
+      assertEquals(regex.pattern(), "12", matcher.group(1));
+      assertTrue(regex.pattern(), matcher.reset("y\nid: 345").find(0));
+      assertEquals(regex.pattern(), "345", matcher.group(1));
+      assertEquals(regex.pattern(), 6, matcher.start(1));
+      assertFalse(regex.pattern(), matcher.reset("none").find(0));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownEngine() {
+    RegexEngines.get("unknown");
+  }
+
+  private boolean isSupported(String regex, int flags) {
+    try {
+      new LinearRegexEngine().compile(regex, flags);
+      return true;
+    } catch (UnsupportedRegexException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.sonalake.utah.regex;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that simple regexes are matched without java.util.regex, and give the same results
+ */
+public class SimpleRegexTest {
+
+  private static final String[] SIMPLE = {
+    "Some ID: ",
+    "(\\d+)",
+    "(\\S+?)",
+    "inet\\.0: (\\d+)/(\\d+)/(\\d+)",
+    "(\\d+(\\.\\d+){3})\\s+(\\d+)",
+    "^(\\w+)\\s+(\\S+)",
+    "Uptime: (\\d+) days?",
+    "(\\s*)(\\S+?)",
+    "x(.*)",
+    "(?:ab){2}(\\d{1,3})",
+  };
+
+  private static final String[] NOT_SIMPLE = {
+    "(\\d+\\S+)",
+    "((\\d+)|(\\D.*))",
+    "(.*)x",
+    "(\\S+?)\\s*",
+    "(a)\\1",
+    "[abc]+",
+    "(\\d+)$",
+    "(\\d+)?",
+    "\\d+?\\d",
+  };
+
+  private static final String[] TEXTS = {
+    "",
+    "Some ID: 42",
+    "inet.0: 4/5/1\ninet6.0: 0/0/7\n",
+    "10.247.68.182         65550     131725   28179233       0      11     6w3d17h Establ",
+    "hello   world\n",
+    "Uptime: 1 day\nUptime: 12 days",
+    "  leading spaces",
+    "a x marks the spot\nx2",
+    "ababab123456",
+    "smile \uD83D\uDE00 ok 12",
+  };
+
+  @Test
+  public void testSimpleRegexesAreRecognised() {
+    for (String regex : SIMPLE) {
+      assertNotNull(regex, SimpleRegex.compile(regex, Pattern.DOTALL));
+    }
+    for (String regex : NOT_SIMPLE) {
+      assertNull(regex, SimpleRegex.compile(regex, Pattern.DOTALL));
+    }
+  }
+
+  @Test
+  public void testSameMatchesAsJdk() {
+    for (int flags : new int[]{0, Pattern.DOTALL}) {
+      for (String regex : SIMPLE) {
+        Pattern jdk = Pattern.compile(regex, flags);
+        CompiledRegex simple = SimpleRegex.compile(regex, flags);
+        assertEquals(regex, jdk.matcher("").groupCount(), simple.groupCount());
+        for (String text : TEXTS) {
+          String context = String.format("/%s/ on '%s'", regex, text);
+          Matcher jdkMatcher = jdk.matcher(text);
+          RegexMatcher simpleMatcher = simple.matcher(text);
+          assertSameMatch(context + " matches", jdkMatcher, jdkMatcher.matches(), simpleMatcher, simpleMatcher.matches());
+          for (int from = 0; from <= text.length(); from++) {
+            assertSameMatch(
+              context + " from " + from, jdkMatcher, jdkMatcher.find(from), simpleMatcher, simpleMatcher.find(from)
+            );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The sets are disjoint exactly when no char is in both, including negated sets and sets made from other sets
+   */
+  @Test
+  public void testDisjointCharClasses() {
+    CharClass[] classes = {
+      CharClass.DIGIT, CharClass.WORD, CharClass.SPACE, CharClass.HORIZONTAL_SPACE,
+      CharClass.DIGIT.negate(), CharClass.WORD.negate(), CharClass.SPACE.negate(),
+      new CharClass.Builder().addRange('a', 'f').addRange('c', 'k').build(false),
+      new CharClass.Builder().addRange('x', 'x').add(CharClass.DIGIT).build(false),
+      new CharClass.Builder().addRange('x', 'x').add(CharClass.DIGIT).build(true),
+      new CharClass.Builder().add(CharClass.WORD.negate()).build(true),
+      new CharClass.Builder().addRange(0xFFFF, 0x10FFFF).build(false),
+      new CharClass.Builder().addRange(0, 0xFFFE).build(true),
+      new CharClass.Builder().build(true),
+    };
+    for (CharClass a : classes) {
+      for (CharClass b : classes) {
+        boolean isDisjoint = true;
+        for (int c = 0; c <= 0x10000 && isDisjoint; c++) {
+          isDisjoint = !(a.matches(c) && b.matches(c));
+        }
+        assertEquals(isDisjoint, CharClass.isDisjoint(a, b, 0x10000));
+      }
+    }
+  }
+
+  private void assertSameMatch(String context, Matcher jdk, boolean isMatch, RegexMatcher simple,
+                               boolean isSimpleMatch) {
+    assertEquals(context, isMatch, isSimpleMatch);
+    if (isMatch) {
+      for (int group = 0; group <= jdk.groupCount(); group++) {
+        assertEquals(String.format("%s, group %s", context, group), jdk.group(group), simple.group(group));
+      }
+    }
+  }
+}